@@ -0,0 +1,166 @@
+//
+//
+// Copyright 2012-2012 Uwe Schäfer <uwe@codesmell.de>
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+
+
+package org.wicketeer.modelfactory.benchmark;
+
+import java.io.Serializable;
+
+/**
+ * Linked beans used as roots by the benchmarks, one per kind of root:
+ * non-final class, interface and final class.
+ *
+ * @author uweschaefer
+ */
+public final class Beans {
+
+    /**
+     * the longest chain any benchmark navigates.
+     */
+    public static final int MAX_LENGTH = 8;
+
+    private Beans() {
+    }
+
+    /**
+     * @return a Node, that can be navigated MAX_LENGTH times via getNext()
+     */
+    public static Node node() {
+        Node root = new Node();
+        Node n = root;
+        for (int i = 0; i < MAX_LENGTH; i++) {
+            n.setNext(new Node());
+            n = n.getNext();
+        }
+        return root;
+    }
+
+    /**
+     * @return an INode, that can be navigated MAX_LENGTH times via getNext()
+     */
+    public static INode inode() {
+        INode root = new NodeImpl();
+        INode n = root;
+        for (int i = 0; i < MAX_LENGTH; i++) {
+            n.setNext(new NodeImpl());
+            n = n.getNext();
+        }
+        return root;
+    }
+
+    /**
+     * @return a FinalNode, that can be navigated MAX_LENGTH times via getNext()
+     */
+    public static FinalNode finalNode() {
+        FinalNode root = new FinalNode();
+        FinalNode n = root;
+        for (int i = 0; i < MAX_LENGTH; i++) {
+            n.setNext(new FinalNode());
+            n = n.getNext();
+        }
+        return root;
+    }
+
+    /**
+     * root of kind class.
+     */
+    public static class Node implements Serializable {
+        private static final long serialVersionUID = 1L;
+        private Node next;
+        private String name = "node";
+
+        public Node getNext() {
+            return next;
+        }
+
+        public void setNext(final Node next) {
+            this.next = next;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(final String name) {
+            this.name = name;
+        }
+    }
+
+    /**
+     * root of kind interface.
+     */
+    public interface INode extends Serializable {
+        INode getNext();
+
+        void setNext(INode next);
+
+        String getName();
+
+        void setName(String name);
+    }
+
+    static class NodeImpl implements INode {
+        private static final long serialVersionUID = 1L;
+        private INode next;
+        private String name = "node";
+
+        @Override
+        public INode getNext() {
+            return next;
+        }
+
+        @Override
+        public void setNext(final INode next) {
+            this.next = next;
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public void setName(final String name) {
+            this.name = name;
+        }
+    }
+
+    /**
+     * root of kind final class, which cannot be proxied.
+     */
+    public static final class FinalNode implements Serializable {
+        private static final long serialVersionUID = 1L;
+        private FinalNode next;
+        private String name = "node";
+
+        public FinalNode getNext() {
+            return next;
+        }
+
+        public void setNext(final FinalNode next) {
+            this.next = next;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(final String name) {
+            this.name = name;
+        }
+    }
+}
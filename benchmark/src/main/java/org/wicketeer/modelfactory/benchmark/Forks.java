@@ -0,0 +1,39 @@
+//
+//
+// Copyright 2012-2012 Uwe Schäfer <uwe@codesmell.de>
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+
+
+package org.wicketeer.modelfactory.benchmark;
+
+/**
+ * JVM arguments of the forked benchmark JVMs. cglib defines its classes
+ * through ClassLoader.defineClass, which is closed to reflection from JDK 17
+ * on. JDK 8 does not know --add-opens and is told to ignore it.
+ *
+ * @author uweschaefer
+ */
+final class Forks {
+
+    static final String IGNORE_UNRECOGNIZED = "-XX:+IgnoreUnrecognizedVMOptions";
+
+    static final String OPEN_JAVA_LANG = "--add-opens=java.base/java.lang=ALL-UNNAMED";
+
+    /**
+     * hide.
+     */
+    private Forks() {
+    }
+}
@@ -0,0 +1,120 @@
+//
+//
+// Copyright 2012-2012 Uwe Schäfer <uwe@codesmell.de>
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+
+
+package org.wicketeer.modelfactory.benchmark;
+
+import static org.wicketeer.modelfactory.ModelFactory.from;
+import static org.wicketeer.modelfactory.ModelFactory.path;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.wicket.model.IModel;
+import org.apache.wicket.model.LoadableDetachableModel;
+import org.apache.wicket.model.Model;
+import org.apache.wicket.model.PropertyModel;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.wicketeer.modelfactory.benchmark.Beans.Node;
+
+/**
+ * Measures starting a recording with from(bean) and from(IModel), the latter
+ * for every way the model object type can be found: type parameter of a named
+ * or anonymous model class, IObjectClassAwareModel, the model object as a last
+ * resort and an explicitly given type. Each operation is completed by path(),
+ * so that the recording state is cleaned up as in real code.
+ *
+ * @author uweschaefer
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = { Forks.IGNORE_UNRECOGNIZED,
+        Forks.OPEN_JAVA_LANG })
+public class FromBenchmark {
+
+    private Node node;
+    private IModel<Node> declaredTypeModel;
+    private IModel<Node> objectClassAwareModel;
+    private IModel<Node> anonymousModel;
+    private IModel<Node> plainModel;
+
+    @Setup
+    public void createModels(final WicketState wicket) {
+        node = Beans.node();
+        declaredTypeModel = new NodeModel(node);
+        objectClassAwareModel = new PropertyModel<Node>(node, "next");
+        anonymousModel = new Model<Node>(node) {
+            private static final long serialVersionUID = 1L;
+        };
+        plainModel = Model.of(node);
+    }
+
+    @Benchmark
+    public String fromBean() {
+        return path(from(node).getName());
+    }
+
+    @Benchmark
+    public String fromModelDeclaredType() {
+        return path(from(declaredTypeModel).getName());
+    }
+
+    @Benchmark
+    public String fromModelObjectClassAware() {
+        return path(from(objectClassAwareModel).getName());
+    }
+
+    @Benchmark
+    public String fromModelAnonymousClass() {
+        return path(from(anonymousModel).getName());
+    }
+
+    @Benchmark
+    public String fromModelObject() {
+        return path(from(plainModel).getName());
+    }
+
+    @Benchmark
+    public String fromModelWithType() {
+        return path(from(plainModel, Node.class).getName());
+    }
+
+    static class NodeModel extends LoadableDetachableModel<Node> {
+        private static final long serialVersionUID = 1L;
+        private final Node node;
+
+        NodeModel(final Node node) {
+            this.node = node;
+        }
+
+        @Override
+        protected Node load() {
+            return node;
+        }
+    }
+}
@@ -0,0 +1,115 @@
+//
+//
+// Copyright 2012-2012 Uwe Schäfer <uwe@codesmell.de>
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+
+
+package org.wicketeer.modelfactory.benchmark;
+
+import static org.wicketeer.modelfactory.ModelFactory.model;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.wicket.model.IModel;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.wicketeer.modelfactory.benchmark.Beans.FinalNode;
+import org.wicketeer.modelfactory.benchmark.Beans.Node;
+
+/**
+ * Measures creating models from method references, which is the only way to
+ * start at a final root. The API takes up to five getters.
+ *
+ * @author uweschaefer
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = { Forks.IGNORE_UNRECOGNIZED,
+        Forks.OPEN_JAVA_LANG })
+public class MethodReferenceBenchmark {
+
+    @Param({ "1", "2", "3", "4", "5" })
+    private int length;
+
+    @Param({ "class", "final" })
+    private String root;
+
+    private boolean finalRoot;
+    private Node node;
+    private FinalNode finalNode;
+
+    @Setup
+    public void createRoots() {
+        finalRoot = "final".equals(root);
+        node = Beans.node();
+        finalNode = Beans.finalNode();
+    }
+
+    @Benchmark
+    public IModel<?> createModel() {
+        return finalRoot ? finalModel() : classModel();
+    }
+
+    private IModel<?> classModel() {
+        switch (length) {
+            case 1:
+                return model(node, Node::getNext);
+            case 2:
+                return model(node, Node::getNext, Node::getNext);
+            case 3:
+                return model(node, Node::getNext, Node::getNext,
+                        Node::getNext);
+            case 4:
+                return model(node, Node::getNext, Node::getNext,
+                        Node::getNext, Node::getNext);
+            default:
+                return model(node, Node::getNext, Node::getNext,
+                        Node::getNext, Node::getNext, Node::getNext);
+        }
+    }
+
+    private IModel<?> finalModel() {
+        switch (length) {
+            case 1:
+                return model(finalNode, FinalNode::getNext);
+            case 2:
+                return model(finalNode, FinalNode::getNext,
+                        FinalNode::getNext);
+            case 3:
+                return model(finalNode, FinalNode::getNext,
+                        FinalNode::getNext, FinalNode::getNext);
+            case 4:
+                return model(finalNode, FinalNode::getNext,
+                        FinalNode::getNext, FinalNode::getNext,
+                        FinalNode::getNext);
+            default:
+                return model(finalNode, FinalNode::getNext,
+                        FinalNode::getNext, FinalNode::getNext,
+                        FinalNode::getNext, FinalNode::getNext);
+        }
+    }
+}
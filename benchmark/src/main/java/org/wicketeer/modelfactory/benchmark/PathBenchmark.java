@@ -0,0 +1,114 @@
+//
+//
+// Copyright 2012-2012 Uwe Schäfer <uwe@codesmell.de>
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+
+
+package org.wicketeer.modelfactory.benchmark;
+
+import static org.wicketeer.modelfactory.ModelFactory.from;
+import static org.wicketeer.modelfactory.ModelFactory.fromClass;
+import static org.wicketeer.modelfactory.ModelFactory.model;
+import static org.wicketeer.modelfactory.ModelFactory.path;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.wicket.model.IModel;
+import org.apache.wicket.model.Model;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.wicketeer.modelfactory.benchmark.Beans.INode;
+import org.wicketeer.modelfactory.benchmark.Beans.Node;
+import org.wicketeer.modelfactory.internal.ArgumentsFactory;
+
+/**
+ * Measures recording a chain of <code>length</code> getters and turning it
+ * into a path or model, for roots that are classes or interfaces, with new or
+ * reused placeholders for every step. Final
+ * roots cannot be proxied; they are covered by {@link MethodReferenceBenchmark}.
+ *
+ * @author uweschaefer
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = { Forks.IGNORE_UNRECOGNIZED,
+        Forks.OPEN_JAVA_LANG })
+public class PathBenchmark {
+
+    @Param({ "1", "2", "3", "4", "5", "6", "7", "8" })
+    private int length;
+
+    @Param({ "class", "interface" })
+    private String root;
+
+    @Param({ "new", "reused" })
+    private String placeholders;
+
+    private boolean interfaceRoot;
+    private Node node;
+    private IModel<INode> inode;
+
+    @Setup
+    public void createRoots(final WicketState wicket) {
+        interfaceRoot = "interface".equals(root);
+        node = Beans.node();
+        inode = Model.of(Beans.inode());
+        ArgumentsFactory.setReusingPlaceholders("reused".equals(placeholders));
+    }
+
+    @Benchmark
+    public String recordPath() {
+        if (interfaceRoot) {
+            return path(navigate(fromClass(INode.class)));
+        }
+        return path(navigate(fromClass(Node.class)));
+    }
+
+    @Benchmark
+    public IModel<?> recordModel() {
+        if (interfaceRoot) {
+            return model(navigate(from(inode, INode.class)));
+        }
+        return model(navigate(from(node)));
+    }
+
+    private Node navigate(final Node start) {
+        Node n = start;
+        for (int i = 0; i < length; i++) {
+            n = n.getNext();
+        }
+        return n;
+    }
+
+    private INode navigate(final INode start) {
+        INode n = start;
+        for (int i = 0; i < length; i++) {
+            n = n.getNext();
+        }
+        return n;
+    }
+}
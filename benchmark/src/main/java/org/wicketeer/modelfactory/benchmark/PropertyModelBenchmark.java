@@ -0,0 +1,100 @@
+//
+//
+// Copyright 2012-2012 Uwe Schäfer <uwe@codesmell.de>
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+
+
+package org.wicketeer.modelfactory.benchmark;
+
+import static org.wicketeer.modelfactory.ModelFactory.from;
+import static org.wicketeer.modelfactory.ModelFactory.model;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.wicket.model.IModel;
+import org.apache.wicket.model.PropertyModel;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.wicketeer.modelfactory.benchmark.Beans.Node;
+
+/**
+ * Measures getObject() and setObject() of models pointing <code>length</code>
+ * getters deep. The propertyModel benchmarks resolve the path string with
+ * Wicket's PropertyResolver, as TypedPropertyModel does, the factoryModel
+ * benchmarks use whatever model() creates.
+ *
+ * @author uweschaefer
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = { Forks.IGNORE_UNRECOGNIZED,
+        Forks.OPEN_JAVA_LANG })
+public class PropertyModelBenchmark {
+
+    @Param({ "1", "2", "3", "4", "5", "6", "7", "8" })
+    private int length;
+
+    private IModel<String> propertyModel;
+    private IModel<String> factoryModel;
+    private String value = "a";
+
+    @Setup
+    public void createModels(final WicketState wicket) {
+        Node node = Beans.node();
+        Node n = from(node);
+        StringBuilder path = new StringBuilder();
+        for (int i = 1; i < length; i++) {
+            n = n.getNext();
+            path.append("next.");
+        }
+        factoryModel = model(n.getName());
+        propertyModel = new PropertyModel<String>(node, path.append("name")
+                .toString());
+    }
+
+    @Benchmark
+    public String propertyModelGetObject() {
+        return propertyModel.getObject();
+    }
+
+    @Benchmark
+    public String factoryModelGetObject() {
+        return factoryModel.getObject();
+    }
+
+    @Benchmark
+    public void propertyModelSetObject() {
+        value = "a".equals(value) ? "b" : "a";
+        propertyModel.setObject(value);
+    }
+
+    @Benchmark
+    public void factoryModelSetObject() {
+        value = "a".equals(value) ? "b" : "a";
+        factoryModel.setObject(value);
+    }
+}
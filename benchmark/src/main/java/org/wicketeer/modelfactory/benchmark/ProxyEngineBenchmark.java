@@ -0,0 +1,209 @@
+//
+//
+// Copyright 2012-2012 Uwe Schäfer <uwe@codesmell.de>
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+
+
+package org.wicketeer.modelfactory.benchmark;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.wicketeer.modelfactory.internal.CglibProxyEngine;
+import org.wicketeer.modelfactory.internal.HiddenClassProxyEngine;
+import org.wicketeer.modelfactory.internal.InvocationInterceptor;
+import org.wicketeer.modelfactory.internal.ProxyEngine;
+
+/**
+ * Compares the proxy engines. generateProxyClass measures the first proxy of
+ * a class, including class generation, on a freshly loaded copy of the proxied
+ * class per operation; createProxy measures every further proxy of an already
+ * proxied class.
+ * <p>
+ * The copies are either loaded by the ClassLoader of the library (loader
+ * <code>library</code>), as in a webapp bundling the library, or each by a
+ * new ClassLoader (loader <code>other</code>), as in every webapp when the
+ * library is in a shared lib. For the latter, the hidden class engine also
+ * defines a <code>ModelFactoryLookup$$</code> class per copy.
+ *
+ * @author uweschaefer
+ */
+@State(Scope.Thread)
+@Fork(value = 1, jvmArgsAppend = { Forks.IGNORE_UNRECOGNIZED,
+        Forks.OPEN_JAVA_LANG })
+public class ProxyEngineBenchmark {
+
+    @Param({ "cglib", "hidden" })
+    private String engine;
+
+    private ProxyEngine proxyEngine;
+
+    private final InvocationInterceptor interceptor = new NullInterceptor();
+
+    @Setup
+    public void createEngine() {
+        proxyEngine = "hidden".equals(engine) ? new HiddenClassProxyEngine()
+                : new CglibProxyEngine();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    @Warmup(iterations = 50)
+    @Measurement(iterations = 500)
+    public Object generateProxyClass(final FreshClass fresh) {
+        return proxyEngine.createProxy(interceptor, fresh.proxied);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    @Warmup(iterations = 5, time = 1)
+    @Measurement(iterations = 5, time = 1)
+    public Object createProxy() {
+        return proxyEngine.createProxy(interceptor, ProxiedBean.class);
+    }
+
+    /**
+     * A new copy of {@link ProxiedBean} for every operation.
+     */
+    @State(Scope.Thread)
+    public static class FreshClass {
+        private static final String NAME = ProxiedBean.class.getName()
+                .replace('.', '/');
+        private static final AtomicInteger copies = new AtomicInteger();
+
+        @Param({ "library", "other" })
+        private String loader;
+
+        private byte[] bytes;
+        private Class<?> proxied;
+
+        @Setup
+        public void readClass() throws IOException {
+            InputStream in = ProxiedBean.class.getResourceAsStream(
+                    "ProxiedBean.class");
+            try {
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                byte[] buffer = new byte[4096];
+                for (int n = in.read(buffer); n >= 0; n = in.read(buffer)) {
+                    out.write(buffer, 0, n);
+                }
+                bytes = out.toByteArray();
+            }
+            finally {
+                in.close();
+            }
+        }
+
+        @Setup(Level.Invocation)
+        public void loadClass() throws Exception {
+            if ("library".equals(loader)) {
+                proxied = defineRenamedCopy();
+            }
+            else {
+                proxied = new ClassLoader(FreshClass.class.getClassLoader()) {
+                    Class<?> define() {
+                        return defineClass(ProxiedBean.class.getName(), bytes,
+                                0, bytes.length);
+                    }
+                }.define();
+            }
+        }
+
+        /**
+         * a class can only be defined once per loader, so the copy is renamed
+         * to a name of the same length, which leaves the class file intact.
+         */
+        private Class<?> defineRenamedCopy() throws Exception {
+            String simpleName = ProxiedBean.class.getSimpleName();
+            String name = NAME.substring(0, NAME.length()
+                    - simpleName.length())
+                    + String.format("P%0" + (simpleName.length() - 1) + "d",
+                            copies.incrementAndGet());
+            byte[] renamed = replace(bytes, NAME.getBytes("UTF-8"),
+                    name.getBytes("UTF-8"));
+            // opened by Forks.OPEN_JAVA_LANG
+            Method define = ClassLoader.class.getDeclaredMethod("defineClass",
+                    String.class, byte[].class, int.class, int.class);
+            define.setAccessible(true);
+            return (Class<?>) define.invoke(FreshClass.class.getClassLoader(),
+                    name.replace('/', '.'), renamed, 0, renamed.length);
+        }
+
+        private static byte[] replace(final byte[] bytes, final byte[] from,
+                final byte[] to) {
+            byte[] replaced = bytes.clone();
+            for (int i = 0; i <= replaced.length - from.length; i++) {
+                int j = 0;
+                while ((j < from.length) && (replaced[i + j] == from[j])) {
+                    j++;
+                }
+                if (j == from.length) {
+                    System.arraycopy(to, 0, replaced, i, to.length);
+                }
+            }
+            return replaced;
+        }
+    }
+
+    static class NullInterceptor extends InvocationInterceptor {
+        @Override
+        public Object invoke(final Object proxy, final Method method,
+                final Object[] args) {
+            return null;
+        }
+    }
+}
+
+/**
+ * top level, so that it can be loaded without an enclosing class.
+ */
+class ProxiedBean {
+    private String name;
+    private ProxiedBean next;
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(final String name) {
+        this.name = name;
+    }
+
+    public ProxiedBean getNext() {
+        return next;
+    }
+
+    public void setNext(final ProxiedBean next) {
+        this.next = next;
+    }
+}
@@ -0,0 +1,115 @@
+//
+//
+// Copyright 2012-2012 Uwe Schäfer <uwe@codesmell.de>
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+
+
+package org.wicketeer.modelfactory.benchmark;
+
+import static org.wicketeer.modelfactory.ModelFactory.from;
+import static org.wicketeer.modelfactory.ModelFactory.model;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.wicket.model.IModel;
+import org.apache.wicket.model.PropertyModel;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.wicketeer.modelfactory.benchmark.Beans.Node;
+
+/**
+ * Serializes and deserializes a "page" of <code>rows</code> beans with three
+ * models each, like a DataTable would keep them in the page store. The
+ * propertyModel variant uses plain PropertyModels as a baseline, factoryModel
+ * whatever model() creates. The size of the serialized page is printed on
+ * setup.
+ *
+ * @author uweschaefer
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = { Forks.IGNORE_UNRECOGNIZED,
+        Forks.OPEN_JAVA_LANG })
+public class SerializationBenchmark {
+
+    @Param({ "100", "1000" })
+    private int rows;
+
+    @Param({ "propertyModel", "factoryModel" })
+    private String kind;
+
+    private List<IModel<String>> page;
+
+    private byte[] serialized;
+
+    @Setup
+    public void createPage(final WicketState wicket) throws IOException {
+        page = new ArrayList<IModel<String>>();
+        for (int i = 0; i < rows; i++) {
+            Node node = Beans.node();
+            if ("propertyModel".equals(kind)) {
+                page.add(new PropertyModel<String>(node, "name"));
+                page.add(new PropertyModel<String>(node, "next.name"));
+                page.add(new PropertyModel<String>(node, "next.next.name"));
+            } else {
+                page.add(model(from(node).getName()));
+                page.add(model(from(node).getNext().getName()));
+                page.add(model(from(node).getNext().getNext().getName()));
+            }
+        }
+        serialized = serialize(page);
+        System.out.println(kind + " page of " + rows + " rows: "
+                + serialized.length + " bytes");
+    }
+
+    @Benchmark
+    public byte[] serialize() throws IOException {
+        return serialize(page);
+    }
+
+    @Benchmark
+    public Object deserialize() throws IOException, ClassNotFoundException {
+        ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(
+                serialized));
+        return in.readObject();
+    }
+
+    private static byte[] serialize(final Object page) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream(bytes);
+        out.writeObject(page);
+        out.close();
+        return bytes.toByteArray();
+    }
+}
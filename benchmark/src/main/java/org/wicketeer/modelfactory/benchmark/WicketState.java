@@ -0,0 +1,48 @@
+//
+//
+// Copyright 2012-2012 Uwe Schäfer <uwe@codesmell.de>
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+
+
+package org.wicketeer.modelfactory.benchmark;
+
+import org.apache.wicket.util.tester.WicketTester;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Provides a RequestCycle for the benchmark thread, as from() and path() need
+ * one. Benchmarks request it as a parameter of their setup method, so that it
+ * is created first.
+ *
+ * @author uweschaefer
+ */
+@State(Scope.Thread)
+public class WicketState {
+
+    private WicketTester tester;
+
+    @Setup
+    public void startRequestCycle() {
+        tester = new WicketTester();
+    }
+
+    @TearDown
+    public void stopRequestCycle() {
+        tester.destroy();
+    }
+}
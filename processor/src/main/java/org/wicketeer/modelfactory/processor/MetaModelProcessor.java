@@ -0,0 +1,363 @@
+//
+//
+// Copyright 2012-2012 Uwe Schäfer <uwe@codesmell.de>
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+
+
+package org.wicketeer.modelfactory.processor;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.PrimitiveType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+
+/**
+ * Generates a static metamodel class <code>X_</code> for every bean
+ * <code>X</code> annotated with <code>org.wicketeer.modelfactory.MetaModel</code>
+ * . For every readable property of X there is a static method on X_ returning a
+ * <code>MetaPath</code>, that accesses the property through plain method
+ * references. If the property's type is annotated as well, the returned path
+ * allows to navigate further, as in <code>Person_.address().street()</code>.
+ *
+ * @author uweschaefer
+ */
+@SupportedAnnotationTypes(MetaModelProcessor.META_MODEL)
+public class MetaModelProcessor extends AbstractProcessor {
+
+    static final String META_MODEL = "org.wicketeer.modelfactory.MetaModel";
+    private static final String META_PATH = "org.wicketeer.modelfactory.MetaPath";
+
+    /**
+     * method names of MetaPath and Object, that generated methods must not
+     * clash with.
+     */
+    private static final Set<String> RESERVED = new HashSet<String>(
+            Arrays.asList("getPropertyPath", "getObjectClass", "accepts", "get",
+                    "set", "root", "toString", "hashCode", "getClass", "clone",
+                    "finalize", "notify", "notifyAll", "wait"));
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean process(final Set<? extends TypeElement> annotations,
+            final RoundEnvironment roundEnv) {
+        TypeElement metaModel = processingEnv.getElementUtils()
+                .getTypeElement(META_MODEL);
+        if ((metaModel == null) || annotations.isEmpty()) {
+            return false;
+        }
+        for (Element e : roundEnv.getElementsAnnotatedWith(metaModel)) {
+            if ((e.getKind() != ElementKind.CLASS)
+                    && (e.getKind() != ElementKind.INTERFACE)) {
+                processingEnv.getMessager().printMessage(
+                        Diagnostic.Kind.ERROR,
+                        "@MetaModel is only supported on classes and interfaces",
+                        e);
+                continue;
+            }
+            try {
+                generate((TypeElement) e);
+            }
+            catch (IOException ex) {
+                processingEnv.getMessager().printMessage(
+                        Diagnostic.Kind.ERROR,
+                        "cannot write metamodel: " + ex.getMessage(), e);
+            }
+        }
+        return true;
+    }
+
+    private void generate(final TypeElement bean) throws IOException {
+        String pkg = packageOf(bean);
+        String metaName = metaModelName(bean);
+        String beanName = rawName(bean);
+        Map<String, Property> properties = findProperties(bean);
+
+        PrintWriter w = new PrintWriter(processingEnv.getFiler()
+                .createSourceFile(
+                        (pkg.isEmpty() ? "" : pkg + ".") + metaName, bean)
+                .openWriter());
+        try {
+            if (!pkg.isEmpty()) {
+                w.println("package " + pkg + ";");
+                w.println();
+            }
+            w.println("/**");
+            w.println(" * Metamodel of {@link " + beanName
+                    + "}, generated by " + getClass().getName() + ".");
+            w.println(" */");
+            w.println("@SuppressWarnings({ \"rawtypes\", \"unchecked\" })");
+            w.println("public final class " + metaName + " {");
+            w.println();
+            w.println("    private static final Path<" + beanName
+                    + "> ROOT = new Path<" + beanName + ">(" + beanName
+                    + ".class);");
+            w.println();
+            w.println("    private " + metaName + "() {");
+            w.println("    }");
+            for (Property p : properties.values()) {
+                w.println();
+                w.println("    /**");
+                w.println("     * @return path to the property \"" + p.name
+                        + "\"");
+                w.println("     */");
+                w.println("    public static " + p.pathType(beanName) + " "
+                        + p.methodName + "() {");
+                w.println("        return ROOT." + p.methodName + "();");
+                w.println("    }");
+            }
+            w.println();
+            w.println("    /**");
+            w.println("     * path to a {@link " + beanName
+                    + "}, starting at objects of type R.");
+            w.println("     */");
+            w.println("    public static class Path<R> extends " + META_PATH
+                    + "<R, " + beanName + "> {");
+            w.println("        private static final long serialVersionUID = 1L;");
+            for (Property p : properties.values()) {
+                w.println("        private transient " + p.pathType("R")
+                        + " _" + p.methodName + ";");
+            }
+            w.println();
+            w.println("        Path(final Class<R> rootType) {");
+            w.println("            super(rootType);");
+            w.println("        }");
+            w.println();
+            w.println("        public <P> Path(final " + META_PATH
+                    + "<R, P> parent, final String name, final Class<"
+                    + beanName + "> type,");
+            w.println("                final org.wicketeer.modelfactory.Getter<P, "
+                    + beanName + "> getter,");
+            w.println("                final org.wicketeer.modelfactory.Setter<P, "
+                    + beanName + "> setter) {");
+            w.println("            super(parent, name, type, getter, setter);");
+            w.println("        }");
+            for (Property p : properties.values()) {
+                w.println();
+                w.println("        public " + p.pathType("R") + " "
+                        + p.methodName + "() {");
+                w.println("            " + p.pathType("R") + " p = _"
+                        + p.methodName + ";");
+                w.println("            if (p == null) {");
+                w.println("                p = new " + p.pathType("R")
+                        + "(this, \"" + p.name + "\", " + p.classLiteral
+                        + ", " + beanName + "::" + p.getter + ", "
+                        + (p.setter == null ? "null"
+                                : beanName + "::" + p.setter)
+                        + ");");
+                w.println("                _" + p.methodName + " = p;");
+                w.println("            }");
+                w.println("            return p;");
+                w.println("        }");
+            }
+            w.println("    }");
+            w.println("}");
+        }
+        finally {
+            w.close();
+        }
+    }
+
+    private Map<String, Property> findProperties(final TypeElement bean) {
+        Map<String, Property> properties = new LinkedHashMap<String, Property>();
+        List<ExecutableElement> methods = ElementFilter.methodsIn(
+                processingEnv.getElementUtils().getAllMembers(bean));
+        for (ExecutableElement m : methods) {
+            String name = m.getSimpleName().toString();
+            String propertyName = getterPropertyName(m, name);
+            if ((propertyName == null) || !isAccessible(bean, m)
+                    || properties.containsKey(propertyName)) {
+                continue;
+            }
+            TypeMirror type = processingEnv.getTypeUtils()
+                    .erasure(m.getReturnType());
+            properties.put(propertyName, new Property(propertyName, name,
+                    findSetter(bean, methods, propertyName, type), type));
+        }
+        return properties;
+    }
+
+    private String getterPropertyName(final ExecutableElement m,
+            final String name) {
+        if (!m.getParameters().isEmpty()
+                || m.getModifiers().contains(Modifier.STATIC)
+                || (m.getReturnType().getKind() == TypeKind.VOID)
+                || "getClass".equals(name)) {
+            return null;
+        }
+        String property;
+        if (name.startsWith("get") && (name.length() > 3)) {
+            property = name.substring(3);
+        }
+        else
+            if (name.startsWith("is") && (name.length() > 2)
+                    && isBoolean(m.getReturnType())) {
+                property = name.substring(2);
+            }
+            else {
+                return null;
+            }
+        // same as org.wicketeer.modelfactory.internal.Invocation
+        return property.substring(0, 1).toLowerCase(Locale.getDefault())
+                + property.substring(1);
+    }
+
+    private boolean isBoolean(final TypeMirror type) {
+        return (type.getKind() == TypeKind.BOOLEAN)
+                || type.toString().equals("java.lang.Boolean");
+    }
+
+    private String findSetter(final TypeElement bean,
+            final List<ExecutableElement> methods, final String property,
+            final TypeMirror type) {
+        String setterName = "set" + property.substring(0, 1).toUpperCase(Locale.ENGLISH)
+                + property.substring(1);
+        for (ExecutableElement m : methods) {
+            if (m.getSimpleName().contentEquals(setterName)
+                    && (m.getParameters().size() == 1)
+                    && !m.getModifiers().contains(Modifier.STATIC)
+                    && isAccessible(bean, m)
+                    && processingEnv.getTypeUtils().isSameType(type,
+                            processingEnv.getTypeUtils().erasure(
+                                    m.getParameters().get(0).asType()))) {
+                return setterName;
+            }
+        }
+        return null;
+    }
+
+    private boolean isAccessible(final TypeElement bean,
+            final ExecutableElement m) {
+        Set<Modifier> mods = m.getModifiers();
+        if (mods.contains(Modifier.PRIVATE)) {
+            return false;
+        }
+        if (mods.contains(Modifier.PUBLIC)) {
+            return true;
+        }
+        Element owner = m.getEnclosingElement();
+        return (owner instanceof TypeElement)
+                && packageOf((TypeElement) owner).equals(packageOf(bean));
+    }
+
+    private String packageOf(final TypeElement type) {
+        PackageElement p = processingEnv.getElementUtils().getPackageOf(type);
+        return p.isUnnamed() ? "" : p.getQualifiedName().toString();
+    }
+
+    private String metaModelName(final TypeElement type) {
+        String pkg = packageOf(type);
+        String name = type.getQualifiedName().toString();
+        if (!pkg.isEmpty()) {
+            name = name.substring(pkg.length() + 1);
+        }
+        return name.replace('.', '_') + "_";
+    }
+
+    private String rawName(final TypeElement type) {
+        return type.getQualifiedName().toString();
+    }
+
+    private boolean hasMetaModel(final TypeMirror type) {
+        if (type.getKind() != TypeKind.DECLARED) {
+            return false;
+        }
+        Element e = ((DeclaredType) type).asElement();
+        for (javax.lang.model.element.AnnotationMirror a : e
+                .getAnnotationMirrors()) {
+            if (((TypeElement) a.getAnnotationType().asElement())
+                    .getQualifiedName().contentEquals(META_MODEL)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private final class Property {
+        private final String name;
+        private final String methodName;
+        private final String getter;
+        private final String setter;
+        private final String typeName;
+        private final String classLiteral;
+        private final String metaModel;
+
+        private Property(final String name, final String getter,
+                final String setter, final TypeMirror type) {
+            this.name = name;
+            this.methodName = (SourceVersion.isKeyword(name)
+                    || RESERVED.contains(name)) ? name + "_" : name;
+            this.getter = getter;
+            this.setter = setter;
+            if (type.getKind().isPrimitive()) {
+                this.typeName = processingEnv.getTypeUtils()
+                        .boxedClass((PrimitiveType) type).getQualifiedName()
+                        .toString();
+            }
+            else {
+                this.typeName = type.toString();
+            }
+            this.classLiteral = type.toString() + ".class";
+            if (hasMetaModel(type)) {
+                TypeElement e = (TypeElement) ((DeclaredType) type)
+                        .asElement();
+                String pkg = packageOf(e);
+                this.metaModel = (pkg.isEmpty() ? "" : pkg + ".")
+                        + metaModelName(e);
+            }
+            else {
+                this.metaModel = null;
+            }
+        }
+
+        private String pathType(final String root) {
+            if (metaModel != null) {
+                return metaModel + ".Path<" + root + ">";
+            }
+            return META_PATH + "<" + root + ", " + typeName + ">";
+        }
+    }
+}
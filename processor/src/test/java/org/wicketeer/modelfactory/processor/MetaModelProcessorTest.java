@@ -0,0 +1,144 @@
+package org.wicketeer.modelfactory.processor;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+
+import junit.framework.TestCase;
+
+public class MetaModelProcessorTest extends TestCase {
+
+    private File dir;
+
+    @Override
+    protected void setUp() throws Exception {
+        dir = Files.createTempDirectory("metamodel").toFile();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        delete(dir);
+    }
+
+    public void testGeneratedPaths() throws Exception {
+        write("sample/Person.java", "package sample;",
+                "@org.wicketeer.modelfactory.MetaModel",
+                "public class Person {",
+                "  private Address address = new Address();",
+                "  private int age;", "  private boolean active;",
+                "  public Address getAddress() { return address; }",
+                "  public void setAddress(Address a) { address = a; }",
+                "  public int getAge() { return age; }",
+                "  public void setAge(int a) { age = a; }",
+                "  public boolean isActive() { return active; }",
+                "  public String getDefault() { return \"d\"; }",
+                "  private String getHidden() { return null; }", "}");
+        write("sample/Address.java", "package sample;",
+                "@org.wicketeer.modelfactory.MetaModel",
+                "public class Address {",
+                "  private String street = \"Main St\";",
+                "  public String getStreet() { return street; }",
+                "  public void setStreet(String s) { street = s; }", "}");
+        write("sample/Check.java",
+                "package sample;",
+                "import org.apache.wicket.model.IModel;",
+                "import org.wicketeer.modelfactory.ModelFactory;",
+                "public class Check implements java.util.concurrent.Callable<String> {",
+                "  public String call() {",
+                "    Person p = new Person();",
+                "    IModel<String> street = ModelFactory.model(p, Person_.address().street());",
+                "    street.setObject(\"Elm St\");",
+                "    IModel<Integer> age = ModelFactory.model(p, Person_.age());",
+                "    age.setObject(42);",
+                "    return ModelFactory.path(Person_.address().street())",
+                "      + \"|\" + ModelFactory.path(Person::getAddress, Address::getStreet)",
+                "      + \"|\" + ModelFactory.path(Person_.active())",
+                "      + \"|\" + ModelFactory.path(Person_.default_())",
+                "      + \"|\" + p.getAddress().getStreet() + \"|\" + street.getObject()",
+                "      + \"|\" + p.getAge() + \"|\" + Person_.age().getObjectClass();",
+                "  }", "}");
+
+        compile("sample/Person.java", "sample/Address.java",
+                "sample/Check.java");
+
+        URLClassLoader loader = new URLClassLoader(new URL[] { dir.toURI()
+                .toURL() }, getClass().getClassLoader());
+        try {
+            Callable<?> check = (Callable<?>) loader.loadClass("sample.Check")
+                    .newInstance();
+            assertEquals("address.street|address.street|active|default"
+                    + "|Elm St|Elm St|42|int", check.call());
+
+            Class<?> meta = loader.loadClass("sample.Person_");
+            for (Method m : meta.getMethods()) {
+                assertFalse("hidden".equals(m.getName()));
+            }
+        }
+        finally {
+            loader.close();
+        }
+    }
+
+    public void testPathIsSerializable() throws Exception {
+        write("Bean.java", "@org.wicketeer.modelfactory.MetaModel",
+                "public class Bean {",
+                "  public String getName() { return \"x\"; }", "}");
+        compile("Bean.java");
+
+        URLClassLoader loader = new URLClassLoader(new URL[] { dir.toURI()
+                .toURL() }, getClass().getClassLoader());
+        try {
+            Object path = loader.loadClass("Bean_").getMethod("name")
+                    .invoke(null);
+            assertTrue(path instanceof java.io.Serializable);
+            assertEquals("MetaPath[Bean:name]", path.toString());
+        }
+        finally {
+            loader.close();
+        }
+    }
+
+    private void compile(final String... files) {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        assertNotNull("tests need a JDK", compiler);
+
+        String[] args = new String[files.length + 6];
+        args[0] = "-classpath";
+        args[1] = System.getProperty("java.class.path");
+        args[2] = "-processor";
+        args[3] = MetaModelProcessor.class.getName();
+        args[4] = "-d";
+        args[5] = dir.getPath();
+        for (int i = 0; i < files.length; i++) {
+            args[i + 6] = new File(dir, files[i]).getPath();
+        }
+        assertEquals(Arrays.toString(args), 0,
+                compiler.run(null, null, null, args));
+    }
+
+    private void write(final String name, final String... lines)
+            throws IOException {
+        File f = new File(dir, name);
+        f.getParentFile().mkdirs();
+        Files.write(f.toPath(), Arrays.asList(lines), Charset.forName("UTF-8"));
+    }
+
+    private static void delete(final File f) {
+        File[] children = f.listFiles();
+        if (children != null) {
+            for (File c : children) {
+                delete(c);
+            }
+        }
+        f.delete();
+    }
+}
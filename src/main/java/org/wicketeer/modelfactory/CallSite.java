@@ -0,0 +1,207 @@
+//
+//
+// Copyright 2012-2012 Uwe Schäfer <uwe@codesmell.de>
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+
+
+package org.wicketeer.modelfactory;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+/**
+ * The place a from() call came from, used to tell where a recording was left
+ * incomplete. On Java 9+ only the calling frame is looked up with a
+ * StackWalker. On older JVMs filling a complete stack trace on every from()
+ * call is too expensive, so only every n-th call is captured.
+ *
+ * @author uweschaefer
+ */
+final class CallSite {
+
+    /**
+     * default number of from() calls per captured stack trace, if there is no
+     * StackWalker.
+     */
+    static final int DEFAULT_SAMPLING_INTERVAL = 16;
+
+    private static final String PACKAGE = ModelFactory.class.getPackage()
+            .getName();
+    private static final String SIMPLE_NAME = ModelFactory.class
+            .getSimpleName();
+
+    private static final StackWalkerSupport walker = StackWalkerSupport
+            .create();
+    private static final AtomicInteger calls = new AtomicInteger();
+    private static volatile int samplingInterval = DEFAULT_SAMPLING_INTERVAL;
+
+    private final Object frame;
+    private final Exception stackTrace;
+
+    private CallSite(final Object frame, final Exception stackTrace) {
+        this.frame = frame;
+        this.stackTrace = stackTrace;
+    }
+
+    /**
+     * @param interval
+     *            number of from() calls per captured stack trace on JVMs
+     *            without StackWalker, 1 to capture every call, values &lt; 1
+     *            to capture none.
+     */
+    static void setSamplingInterval(final int interval) {
+        samplingInterval = interval;
+    }
+
+    /**
+     * @return true, if the calling frame is looked up by a StackWalker rather
+     *         than sampled
+     */
+    static boolean usesStackWalker() {
+        return walker != null;
+    }
+
+    /**
+     * @return the call site of the current from() call, or null if it was
+     *         not captured
+     */
+    static CallSite capture() {
+        if (walker != null) {
+            Object frame = walker.callingFrame();
+            return frame == null ? null : new CallSite(frame, null);
+        }
+        int interval = samplingInterval;
+        if ((interval < 1) || ((calls.incrementAndGet() % interval) != 0)) {
+            return null;
+        }
+        return new CallSite(null, new Exception());
+    }
+
+    /**
+     * @return the call site like "MyPage.onInitialize (MyPage:42)" or ""
+     */
+    String render() {
+        if (frame != null) {
+            return render(walker.toStackTraceElement(frame));
+        }
+        for (StackTraceElement element : stackTrace.getStackTrace()) {
+            if (!isInternal(element.getClassName())) {
+                return render(element);
+            }
+        }
+        return "";
+    }
+
+    private static String render(final StackTraceElement element) {
+        if (element == null) {
+            return "";
+        }
+        String cn = element.getClassName();
+        String scn = cn.substring(cn.lastIndexOf('.') + 1);
+        return scn + "." + element.getMethodName() + " (" + scn + ":"
+                + element.getLineNumber() + ")";
+    }
+
+    private static boolean isInternal(final String className) {
+        return className.contains(SIMPLE_NAME) || className.contains(PACKAGE);
+    }
+
+    /**
+     * java.lang.StackWalker, accessed reflectively as long as Java 8 is
+     * supported.
+     */
+    private static final class StackWalkerSupport {
+        private final MethodHandle walk;
+        private final MethodHandle getClassName;
+        private final MethodHandle toStackTraceElement;
+        private final Function<Stream<Object>, Object> firstExternalFrame = new Function<Stream<Object>, Object>() {
+            @Override
+            public Object apply(final Stream<Object> frames) {
+                return frames.filter(new Predicate<Object>() {
+                    @Override
+                    public boolean test(final Object frame) {
+                        return !isInternal(className(frame));
+                    }
+                }).findFirst().orElse(null);
+            }
+        };
+
+        private StackWalkerSupport(final MethodHandle walk,
+                final MethodHandle getClassName,
+                final MethodHandle toStackTraceElement) {
+            this.walk = walk;
+            this.getClassName = getClassName;
+            this.toStackTraceElement = toStackTraceElement;
+        }
+
+        static StackWalkerSupport create() {
+            try {
+                Class<?> stackWalker = Class.forName("java.lang.StackWalker");
+                Class<?> stackFrame = Class
+                        .forName("java.lang.StackWalker$StackFrame");
+                // walk() is caller sensitive
+                MethodHandles.Lookup lookup = MethodHandles.lookup();
+                Object instance = stackWalker.getMethod("getInstance")
+                        .invoke(null);
+                return new StackWalkerSupport(
+                        lookup.findVirtual(stackWalker, "walk",
+                                MethodType.methodType(Object.class,
+                                        Function.class))
+                                .bindTo(instance),
+                        lookup.findVirtual(stackFrame, "getClassName",
+                                MethodType.methodType(String.class)),
+                        lookup.findVirtual(stackFrame, "toStackTraceElement",
+                                MethodType.methodType(
+                                        StackTraceElement.class)));
+            }
+            catch (Exception e) {
+                // Java 8
+                return null;
+            }
+        }
+
+        Object callingFrame() {
+            try {
+                return walk.invoke(firstExternalFrame);
+            }
+            catch (Throwable e) {
+                return null;
+            }
+        }
+
+        String className(final Object frame) {
+            try {
+                return (String) getClassName.invoke(frame);
+            }
+            catch (Throwable e) {
+                return "";
+            }
+        }
+
+        StackTraceElement toStackTraceElement(final Object frame) {
+            try {
+                return (StackTraceElement) toStackTraceElement.invoke(frame);
+            }
+            catch (Throwable e) {
+                return null;
+            }
+        }
+    }
+}
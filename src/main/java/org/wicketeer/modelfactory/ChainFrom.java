@@ -39,29 +39,14 @@ class ChainFrom extends RequestCycleLocal<Object> {
         Reference ref = (Reference) super.get();
         if (ref != null) {
             super.remove();
+            CallSite callSite = ref.getCallSite();
             throw new IllegalStateException(
                     "mutliple from() calls. need to call model(); Original invokation at "
-                            + render(ref.getInvokationPath()));
+                            + (callSite == null ? "" : callSite.render()));
         }
         super.set(new Reference(Preconditions.checkNotNull(value)));
     }
 
-    private String render(final Exception invokationPath) {
-        StackTraceElement[] st = invokationPath.getStackTrace();
-        for (StackTraceElement stackTraceElement : st) {
-            String cn = stackTraceElement.getClassName();
-            if (!cn.contains(ModelFactory.class.getSimpleName()) && !(cn
-                    .contains(ModelFactory.class.getPackage().getName()))) {
-                String mn = stackTraceElement.getMethodName();
-                int ln = stackTraceElement.getLineNumber();
-                String scn = cn.substring(cn.lastIndexOf('.') + 1);
-                return scn + "." + mn + " (" + scn + ":" + ln + ")";
-            }
-        }
-        invokationPath.printStackTrace();
-        return "";
-    }
-
     @Override
     public Object get() {
         Reference ref = (Reference) super.get();
@@ -0,0 +1,70 @@
+//
+//
+// Copyright 2012-2012 Uwe Schäfer <uwe@codesmell.de>
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+
+
+package org.wicketeer.modelfactory;
+
+import org.wicketeer.modelfactory.internal.PropertyAccessor;
+
+/**
+ * TypedPropertyModel that evaluates a getter chain directly through a
+ * PropertyAccessor instead of resolving the property expression via Wicket's
+ * PropertyResolver on every access. Falls back to the PropertyResolver for
+ * everything the accessor cannot handle itself (like null intermediates on
+ * setObject or type conversion).
+ *
+ * @author uweschaefer
+ * @param <S>
+ *            the type of the model object
+ */
+class CompiledPropertyModel<S> extends TypedPropertyModel<S> {
+    private static final long serialVersionUID = 1L;
+    private final PropertyAccessor chain;
+
+    CompiledPropertyModel(final Object t, final String path,
+            final Class<S> type, final PropertyAccessor chain)
+            throws NullPointerException {
+        super(t, path, type);
+        this.chain = Preconditions.checkNotNull(chain);
+    }
+
+    @Override
+    PropertyAccessor getAccessor() {
+        return chain;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    S evaluate() {
+        Object target = getInnermostModelOrObject();
+        if (target == null) {
+            return null;
+        }
+        if (!chain.accepts(target)) {
+            return super.evaluate();
+        }
+        return (S) chain.get(target);
+    }
+
+    @Override
+    public void setObject(final S object) {
+        Object target = getInnermostModelOrObject();
+        if ((target == null) || !chain.set(target, object)) {
+            super.setObject(object);
+        }
+    }
+}
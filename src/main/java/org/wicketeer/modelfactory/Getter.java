@@ -0,0 +1,43 @@
+//
+//
+// Copyright 2012-2012 Uwe Schäfer <uwe@codesmell.de>
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+
+
+package org.wicketeer.modelfactory;
+
+import java.io.Serializable;
+
+/**
+ * Serializable method reference to a getter, like
+ * <code>Person::getAddress</code>. Used by the proxy-free variants of
+ * <code>model()</code> and <code>path()</code>, which find out about the
+ * referenced method by means of {@link java.lang.invoke.SerializedLambda}.
+ *
+ * @author uweschaefer
+ * @param <T>
+ *            type declaring the getter
+ * @param <R>
+ *            type returned by the getter
+ */
+@FunctionalInterface
+public interface Getter<T, R> extends Serializable {
+    /**
+     * @param object
+     *            the object to call the getter on
+     * @return the getter's return value
+     */
+    R get(T object);
+}
@@ -0,0 +1,41 @@
+//
+//
+// Copyright 2012-2012 Uwe Schäfer <uwe@codesmell.de>
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+
+package org.wicketeer.modelfactory;
+
+import org.apache.wicket.model.IModel;
+
+/**
+ * A model of a long property, that can be read and written without boxing.
+ *
+ * @author uweschaefer
+ * @see ModelFactory#longModel(long)
+ */
+public interface ILongModel extends IModel<Long> {
+
+    /**
+     * @return the value, or 0 if anything on the way to the property is
+     *         null
+     */
+    long getLong();
+
+    /**
+     * @param value
+     *            the value to set
+     */
+    void setLong(long value);
+}
@@ -0,0 +1,71 @@
+//
+//
+// Copyright 2012-2012 Uwe Schäfer <uwe@codesmell.de>
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+
+/**
+ *
+ */
+package org.wicketeer.modelfactory;
+
+import org.wicketeer.modelfactory.internal.ModelFactoryContext;
+
+/**
+ * Keeps track of the root reference passed to from() within the
+ * ModelFactoryContext of the current recording.
+ */
+final class LocalFrom {
+    /**
+     * marker object that should make model() impossible, but let path() happen.
+     */
+    protected static final Object FROM_CLASS = new Object();
+
+    private LocalFrom() {
+    }
+
+    static void set(final ModelFactoryContext context, final Object value) {
+        Reference ref = (Reference) context.getRoot();
+        if (ref != null) {
+            context.setRoot(null);
+
+            CallSite callSite = ref.getCallSite();
+            StringBuilder sb = new StringBuilder(
+                    "mutliple from() calls. You need to call 'model()' or 'path()' first.");
+            if (callSite != null) {
+                sb.append(
+                        " First (probably missing a 'model()'- or 'path()'-call) invokation of from() at "
+                                + callSite.render());
+            }
+
+            throw new IllegalStateException(sb.toString());
+        }
+        context.setRoot(new Reference(Preconditions.checkNotNull(value)));
+    }
+
+    static Object get(final ModelFactoryContext context)
+            throws IllegalStateException {
+        Reference ref = (Reference) context.getRoot();
+        if (ref == null) {
+            throw new IllegalStateException(
+                    "no from() call registered before. Usage: model(from(myObject).myMethod()) would be equivalent to new PropertyModel(myObject,\"myMethod\");");
+        }
+
+        return ref.getObject();
+    }
+
+    static void remove(final ModelFactoryContext context) {
+        context.setRoot(null);
+    }
+}
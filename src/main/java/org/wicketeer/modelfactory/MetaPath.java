@@ -0,0 +1,173 @@
+//
+//
+// Copyright 2012-2012 Uwe Schäfer <uwe@codesmell.de>
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+
+
+package org.wicketeer.modelfactory;
+
+import org.wicketeer.modelfactory.internal.PropertyAccessor;
+
+/**
+ * A precompiled property path starting at objects of type R. MetaPaths are
+ * usually generated for beans annotated with {@link MetaModel} and can be
+ * passed to <code>model(root, path)</code> or <code>path(path)</code>. The
+ * property path string is computed once on construction and is identical to
+ * the one recorded by <code>path(from(...))</code>.
+ *
+ * @author uweschaefer
+ * @param <R>
+ *            type of the root object
+ * @param <T>
+ *            type of the property this path points to
+ */
+public class MetaPath<R, T> implements PropertyAccessor {
+    private static final long serialVersionUID = 1L;
+
+    private final Class<R> rootType;
+    private final MetaPath<R, ?> parent;
+    private final Class<T> type;
+    private final Getter<Object, T> getter;
+    private final Setter<Object, T> setter;
+    private final String propertyPath;
+
+    /**
+     * creates the (empty) path pointing to the root object itself.
+     *
+     * @param rootType
+     *            type of the root object
+     */
+    @SuppressWarnings("unchecked")
+    protected MetaPath(final Class<R> rootType) {
+        this.rootType = Preconditions.checkNotNull(rootType);
+        this.parent = null;
+        this.type = (Class<T>) rootType;
+        this.getter = null;
+        this.setter = null;
+        this.propertyPath = "";
+    }
+
+    /**
+     * creates a path to a property of the object the parent path points to.
+     *
+     * @param parent
+     *            path to the object declaring the property
+     * @param name
+     *            name of the property
+     * @param type
+     *            type of the property (primitive types for primitive
+     *            properties)
+     * @param getter
+     *            getter of the property
+     * @param setter
+     *            setter of the property, may be null
+     * @param <P>
+     *            type of the object declaring the property
+     */
+    @SuppressWarnings("unchecked")
+    public <P> MetaPath(final MetaPath<R, P> parent, final String name,
+            final Class<T> type, final Getter<P, T> getter,
+            final Setter<P, T> setter) {
+        this.rootType = parent.rootType;
+        this.parent = parent;
+        this.type = Preconditions.checkNotNull(type);
+        this.getter = (Getter<Object, T>) Preconditions.checkNotNull(getter);
+        this.setter = (Setter<Object, T>) setter;
+        this.propertyPath = parent.propertyPath.isEmpty() ? name
+                : parent.propertyPath + "." + name;
+    }
+
+    /**
+     * @param rootType
+     *            type of the root object
+     * @param <R>
+     *            type of the root object
+     * @return the (empty) path pointing to the root object itself
+     */
+    public static <R> MetaPath<R, R> root(final Class<R> rootType) {
+        return new MetaPath<R, R>(rootType);
+    }
+
+    /**
+     * @return the property path, like "address.street"
+     */
+    public final String getPropertyPath() {
+        return propertyPath;
+    }
+
+    /**
+     * @return the type of the property this path points to
+     */
+    public final Class<T> getObjectClass() {
+        return type;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public final boolean accepts(final Object root) {
+        return rootType.isInstance(root);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public final T get(final Object root) {
+        if (parent == null) {
+            return (T) root;
+        }
+        Object target = parent.get(root);
+        return target == null ? null : getter.get(target);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public final boolean set(final Object root, final Object value) {
+        if ((setter == null) || !accepts(root) || !isAssignable(value)) {
+            return false;
+        }
+        Object target = parent.get(root);
+        if (target == null) {
+            return false;
+        }
+        setter.set(target, (T) value);
+        return true;
+    }
+
+    private boolean isAssignable(final Object value) {
+        if (value == null) {
+            return !type.isPrimitive();
+        }
+        if (type.isPrimitive()) {
+            return java.lang.invoke.MethodType.methodType(type).wrap()
+                    .returnType().isInstance(value);
+        }
+        return type.isInstance(value);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+        return "MetaPath[" + rootType.getName() + ":" + propertyPath + "]";
+    }
+}
@@ -0,0 +1,156 @@
+//
+//
+// Copyright 2012-2012 Uwe Schäfer <uwe@codesmell.de>
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+
+
+package org.wicketeer.modelfactory;
+
+import java.lang.invoke.MethodHandleInfo;
+import java.lang.invoke.SerializedLambda;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.wicketeer.modelfactory.internal.AccessorChain;
+
+/**
+ * Resolves the methods referenced by {@link Getter}s. As the lambda class is
+ * specific to the call site, the resolved method is cached per lambda class.
+ *
+ * @author uweschaefer
+ */
+final class MethodReferences {
+
+    private static final ClassValue<ResolvedMethod> methods = new ClassValue<ResolvedMethod>() {
+        @Override
+        protected ResolvedMethod computeValue(final Class<?> lambdaClass) {
+            return new ResolvedMethod();
+        }
+    };
+
+    /**
+     * hide.
+     */
+    private MethodReferences() {
+    }
+
+    /**
+     * @param getters
+     *            method references to chain
+     * @return the chain of the referenced methods
+     * @throws NullPointerException
+     *             if any of the getters is null
+     * @throws IllegalArgumentException
+     *             if any of the getters is not a method reference to a no-arg
+     *             instance method
+     */
+    static AccessorChain chain(final Getter<?, ?>... getters)
+            throws NullPointerException, IllegalArgumentException {
+        List<Method> chain = new ArrayList<Method>(getters.length);
+        for (Getter<?, ?> getter : getters) {
+            chain.add(resolve(Preconditions.checkNotNull(getter)));
+        }
+        return AccessorChain.of(chain);
+    }
+
+    /**
+     * @param getter
+     *            the method reference to resolve
+     * @return the referenced method
+     * @throws IllegalArgumentException
+     *             if the getter is not a method reference to a no-arg instance
+     *             method
+     */
+    static Method resolve(final Getter<?, ?> getter)
+            throws IllegalArgumentException {
+        ResolvedMethod resolved = methods.get(getter.getClass());
+        Method method = resolved.method;
+        if (method == null) {
+            method = findMethod(getter);
+            resolved.method = method;
+        }
+        return method;
+    }
+
+    private static Method findMethod(final Getter<?, ?> getter) {
+        SerializedLambda lambda = serialize(getter);
+        int kind = lambda.getImplMethodKind();
+        if (((kind != MethodHandleInfo.REF_invokeVirtual)
+                && (kind != MethodHandleInfo.REF_invokeInterface))
+                || !lambda.getImplMethodSignature().startsWith("()")
+                || (lambda.getCapturedArgCount() > 0)) {
+            throw new IllegalArgumentException(
+                    "only method references to getters (like Person::getName) are supported, but got "
+                            + lambda.getImplClass() + "::"
+                            + lambda.getImplMethodName());
+        }
+
+        ClassLoader loader = getter.getClass().getClassLoader();
+        try {
+            Class<?> implClass = Class.forName(
+                    lambda.getImplClass().replace('/', '.'), false, loader);
+            return findNoArgMethod(implClass, lambda.getImplMethodName());
+        }
+        catch (ClassNotFoundException e) {
+            throw new IllegalArgumentException(
+                    "cannot load " + lambda.getImplClass(), e);
+        }
+    }
+
+    private static Method findNoArgMethod(final Class<?> type,
+            final String name) {
+        for (Class<?> c = type; c != null; c = c.getSuperclass()) {
+            try {
+                return c.getDeclaredMethod(name);
+            }
+            catch (NoSuchMethodException e) {
+                // try superclass
+            }
+        }
+        try {
+            return type.getMethod(name);
+        }
+        catch (NoSuchMethodException e) {
+            throw new IllegalArgumentException(
+                    "cannot find " + name + "() on " + type, e);
+        }
+    }
+
+    private static SerializedLambda serialize(final Getter<?, ?> getter) {
+        try {
+            Method writeReplace = getter.getClass()
+                    .getDeclaredMethod("writeReplace");
+            writeReplace.setAccessible(true);
+            Object replacement = writeReplace.invoke(getter);
+            if (replacement instanceof SerializedLambda) {
+                return (SerializedLambda) replacement;
+            }
+        }
+        catch (NoSuchMethodException e) {
+            // fall through
+        }
+        catch (ReflectiveOperationException e) {
+            throw new IllegalArgumentException(e);
+        }
+        throw new IllegalArgumentException(
+                "Getter must be a method reference, but got "
+                        + getter.getClass());
+    }
+
+    private static final class ResolvedMethod {
+        private volatile Method method;
+    }
+}
@@ -17,21 +17,15 @@
 
 package org.wicketeer.modelfactory;
 
-import java.io.Serializable;
-import java.lang.reflect.Method;
-import java.lang.reflect.Type;
-import java.lang.reflect.TypeVariable;
-import java.util.Arrays;
-import java.util.HashSet;
-import java.util.Set;
-
-import org.apache.wicket.WicketRuntimeException;
 import org.apache.wicket.model.IModel;
 import org.apache.wicket.model.IObjectClassAwareModel;
+import org.wicketeer.modelfactory.internal.AccessorChain;
 import org.wicketeer.modelfactory.internal.Argument;
 import org.wicketeer.modelfactory.internal.ArgumentsFactory;
-
-import com.googlecode.gentyref.GenericTypeReflector;
+import org.wicketeer.modelfactory.internal.Metrics;
+import org.wicketeer.modelfactory.internal.ModelFactoryContext;
+import org.wicketeer.modelfactory.internal.ModelFactoryMetrics.TypeDiscovery;
+import org.wicketeer.modelfactory.internal.ProxyPrewarmer;
 
 /**
  * Entry point for creating refactoring safe PropertyModels. Usage:<code>
@@ -41,8 +35,6 @@ import com.googlecode.gentyref.GenericTypeReflector;
  */
 public final class ModelFactory {
 
-    private static final RequestCycleLocalFrom localFrom = new RequestCycleLocalFrom();
-
     /**
      * hide constructor.
      */
@@ -66,9 +58,11 @@ public final class ModelFactory {
     public static <T> T from(final T value) throws NullPointerException {
         Preconditions.checkNotNull(value);
         Class<T> type = (Class<T>) value.getClass();
-        T proxy = fromClass(type);
-        ModelFactory.localFrom.remove();
-        ModelFactory.localFrom.set(value);
+        ModelFactoryContext context = ModelFactoryContext.get();
+        LocalFrom.set(context, LocalFrom.FROM_CLASS);
+        T proxy = ArgumentsFactory.createArgument(context, type);
+        LocalFrom.remove(context);
+        LocalFrom.set(context, value);
         return proxy;
     }
 
@@ -90,43 +84,19 @@ public final class ModelFactory {
 
         Preconditions.checkNotNull(model);
 
-        Class<? extends IModel> c = model.getClass();
-        Class<T> type = null;
-
-        Type typeParameter = GenericTypeReflector.getTypeParameter(c,
-                IModel.class.getTypeParameters()[0]);
-        if (typeParameter instanceof Class) {
-            type = (Class<T>) typeParameter;
-        }
-
-        if ((type == null) && IModel.class.isAssignableFrom(c)) {
-            try {
-                Set<Method> methods = getAllMethods(c);
-                for (Method meth : methods) {
-                    if ("getObject".equals(meth.getName())) {
-                        type = (Class<T>) meth.getReturnType();
-                        if ((type == Object.class)
-                                || (type == Serializable.class)) {
-                            type = null;
-                        }
-                        else {
-                            break;
-                        }
-                    }
-
-                }
-            }
-            catch (SecurityException e) {
-                throw new WicketRuntimeException(e);
-            }
-        }
+        ModelTypeCache.ModelType reflected = ModelTypeCache
+                .get(model.getClass());
+        Class<T> type = (Class<T>) reflected.getDeclaredType();
+        TypeDiscovery discovery = TypeDiscovery.DECLARED_TYPE;
 
         if ((type == null) && (model instanceof IObjectClassAwareModel)) {
             type = ((IObjectClassAwareModel) model).getObjectClass();
+            discovery = TypeDiscovery.OBJECT_CLASS_AWARE;
         }
 
-        if ((type == null) && c.isAnonymousClass()) {
-            type = (Class<T>) tryReflectFromAnonClass(c);
+        if (type == null) {
+            type = (Class<T>) reflected.getAnonymousClassType();
+            discovery = TypeDiscovery.ANONYMOUS_CLASS;
         }
 
         if (type == null) {
@@ -134,6 +104,7 @@ public final class ModelFactory {
             T modelObject = model.getObject();
             if (modelObject != null) {
                 type = (Class<T>) modelObject.getClass();
+                discovery = TypeDiscovery.MODEL_OBJECT;
             }
             else {
                 throw new IllegalArgumentException(
@@ -141,81 +112,109 @@ public final class ModelFactory {
             }
 
         }
+        if (Metrics.isEnabled()) {
+            Metrics.getMetrics().modelTypeDiscovered(discovery);
+        }
         return from(model, type);
     }
 
-    private static Set<Method> getAllMethods(final Class<?> type) {
-        Set<Method> result = new HashSet<Method>();
-        result.addAll(getMethods(type));
-        for (Class<?> t : getAllSuperTypes(type)) {
-            result.addAll(getMethods(t));
+    /**
+     * creates an actual PropertyModel from the path expressed by the given
+     * object.
+     *
+     * @param path
+     *            the object initially created by a from-call
+     * @param <T>
+     *            client-defined type
+     * @return the actual Model
+     */
+    public static <T> IModel<T> model(final T path) {
+        ModelFactoryContext context = ModelFactoryContext.get();
+        Object t = LocalFrom.get(context);
+        if (t == LocalFrom.FROM_CLASS) {
+            throw new IllegalStateException(
+                    "proxy has no staring point, please use path() to get a path expression or use from(IModel)");
         }
-        return result;
-    }
 
-    private static Set<Class<?>> getAllSuperTypes(final Class<?> type) {
-        Set<Class<?>> result = new HashSet<Class<?>>();
-        if ((type != null) && (!type.equals(Object.class))) {
-            result.add(type);
-            result.addAll(getAllSuperTypes(type.getSuperclass()));
-            for (Class<?> ifc : type.getInterfaces()) {
-                result.addAll(getAllSuperTypes(ifc));
-            }
-        }
-        return result;
+        Argument<T> arg = ArgumentsFactory.getArgumentFor(context, path);
+        Class<T> type = arg.getReturnType();
+        AccessorChain chain = arg.getAccessorChain();
+        String propertyPath = path(context, path);
+
+        return TypedPropertyModel.of(t, propertyPath, type, chain);
     }
 
-    private static Set<Method> getMethods(Class<?> t) {
-        Set<Method> result = new HashSet<Method>();
-        result.addAll(Arrays.asList(
-                t.isInterface() ? t.getMethods() : t.getDeclaredMethods()));
-        return result;
+    /**
+     * creates a model of an int property, that can be read and written
+     * without boxing.
+     *
+     * @param path
+     *            the int returned by a from-call chain
+     * @return the actual Model
+     * @throws IllegalArgumentException
+     *             if the path does not end with an int getter or contains
+     *             invocations with arguments
+     */
+    public static IIntModel intModel(final int path)
+            throws IllegalArgumentException {
+        return primitiveModel(model(path), IIntModel.class);
     }
 
     /**
-     * Gentryfer-magic to find the type of an non model impl. wondering if it is
-     * worth the dependency.
+     * creates a model of a long property, that can be read and written
+     * without boxing.
      *
-     * @param c
-     *            the anon class
-     * @return the type found or null
+     * @param path
+     *            the long returned by a from-call chain
+     * @return the actual Model
+     * @throws IllegalArgumentException
+     *             if the path does not end with a long getter or contains
+     *             invocations with arguments
      */
-    @SuppressWarnings({ "unchecked", "rawtypes" })
-    private static Class<?> tryReflectFromAnonClass(
-            final Class<? extends IModel> c) {
-        TypeVariable<?>[] params = c.getSuperclass().getTypeParameters();
-        if ((params != null) && (params.length == 1)) {
-            // we might try
-            Type typeParameter = GenericTypeReflector.getTypeParameter(c,
-                    (TypeVariable<? extends Class<?>>) params[0]);
-            if (typeParameter instanceof Class) {
-                return (Class<?>) typeParameter;
-            }
-        }
-        return null;
+    public static ILongModel longModel(final long path)
+            throws IllegalArgumentException {
+        return primitiveModel(model(path), ILongModel.class);
     }
 
     /**
-     * creates an actual PropertyModel from the path expressed by the given
-     * object.
+     * creates a model of a double property, that can be read and written
+     * without boxing.
      *
      * @param path
-     *            the object initially created by a from-call
-     * @param <T>
-     *            client-defined type
+     *            the double returned by a from-call chain
      * @return the actual Model
+     * @throws IllegalArgumentException
+     *             if the path does not end with a double getter or contains
+     *             invocations with arguments
      */
-    public static <T> IModel<T> model(final T path) {
-        Object t = ModelFactory.localFrom.get();
-        if (t == RequestCycleLocalFrom.FROM_CLASS) {
-            throw new IllegalStateException(
-                    "proxy has no staring point, please use path() to get a path expression or use from(IModel)");
-        }
+    public static IDoubleModel doubleModel(final double path)
+            throws IllegalArgumentException {
+        return primitiveModel(model(path), IDoubleModel.class);
+    }
 
-        Argument<T> arg = ArgumentsFactory.getArgumentFor(path);
-        Class<T> type = arg.getReturnType();
+    /**
+     * creates a model of a boolean property, that can be read and written
+     * without boxing.
+     *
+     * @param path
+     *            the boolean returned by a from-call chain
+     * @return the actual Model
+     * @throws IllegalArgumentException
+     *             if the path does not end with a boolean getter or contains
+     *             invocations with arguments
+     */
+    public static IBooleanModel booleanModel(final boolean path)
+            throws IllegalArgumentException {
+        return primitiveModel(model(path), IBooleanModel.class);
+    }
 
-        return new TypedPropertyModel<T>(t, path(path), type);
+    private static <M> M primitiveModel(final IModel<?> model,
+            final Class<M> modelType) throws IllegalArgumentException {
+        if (!modelType.isInstance(model)) {
+            throw new IllegalArgumentException("cannot create a "
+                    + modelType.getSimpleName() + " from " + model);
+        }
+        return modelType.cast(model);
     }
 
     /**
@@ -224,15 +223,78 @@ public final class ModelFactory {
      * @return a string denoting the property path expressed by the path object
      */
     public static String path(final Object path) {
+        return path(ModelFactoryContext.get(), path);
+    }
+
+    private static String path(final ModelFactoryContext context,
+            final Object path) {
+        return argument(context, path).getInkvokedPropertyName();
+    }
+
+    /**
+     * completes a recording like path(), but returns the recorded Argument,
+     * e.g. to evaluate it on many objects with
+     * {@link Argument#evaluateAll(java.util.List)} or a
+     * {@link org.wicketeer.modelfactory.internal.Projection}.
+     *
+     * @param path
+     *            the object initially created by a from-call
+     * @param <T>
+     *            client-defined type
+     * @return the Argument expressed by the path object
+     */
+    public static <T> Argument<T> argument(final T path) {
+        return argument(ModelFactoryContext.get(), path);
+    }
+
+    private static <T> Argument<T> argument(
+            final ModelFactoryContext context, final T path) {
         try {
-            Argument<?> a = ArgumentsFactory.getAndRemoveArgumentFor(path);
-            return a.getInkvokedPropertyName();
+            return ArgumentsFactory.getAndRemoveArgumentFor(context, path);
         }
         finally {
-            ModelFactory.localFrom.remove();
+            LocalFrom.remove(context);
         }
     }
 
+    /**
+     * completes a recording like path(), but returns a Comparator, that
+     * orders objects by the value of the recorded getter chain.
+     *
+     * @param path
+     *            the object initially created by a from-call
+     * @param <T>
+     *            the type of the objects to compare
+     * @return a comparator ordering by the recorded property, nulls first
+     * @throws IllegalArgumentException
+     *             if the recorded path contains invocations with arguments
+     */
+    public static <T> PathComparator<T> comparator(final Object path)
+            throws IllegalArgumentException {
+        Argument<?> a = argument(ModelFactoryContext.get(), path);
+        AccessorChain chain = a.getAccessorChain();
+        if (chain == null) {
+            throw new IllegalArgumentException(
+                    "cannot compare by a path with arguments: " + a);
+        }
+        return new PathComparator<T>(chain, a.getReturnType());
+    }
+
+    /**
+     * generates the recording proxies of the given classes and of all classes
+     * reachable from them by getters, so that the first requests after a
+     * deploy do not have to. Call it from your Application's init(), or use
+     * {@link ProxyPrewarmer#prewarm(java.util.concurrent.ForkJoinPool, Class...)}
+     * to spread the work across cores.
+     *
+     * @param classes
+     *            the root classes of your domain model
+     * @return how many classes were prepared and how long it took
+     */
+    public static ProxyPrewarmer.Report prewarm(final Class<?>... classes) {
+        return ProxyPrewarmer.prewarm(classes);
+    }
+
     /**
      * starts recording from a class. this will return a proxy of Type clazz,
      * that should be evaluated by path(x), rather than model(x). A common
@@ -247,9 +309,10 @@ public final class ModelFactory {
      * @return proxy of type clazz
      */
     public static <T> T fromClass(final Class<T> clazz) {
-        ModelFactory.localFrom.set(RequestCycleLocalFrom.FROM_CLASS);
-        return ArgumentsFactory
-                .createArgument(Preconditions.checkNotNull(clazz));
+        ModelFactoryContext context = ModelFactoryContext.get();
+        LocalFrom.set(context, LocalFrom.FROM_CLASS);
+        return ArgumentsFactory.createArgument(context,
+                Preconditions.checkNotNull(clazz));
     }
 
     /**
@@ -273,9 +336,10 @@ public final class ModelFactory {
         Preconditions.checkNotNull(model);
         Preconditions.checkNotNull(type);
 
-        ModelFactory.localFrom.set(Preconditions.checkNotNull(model));
-        return ArgumentsFactory
-                .createArgument(Preconditions.checkNotNull(type));
+        ModelFactoryContext context = ModelFactoryContext.get();
+        LocalFrom.set(context, Preconditions.checkNotNull(model));
+        return ArgumentsFactory.createArgument(context,
+                Preconditions.checkNotNull(type));
     }
 
     /**
@@ -287,6 +351,455 @@ public final class ModelFactory {
      *             been called, of model() has already been called
      */
     public static boolean hasRootReference() throws IllegalStateException {
-        return ModelFactory.localFrom.get() != RequestCycleLocalFrom.FROM_CLASS;
+        return LocalFrom.get(ModelFactoryContext.get()) != LocalFrom.FROM_CLASS;
+    }
+
+    /**
+     * creates a model from a chain of getter method references without
+     * proxying, equivalent to <code>model(from(root).getA()...)</code>.
+     *
+     * @param root
+     *            the object to start from
+     * @param a
+     *            first getter of the chain, like <code>Person::getAddress</code>
+     * @return a model for the property denoted by the getters
+     * @throws NullPointerException
+     *             if any of the arguments is null
+     * @throws IllegalArgumentException
+     *             if a getter is not a method reference to a no-arg method
+     */
+    public static <R, A> IModel<A> model(final R root,
+            final Getter<R, A> a)
+            throws NullPointerException, IllegalArgumentException {
+        return compiledModel(root, a);
+    }
+
+    /**
+     * creates a model from a chain of getter method references without
+     * proxying, equivalent to <code>model(from(root).getA()...)</code>.
+     *
+     * @param root
+     *            the model to start from
+     * @param a
+     *            first getter of the chain, like <code>Person::getAddress</code>
+     * @return a model for the property denoted by the getters
+     * @throws NullPointerException
+     *             if any of the arguments is null
+     * @throws IllegalArgumentException
+     *             if a getter is not a method reference to a no-arg method
+     */
+    public static <R, A> IModel<A> model(final IModel<R> root,
+            final Getter<R, A> a)
+            throws NullPointerException, IllegalArgumentException {
+        return compiledModel(root, a);
+    }
+
+    /**
+     * creates a model from a chain of getter method references without
+     * proxying, equivalent to <code>model(from(root).getA()...)</code>.
+     *
+     * @param root
+     *            the object to start from
+     * @param a
+     *            first getter of the chain, like <code>Person::getAddress</code>
+     * @param b
+     *            getter to apply to the result of the previous one
+     * @return a model for the property denoted by the getters
+     * @throws NullPointerException
+     *             if any of the arguments is null
+     * @throws IllegalArgumentException
+     *             if a getter is not a method reference to a no-arg method
+     */
+    public static <R, A, B> IModel<B> model(final R root,
+            final Getter<R, A> a,
+            final Getter<A, B> b)
+            throws NullPointerException, IllegalArgumentException {
+        return compiledModel(root, a, b);
+    }
+
+    /**
+     * creates a model from a chain of getter method references without
+     * proxying, equivalent to <code>model(from(root).getA()...)</code>.
+     *
+     * @param root
+     *            the model to start from
+     * @param a
+     *            first getter of the chain, like <code>Person::getAddress</code>
+     * @param b
+     *            getter to apply to the result of the previous one
+     * @return a model for the property denoted by the getters
+     * @throws NullPointerException
+     *             if any of the arguments is null
+     * @throws IllegalArgumentException
+     *             if a getter is not a method reference to a no-arg method
+     */
+    public static <R, A, B> IModel<B> model(final IModel<R> root,
+            final Getter<R, A> a,
+            final Getter<A, B> b)
+            throws NullPointerException, IllegalArgumentException {
+        return compiledModel(root, a, b);
+    }
+
+    /**
+     * creates a model from a chain of getter method references without
+     * proxying, equivalent to <code>model(from(root).getA()...)</code>.
+     *
+     * @param root
+     *            the object to start from
+     * @param a
+     *            first getter of the chain, like <code>Person::getAddress</code>
+     * @param b
+     *            getter to apply to the result of the previous one
+     * @param c
+     *            getter to apply to the result of the previous one
+     * @return a model for the property denoted by the getters
+     * @throws NullPointerException
+     *             if any of the arguments is null
+     * @throws IllegalArgumentException
+     *             if a getter is not a method reference to a no-arg method
+     */
+    public static <R, A, B, C> IModel<C> model(final R root,
+            final Getter<R, A> a,
+            final Getter<A, B> b,
+            final Getter<B, C> c)
+            throws NullPointerException, IllegalArgumentException {
+        return compiledModel(root, a, b, c);
+    }
+
+    /**
+     * creates a model from a chain of getter method references without
+     * proxying, equivalent to <code>model(from(root).getA()...)</code>.
+     *
+     * @param root
+     *            the model to start from
+     * @param a
+     *            first getter of the chain, like <code>Person::getAddress</code>
+     * @param b
+     *            getter to apply to the result of the previous one
+     * @param c
+     *            getter to apply to the result of the previous one
+     * @return a model for the property denoted by the getters
+     * @throws NullPointerException
+     *             if any of the arguments is null
+     * @throws IllegalArgumentException
+     *             if a getter is not a method reference to a no-arg method
+     */
+    public static <R, A, B, C> IModel<C> model(final IModel<R> root,
+            final Getter<R, A> a,
+            final Getter<A, B> b,
+            final Getter<B, C> c)
+            throws NullPointerException, IllegalArgumentException {
+        return compiledModel(root, a, b, c);
+    }
+
+    /**
+     * creates a model from a chain of getter method references without
+     * proxying, equivalent to <code>model(from(root).getA()...)</code>.
+     *
+     * @param root
+     *            the object to start from
+     * @param a
+     *            first getter of the chain, like <code>Person::getAddress</code>
+     * @param b
+     *            getter to apply to the result of the previous one
+     * @param c
+     *            getter to apply to the result of the previous one
+     * @param d
+     *            getter to apply to the result of the previous one
+     * @return a model for the property denoted by the getters
+     * @throws NullPointerException
+     *             if any of the arguments is null
+     * @throws IllegalArgumentException
+     *             if a getter is not a method reference to a no-arg method
+     */
+    public static <R, A, B, C, D> IModel<D> model(final R root,
+            final Getter<R, A> a,
+            final Getter<A, B> b,
+            final Getter<B, C> c,
+            final Getter<C, D> d)
+            throws NullPointerException, IllegalArgumentException {
+        return compiledModel(root, a, b, c, d);
+    }
+
+    /**
+     * creates a model from a chain of getter method references without
+     * proxying, equivalent to <code>model(from(root).getA()...)</code>.
+     *
+     * @param root
+     *            the model to start from
+     * @param a
+     *            first getter of the chain, like <code>Person::getAddress</code>
+     * @param b
+     *            getter to apply to the result of the previous one
+     * @param c
+     *            getter to apply to the result of the previous one
+     * @param d
+     *            getter to apply to the result of the previous one
+     * @return a model for the property denoted by the getters
+     * @throws NullPointerException
+     *             if any of the arguments is null
+     * @throws IllegalArgumentException
+     *             if a getter is not a method reference to a no-arg method
+     */
+    public static <R, A, B, C, D> IModel<D> model(final IModel<R> root,
+            final Getter<R, A> a,
+            final Getter<A, B> b,
+            final Getter<B, C> c,
+            final Getter<C, D> d)
+            throws NullPointerException, IllegalArgumentException {
+        return compiledModel(root, a, b, c, d);
+    }
+
+    /**
+     * creates a model from a chain of getter method references without
+     * proxying, equivalent to <code>model(from(root).getA()...)</code>.
+     *
+     * @param root
+     *            the object to start from
+     * @param a
+     *            first getter of the chain, like <code>Person::getAddress</code>
+     * @param b
+     *            getter to apply to the result of the previous one
+     * @param c
+     *            getter to apply to the result of the previous one
+     * @param d
+     *            getter to apply to the result of the previous one
+     * @param e
+     *            getter to apply to the result of the previous one
+     * @return a model for the property denoted by the getters
+     * @throws NullPointerException
+     *             if any of the arguments is null
+     * @throws IllegalArgumentException
+     *             if a getter is not a method reference to a no-arg method
+     */
+    public static <R, A, B, C, D, E> IModel<E> model(final R root,
+            final Getter<R, A> a,
+            final Getter<A, B> b,
+            final Getter<B, C> c,
+            final Getter<C, D> d,
+            final Getter<D, E> e)
+            throws NullPointerException, IllegalArgumentException {
+        return compiledModel(root, a, b, c, d, e);
+    }
+
+    /**
+     * creates a model from a chain of getter method references without
+     * proxying, equivalent to <code>model(from(root).getA()...)</code>.
+     *
+     * @param root
+     *            the model to start from
+     * @param a
+     *            first getter of the chain, like <code>Person::getAddress</code>
+     * @param b
+     *            getter to apply to the result of the previous one
+     * @param c
+     *            getter to apply to the result of the previous one
+     * @param d
+     *            getter to apply to the result of the previous one
+     * @param e
+     *            getter to apply to the result of the previous one
+     * @return a model for the property denoted by the getters
+     * @throws NullPointerException
+     *             if any of the arguments is null
+     * @throws IllegalArgumentException
+     *             if a getter is not a method reference to a no-arg method
+     */
+    public static <R, A, B, C, D, E> IModel<E> model(final IModel<R> root,
+            final Getter<R, A> a,
+            final Getter<A, B> b,
+            final Getter<B, C> c,
+            final Getter<C, D> d,
+            final Getter<D, E> e)
+            throws NullPointerException, IllegalArgumentException {
+        return compiledModel(root, a, b, c, d, e);
+    }
+
+    /**
+     * creates a property path from a chain of getter method references
+     * without proxying, equivalent to <code>path(fromClass(R).getA()...)</code>.
+     *
+     * @param a
+     *            first getter of the chain, like <code>Person::getAddress</code>
+     * @return a string denoting the property path
+     * @throws NullPointerException
+     *             if any of the arguments is null
+     * @throws IllegalArgumentException
+     *             if a getter is not a method reference to a no-arg method
+     */
+    public static <R, A> String path(final Getter<R, A> a)
+            throws NullPointerException, IllegalArgumentException {
+        return MethodReferences.chain(a).getPropertyPath();
+    }
+
+    /**
+     * creates a property path from a chain of getter method references
+     * without proxying, equivalent to <code>path(fromClass(R).getA()...)</code>.
+     *
+     * @param a
+     *            first getter of the chain, like <code>Person::getAddress</code>
+     * @param b
+     *            getter to apply to the result of the previous one
+     * @return a string denoting the property path
+     * @throws NullPointerException
+     *             if any of the arguments is null
+     * @throws IllegalArgumentException
+     *             if a getter is not a method reference to a no-arg method
+     */
+    public static <R, A, B> String path(final Getter<R, A> a,
+            final Getter<A, B> b)
+            throws NullPointerException, IllegalArgumentException {
+        return MethodReferences.chain(a, b).getPropertyPath();
+    }
+
+    /**
+     * creates a property path from a chain of getter method references
+     * without proxying, equivalent to <code>path(fromClass(R).getA()...)</code>.
+     *
+     * @param a
+     *            first getter of the chain, like <code>Person::getAddress</code>
+     * @param b
+     *            getter to apply to the result of the previous one
+     * @param c
+     *            getter to apply to the result of the previous one
+     * @return a string denoting the property path
+     * @throws NullPointerException
+     *             if any of the arguments is null
+     * @throws IllegalArgumentException
+     *             if a getter is not a method reference to a no-arg method
+     */
+    public static <R, A, B, C> String path(final Getter<R, A> a,
+            final Getter<A, B> b,
+            final Getter<B, C> c)
+            throws NullPointerException, IllegalArgumentException {
+        return MethodReferences.chain(a, b, c).getPropertyPath();
+    }
+
+    /**
+     * creates a property path from a chain of getter method references
+     * without proxying, equivalent to <code>path(fromClass(R).getA()...)</code>.
+     *
+     * @param a
+     *            first getter of the chain, like <code>Person::getAddress</code>
+     * @param b
+     *            getter to apply to the result of the previous one
+     * @param c
+     *            getter to apply to the result of the previous one
+     * @param d
+     *            getter to apply to the result of the previous one
+     * @return a string denoting the property path
+     * @throws NullPointerException
+     *             if any of the arguments is null
+     * @throws IllegalArgumentException
+     *             if a getter is not a method reference to a no-arg method
+     */
+    public static <R, A, B, C, D> String path(final Getter<R, A> a,
+            final Getter<A, B> b,
+            final Getter<B, C> c,
+            final Getter<C, D> d)
+            throws NullPointerException, IllegalArgumentException {
+        return MethodReferences.chain(a, b, c, d).getPropertyPath();
+    }
+
+    /**
+     * creates a property path from a chain of getter method references
+     * without proxying, equivalent to <code>path(fromClass(R).getA()...)</code>.
+     *
+     * @param a
+     *            first getter of the chain, like <code>Person::getAddress</code>
+     * @param b
+     *            getter to apply to the result of the previous one
+     * @param c
+     *            getter to apply to the result of the previous one
+     * @param d
+     *            getter to apply to the result of the previous one
+     * @param e
+     *            getter to apply to the result of the previous one
+     * @return a string denoting the property path
+     * @throws NullPointerException
+     *             if any of the arguments is null
+     * @throws IllegalArgumentException
+     *             if a getter is not a method reference to a no-arg method
+     */
+    public static <R, A, B, C, D, E> String path(final Getter<R, A> a,
+            final Getter<A, B> b,
+            final Getter<B, C> c,
+            final Getter<C, D> d,
+            final Getter<D, E> e)
+            throws NullPointerException, IllegalArgumentException {
+        return MethodReferences.chain(a, b, c, d, e).getPropertyPath();
+    }
+
+    /**
+     * creates a model from a precompiled path, usually generated for beans
+     * annotated with {@link MetaModel}, like
+     * <code>model(person, Person_.address().street())</code>.
+     *
+     * @param root
+     *            the object to start from
+     * @param path
+     *            the path to the property
+     * @param <R>
+     *            type of the root object
+     * @param <T>
+     *            type of the property
+     * @return a model for the property denoted by the path
+     * @throws NullPointerException
+     *             if any of the arguments is null
+     */
+    public static <R, T> IModel<T> model(final R root,
+            final MetaPath<R, T> path) throws NullPointerException {
+        return metaModel(root, path);
+    }
+
+    /**
+     * creates a model from a precompiled path, usually generated for beans
+     * annotated with {@link MetaModel}, like
+     * <code>model(personModel, Person_.address().street())</code>.
+     *
+     * @param root
+     *            the model to start from
+     * @param path
+     *            the path to the property
+     * @param <R>
+     *            type of the root object
+     * @param <T>
+     *            type of the property
+     * @return a model for the property denoted by the path
+     * @throws NullPointerException
+     *             if any of the arguments is null
+     */
+    public static <R, T> IModel<T> model(final IModel<R> root,
+            final MetaPath<R, T> path) throws NullPointerException {
+        return metaModel(root, path);
+    }
+
+    /**
+     * @param path
+     *            a precompiled path, usually generated for beans annotated
+     *            with {@link MetaModel}
+     * @return a string denoting the property path
+     * @throws NullPointerException
+     *             if the path is null
+     */
+    public static String path(final MetaPath<?, ?> path)
+            throws NullPointerException {
+        return Preconditions.checkNotNull(path).getPropertyPath();
+    }
+
+    private static <T> IModel<T> metaModel(final Object root,
+            final MetaPath<?, T> path) {
+        Preconditions.checkNotNull(root);
+        Preconditions.checkNotNull(path);
+        return TypedPropertyModel.of(root, path.getPropertyPath(),
+                path.getObjectClass(), path);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> IModel<T> compiledModel(final Object root,
+            final Getter<?, ?>... getters) {
+        Preconditions.checkNotNull(root);
+        AccessorChain chain = MethodReferences.chain(getters);
+        return TypedPropertyModel.of(root, chain.getPropertyPath(),
+                (Class<T>) chain.getReturnType(), chain);
     }
 }
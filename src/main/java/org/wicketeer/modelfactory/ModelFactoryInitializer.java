@@ -0,0 +1,80 @@
+//
+//
+// Copyright 2012-2012 Uwe Schäfer <uwe@codesmell.de>
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+package org.wicketeer.modelfactory;
+
+import org.apache.wicket.Application;
+import org.apache.wicket.IInitializer;
+import org.wicketeer.modelfactory.internal.ArgumentsFactory;
+import org.wicketeer.modelfactory.internal.Metrics;
+import org.wicketeer.modelfactory.internal.ProxyClassCache;
+import org.wicketeer.modelfactory.internal.ProxyUtil;
+import org.wicketeer.modelfactory.internal.RecordingCache;
+
+/**
+ * Registered by META-INF/services (Wicket 7.1 and later) and by
+ * wicket.properties (Wicket 6), so that Wicket calls it for every Application.
+ * Wicket 7 reads both and then calls it twice, which is harmless.
+ * <p>
+ * When an Application is destroyed, e.g. on undeploy, everything
+ * wicket-modelfactory holds for classes of the Application's class loader is
+ * dropped, so that the loader can be collected even if wicket-modelfactory
+ * itself lives in a shared class loader of the container.
+ *
+ * @author uweschaefer
+ */
+public class ModelFactoryInitializer implements IInitializer {
+
+    @Override
+    public void init(final Application application) {
+        // nothing to do
+    }
+
+    @Override
+    public void destroy(final Application application) {
+        purge(application.getClass().getClassLoader());
+    }
+
+    /**
+     * drops cached proxy classes and recordings of the given class loader and
+     * all placeholders kept for reuse, as well as the proxy engine and the
+     * metrics, if they were defined by it.
+     *
+     * @param loader
+     *            the class loader of an undeployed application
+     */
+    public static void purge(final ClassLoader loader) {
+        if (loader == null) {
+            return;
+        }
+        ProxyClassCache.purge(loader);
+        RecordingCache.purge(loader);
+        ArgumentsFactory.releasePlaceholders();
+        if (ProxyClassCache.isDefinedBy(ProxyUtil.getEngine().getClass(),
+                loader)) {
+            ProxyUtil.setEngine(null);
+        }
+        if (ProxyClassCache.isDefinedBy(Metrics.getMetrics().getClass(),
+                loader)) {
+            Metrics.setMetrics(null);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "wicket-modelfactory";
+    }
+}
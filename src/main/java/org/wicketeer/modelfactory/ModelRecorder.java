@@ -0,0 +1,259 @@
+//
+//
+// Copyright 2012-2012 Uwe Schäfer <uwe@codesmell.de>
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+
+
+package org.wicketeer.modelfactory;
+
+import org.apache.wicket.model.IModel;
+import org.wicketeer.modelfactory.internal.Argument;
+import org.wicketeer.modelfactory.internal.ModelFactoryContext;
+
+/**
+ * Records paths and models in a context of its own, so that it needs neither
+ * a RequestCycle nor a particular {@link
+ * org.wicketeer.modelfactory.internal.ContextStrategy}. Use it in background
+ * jobs or to compute paths once at <code>Application.init()</code>:
+ * <code>
+ * ModelRecorder r = new ModelRecorder();
+ * String street = r.path(r.fromClass(Person.class).getAddress().getStreet());
+ * </code> The recorder's context is bound to the current thread only for the
+ * duration of each call, so a failing or abandoned recording leaves nothing
+ * behind on the thread. A recording must still be completed by model() or
+ * path() on the thread it was started on. A ModelRecorder is not thread-safe;
+ * use one per thread.
+ *
+ * @author uweschaefer
+ */
+public class ModelRecorder {
+
+    private final ModelFactoryContext context = new ModelFactoryContext(true);
+
+    /**
+     * @see ModelFactory#from(Object)
+     * @param value
+     *            the object to be proxied
+     * @param <T>
+     *            the type of the parameter
+     * @return a proxy of the value-object
+     * @throws NullPointerException
+     *             if the given object is null
+     */
+    public <T> T from(final T value) throws NullPointerException {
+        ModelFactoryContext previous = ModelFactoryContext.bind(context);
+        try {
+            return ModelFactory.from(value);
+        }
+        finally {
+            ModelFactoryContext.bind(previous);
+        }
+    }
+
+    /**
+     * @see ModelFactory#from(IModel)
+     * @param model
+     *            the model from which to create a proxy
+     * @param <T>
+     *            type of the model parameter
+     * @return a proxy of an object of Type T
+     * @throws NullPointerException
+     *             if the model is null
+     */
+    public <T> T from(final IModel<T> model) throws NullPointerException {
+        ModelFactoryContext previous = ModelFactoryContext.bind(context);
+        try {
+            return ModelFactory.from(model);
+        }
+        finally {
+            ModelFactoryContext.bind(previous);
+        }
+    }
+
+    /**
+     * @see ModelFactory#from(IModel, Class)
+     * @param model
+     *            the model from which to create a proxy
+     * @param type
+     *            the type of the object backed by the model
+     * @param <T>
+     *            type of the model parameter
+     * @return proxy for property path generation
+     * @throws NullPointerException
+     *             if the model or the type is null
+     */
+    public <T> T from(final IModel<? extends T> model, final Class<T> type)
+            throws NullPointerException {
+        ModelFactoryContext previous = ModelFactoryContext.bind(context);
+        try {
+            return ModelFactory.from(model, type);
+        }
+        finally {
+            ModelFactoryContext.bind(previous);
+        }
+    }
+
+    /**
+     * @see ModelFactory#fromClass(Class)
+     * @param clazz
+     *            the type of the proxy to create
+     * @param <T>
+     *            client-defined type
+     * @return proxy of type clazz
+     */
+    public <T> T fromClass(final Class<T> clazz) {
+        ModelFactoryContext previous = ModelFactoryContext.bind(context);
+        try {
+            return ModelFactory.fromClass(clazz);
+        }
+        finally {
+            ModelFactoryContext.bind(previous);
+        }
+    }
+
+    /**
+     * @see ModelFactory#model(Object)
+     * @param path
+     *            the object initially created by a from-call
+     * @param <T>
+     *            client-defined type
+     * @return the actual Model
+     */
+    public <T> IModel<T> model(final T path) {
+        ModelFactoryContext previous = ModelFactoryContext.bind(context);
+        try {
+            return ModelFactory.model(path);
+        }
+        finally {
+            ModelFactoryContext.bind(previous);
+        }
+    }
+
+    /**
+     * @see ModelFactory#intModel(int)
+     * @param path
+     *            the int returned by a from-call chain
+     * @return the actual Model
+     */
+    public IIntModel intModel(final int path) {
+        ModelFactoryContext previous = ModelFactoryContext.bind(context);
+        try {
+            return ModelFactory.intModel(path);
+        }
+        finally {
+            ModelFactoryContext.bind(previous);
+        }
+    }
+
+    /**
+     * @see ModelFactory#longModel(long)
+     * @param path
+     *            the long returned by a from-call chain
+     * @return the actual Model
+     */
+    public ILongModel longModel(final long path) {
+        ModelFactoryContext previous = ModelFactoryContext.bind(context);
+        try {
+            return ModelFactory.longModel(path);
+        }
+        finally {
+            ModelFactoryContext.bind(previous);
+        }
+    }
+
+    /**
+     * @see ModelFactory#doubleModel(double)
+     * @param path
+     *            the double returned by a from-call chain
+     * @return the actual Model
+     */
+    public IDoubleModel doubleModel(final double path) {
+        ModelFactoryContext previous = ModelFactoryContext.bind(context);
+        try {
+            return ModelFactory.doubleModel(path);
+        }
+        finally {
+            ModelFactoryContext.bind(previous);
+        }
+    }
+
+    /**
+     * @see ModelFactory#booleanModel(boolean)
+     * @param path
+     *            the boolean returned by a from-call chain
+     * @return the actual Model
+     */
+    public IBooleanModel booleanModel(final boolean path) {
+        ModelFactoryContext previous = ModelFactoryContext.bind(context);
+        try {
+            return ModelFactory.booleanModel(path);
+        }
+        finally {
+            ModelFactoryContext.bind(previous);
+        }
+    }
+
+    /**
+     * @see ModelFactory#path(Object)
+     * @param path
+     *            the object initially created by a from-call
+     * @return a string denoting the property path expressed by the path object
+     */
+    public String path(final Object path) {
+        ModelFactoryContext previous = ModelFactoryContext.bind(context);
+        try {
+            return ModelFactory.path(path);
+        }
+        finally {
+            ModelFactoryContext.bind(previous);
+        }
+    }
+
+    /**
+     * @see ModelFactory#argument(Object)
+     * @param path
+     *            the object initially created by a from-call
+     * @param <T>
+     *            client-defined type
+     * @return the Argument expressed by the path object
+     */
+    public <T> Argument<T> argument(final T path) {
+        ModelFactoryContext previous = ModelFactoryContext.bind(context);
+        try {
+            return ModelFactory.argument(path);
+        }
+        finally {
+            ModelFactoryContext.bind(previous);
+        }
+    }
+
+    /**
+     * @see ModelFactory#comparator(Object)
+     * @param path
+     *            the object initially created by a from-call
+     * @param <T>
+     *            the type of the objects to compare
+     * @return a comparator ordering by the recorded property, nulls first
+     */
+    public <T> PathComparator<T> comparator(final Object path) {
+        ModelFactoryContext previous = ModelFactoryContext.bind(context);
+        try {
+            return ModelFactory.comparator(path);
+        }
+        finally {
+            ModelFactoryContext.bind(previous);
+        }
+    }
+}
@@ -0,0 +1,204 @@
+//
+//
+// Copyright 2012-2012 Uwe Schäfer <uwe@codesmell.de>
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+
+
+package org.wicketeer.modelfactory;
+
+import java.io.Serializable;
+import java.lang.reflect.Method;
+import java.lang.reflect.Type;
+import java.lang.reflect.TypeVariable;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.wicket.WicketRuntimeException;
+import org.apache.wicket.model.IModel;
+
+import com.googlecode.gentyref.GenericTypeReflector;
+
+/**
+ * Caches the model object type that can be reflected from an IModel class, so
+ * that <code>from(IModel)</code> does not need to walk the type hierarchy
+ * again for every model instance. Negative results are cached as well, in
+ * which case from(IModel) falls back to the model instance. Entries are
+ * attached to the model class itself, so they do not prevent unloading of
+ * classes.
+ *
+ * @author uweschaefer
+ */
+public final class ModelTypeCache {
+
+    /**
+     * striped, so that concurrent from(IModel) calls do not contend on them.
+     */
+    private static final LongAdder lookups = new LongAdder();
+    private static final LongAdder misses = new LongAdder();
+
+    private static final ClassValue<ModelType> types = new ClassValue<ModelType>() {
+        @Override
+        protected ModelType computeValue(final Class<?> modelClass) {
+            misses.increment();
+            return new ModelType(reflectType(modelClass),
+                    modelClass.isAnonymousClass()
+                            ? tryReflectFromAnonClass(modelClass) : null);
+        }
+    };
+
+    /**
+     * hide.
+     */
+    private ModelTypeCache() {
+    }
+
+    /**
+     * @return number of lookups, that were answered from the cache
+     */
+    public static long getHitCount() {
+        return lookups.sum() - misses.sum();
+    }
+
+    /**
+     * @return number of lookups, that needed reflection on the model class
+     */
+    public static long getMissCount() {
+        return misses.sum();
+    }
+
+    /**
+     * @param modelClass
+     *            class of the model
+     * @return the (cached) result of type reflection on the given model class
+     */
+    static ModelType get(final Class<?> modelClass) {
+        lookups.increment();
+        return types.get(modelClass);
+    }
+
+    /**
+     * types found by reflection on a model class. Any of them can be null.
+     */
+    static final class ModelType {
+        private final Class<?> declaredType;
+        private final Class<?> anonymousClassType;
+
+        private ModelType(final Class<?> declaredType,
+                final Class<?> anonymousClassType) {
+            this.declaredType = declaredType;
+            this.anonymousClassType = anonymousClassType;
+        }
+
+        /**
+         * @return the type reflected from the IModel type parameter or from
+         *         the return type of getObject()
+         */
+        Class<?> getDeclaredType() {
+            return declaredType;
+        }
+
+        /**
+         * @return the type reflected from the type parameter of an anonymous
+         *         class' superclass
+         */
+        Class<?> getAnonymousClassType() {
+            return anonymousClassType;
+        }
+    }
+
+    private static Class<?> reflectType(final Class<?> c) {
+        Type typeParameter = GenericTypeReflector.getTypeParameter(c,
+                IModel.class.getTypeParameters()[0]);
+        if (typeParameter instanceof Class) {
+            return (Class<?>) typeParameter;
+        }
+
+        Class<?> type = null;
+        if (IModel.class.isAssignableFrom(c)) {
+            try {
+                Set<Method> methods = getAllMethods(c);
+                for (Method meth : methods) {
+                    if ("getObject".equals(meth.getName())) {
+                        type = meth.getReturnType();
+                        if ((type == Object.class)
+                                || (type == Serializable.class)) {
+                            type = null;
+                        }
+                        else {
+                            break;
+                        }
+                    }
+
+                }
+            }
+            catch (SecurityException e) {
+                throw new WicketRuntimeException(e);
+            }
+        }
+        return type;
+    }
+
+    private static Set<Method> getAllMethods(final Class<?> type) {
+        Set<Method> result = new HashSet<Method>();
+        result.addAll(getMethods(type));
+        for (Class<?> t : getAllSuperTypes(type)) {
+            result.addAll(getMethods(t));
+        }
+        return result;
+    }
+
+    private static Set<Class<?>> getAllSuperTypes(final Class<?> type) {
+        Set<Class<?>> result = new HashSet<Class<?>>();
+        if ((type != null) && (!type.equals(Object.class))) {
+            result.add(type);
+            result.addAll(getAllSuperTypes(type.getSuperclass()));
+            for (Class<?> ifc : type.getInterfaces()) {
+                result.addAll(getAllSuperTypes(ifc));
+            }
+        }
+        return result;
+    }
+
+    private static Set<Method> getMethods(final Class<?> t) {
+        Set<Method> result = new HashSet<Method>();
+        result.addAll(Arrays.asList(
+                t.isInterface() ? t.getMethods() : t.getDeclaredMethods()));
+        return result;
+    }
+
+    /**
+     * Gentryfer-magic to find the type of an non model impl. wondering if it is
+     * worth the dependency.
+     *
+     * @param c
+     *            the anon class
+     * @return the type found or null
+     */
+    @SuppressWarnings("unchecked")
+    private static Class<?> tryReflectFromAnonClass(final Class<?> c) {
+        TypeVariable<?>[] params = c.getSuperclass().getTypeParameters();
+        if ((params != null) && (params.length == 1)) {
+            // we might try
+            Type typeParameter = GenericTypeReflector.getTypeParameter(c,
+                    (TypeVariable<? extends Class<?>>) params[0]);
+            if (typeParameter instanceof Class) {
+                return (Class<?>) typeParameter;
+            }
+        }
+        return null;
+    }
+}
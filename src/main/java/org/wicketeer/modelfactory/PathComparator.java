@@ -0,0 +1,282 @@
+//
+//
+// Copyright 2012-2012 Uwe Schäfer <uwe@codesmell.de>
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+
+package org.wicketeer.modelfactory;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.ListIterator;
+
+import org.wicketeer.modelfactory.internal.PropertyAccessor;
+
+/**
+ * Compares objects by the value of a recorded getter chain, e.g.
+ * <code>comparator(fromClass(Person.class).getAddress().getZip())</code>.
+ * Values are read through the compiled accessors instead of resolving a
+ * property path on every comparison. Objects, for which anything on the way
+ * to the value is null, compare by a null key. Keys must be primitives or
+ * Comparable.
+ * <p>
+ * {@link #sort(List)} reads the key of every element only once and sorts
+ * int, long and double keys without boxing, which makes it considerably
+ * cheaper than {@link java.util.Collections#sort(List, Comparator)} for large
+ * lists. Both sorts are stable.
+ *
+ * @author uweschaefer
+ * @param <T>
+ *            the type of the compared objects
+ */
+public final class PathComparator<T> implements Comparator<T>, Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private enum KeyType {
+        INT, LONG, DOUBLE, COMPARABLE
+    }
+
+    private final PropertyAccessor accessor;
+    private final KeyType keyType;
+    private final boolean nullsFirst;
+    private final boolean descending;
+
+    PathComparator(final PropertyAccessor accessor, final Class<?> valueType) {
+        this(accessor, keyType(valueType), true, false);
+    }
+
+    private PathComparator(final PropertyAccessor accessor,
+            final KeyType keyType, final boolean nullsFirst,
+            final boolean descending) {
+        this.accessor = Preconditions.checkNotNull(accessor);
+        this.keyType = keyType;
+        this.nullsFirst = nullsFirst;
+        this.descending = descending;
+    }
+
+    private static KeyType keyType(final Class<?> valueType) {
+        if ((valueType == int.class) || (valueType == short.class)
+                || (valueType == byte.class) || (valueType == char.class)) {
+            return KeyType.INT;
+        }
+        if (valueType == long.class) {
+            return KeyType.LONG;
+        }
+        if ((valueType == double.class) || (valueType == float.class)) {
+            return KeyType.DOUBLE;
+        }
+        return KeyType.COMPARABLE;
+    }
+
+    /**
+     * @return a comparator like this one, that orders null keys before all
+     *         others. This is the default.
+     */
+    public PathComparator<T> nullsFirst() {
+        return new PathComparator<T>(accessor, keyType, true, descending);
+    }
+
+    /**
+     * @return a comparator like this one, that orders null keys after all
+     *         others
+     */
+    public PathComparator<T> nullsLast() {
+        return new PathComparator<T>(accessor, keyType, false, descending);
+    }
+
+    /**
+     * @return a comparator with the reverse order of keys. Null keys stay
+     *         where {@link #nullsFirst()} or {@link #nullsLast()} put them.
+     */
+    @Override
+    public PathComparator<T> reversed() {
+        return new PathComparator<T>(accessor, keyType, nullsFirst,
+                !descending);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int compare(final T o1, final T o2) {
+        Object k1 = key(o1);
+        Object k2 = key(o2);
+        if ((k1 == null) || (k2 == null)) {
+            return compareNulls(k1 == null, k2 == null);
+        }
+        int c;
+        switch (keyType) {
+        case INT:
+            c = Integer.compare(intValue(k1), intValue(k2));
+            break;
+        case LONG:
+            c = Long.compare(((Long) k1).longValue(), ((Long) k2).longValue());
+            break;
+        case DOUBLE:
+            c = Double.compare(((Number) k1).doubleValue(),
+                    ((Number) k2).doubleValue());
+            break;
+        default:
+            c = compareComparables(k1, k2);
+        }
+        return descending ? -c : c;
+    }
+
+    /**
+     * Sorts the list in place, reading every element's key only once.
+     *
+     * @param list
+     *            the list to sort, must support set() on its ListIterator
+     */
+    public void sort(final List<T> list) {
+        Entry[] entries = new Entry[list.size()];
+        int i = 0;
+        for (T element : list) {
+            entries[i++] = decorate(element);
+        }
+        Arrays.sort(entries, new Comparator<Entry>() {
+            @Override
+            public int compare(final Entry e1, final Entry e2) {
+                if (e1.isNull || e2.isNull) {
+                    return compareNulls(e1.isNull, e2.isNull);
+                }
+                int c = e1.compareKey(e2);
+                return descending ? -c : c;
+            }
+        });
+        ListIterator<T> it = list.listIterator();
+        for (Entry entry : entries) {
+            it.next();
+            it.set(entry.<T> element());
+        }
+    }
+
+    private Entry decorate(final T element) {
+        Object key = key(element);
+        switch (keyType) {
+        case INT:
+            return new IntEntry(element, key == null ? 0 : intValue(key),
+                    key == null);
+        case LONG:
+            return new LongEntry(element,
+                    key == null ? 0L : ((Long) key).longValue(), key == null);
+        case DOUBLE:
+            return new DoubleEntry(element,
+                    key == null ? 0d : ((Number) key).doubleValue(),
+                    key == null);
+        default:
+            return new ComparableEntry(element, key);
+        }
+    }
+
+    private Object key(final T element) {
+        return element == null ? null : accessor.get(element);
+    }
+
+    private int compareNulls(final boolean null1, final boolean null2) {
+        if (null1 == null2) {
+            return 0;
+        }
+        return null1 == nullsFirst ? -1 : 1;
+    }
+
+    private static int intValue(final Object key) {
+        return key instanceof Character ? ((Character) key).charValue()
+                : ((Number) key).intValue();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static int compareComparables(final Object k1, final Object k2) {
+        return ((Comparable<Object>) k1).compareTo(k2);
+    }
+
+    private abstract static class Entry {
+        private final Object element;
+        final boolean isNull;
+
+        Entry(final Object element, final boolean isNull) {
+            this.element = element;
+            this.isNull = isNull;
+        }
+
+        @SuppressWarnings("unchecked")
+        <T> T element() {
+            return (T) element;
+        }
+
+        /**
+         * @return the comparison of the keys, which are both not null
+         */
+        abstract int compareKey(Entry other);
+    }
+
+    private static final class IntEntry extends Entry {
+        private final int key;
+
+        IntEntry(final Object element, final int key, final boolean isNull) {
+            super(element, isNull);
+            this.key = key;
+        }
+
+        @Override
+        int compareKey(final Entry other) {
+            return Integer.compare(key, ((IntEntry) other).key);
+        }
+    }
+
+    private static final class LongEntry extends Entry {
+        private final long key;
+
+        LongEntry(final Object element, final long key, final boolean isNull) {
+            super(element, isNull);
+            this.key = key;
+        }
+
+        @Override
+        int compareKey(final Entry other) {
+            return Long.compare(key, ((LongEntry) other).key);
+        }
+    }
+
+    private static final class DoubleEntry extends Entry {
+        private final double key;
+
+        DoubleEntry(final Object element, final double key,
+                final boolean isNull) {
+            super(element, isNull);
+            this.key = key;
+        }
+
+        @Override
+        int compareKey(final Entry other) {
+            return Double.compare(key, ((DoubleEntry) other).key);
+        }
+    }
+
+    private static final class ComparableEntry extends Entry {
+        private final Object key;
+
+        ComparableEntry(final Object element, final Object key) {
+            super(element, key == null);
+            this.key = key;
+        }
+
+        @Override
+        int compareKey(final Entry other) {
+            return compareComparables(key, ((ComparableEntry) other).key);
+        }
+    }
+}
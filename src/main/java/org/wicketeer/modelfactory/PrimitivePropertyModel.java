@@ -0,0 +1,295 @@
+//
+//
+// Copyright 2012-2012 Uwe Schäfer <uwe@codesmell.de>
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+
+package org.wicketeer.modelfactory;
+
+import java.lang.invoke.MethodHandle;
+
+import org.wicketeer.modelfactory.internal.AccessorChain;
+
+/**
+ * CompiledPropertyModel of a primitive property, that additionally reads and
+ * writes the value without boxing by invoking exactly typed MethodHandles on
+ * the object holding the property. Everything the chain cannot handle itself
+ * falls back to getObject() and setObject().
+ *
+ * @author uweschaefer
+ * @param <S>
+ *            the wrapper type of the property
+ */
+abstract class PrimitivePropertyModel<S> extends CompiledPropertyModel<S> {
+    private static final long serialVersionUID = 1L;
+
+    private final AccessorChain chain;
+
+    PrimitivePropertyModel(final Object t, final String path,
+            final Class<S> type, final AccessorChain chain)
+            throws NullPointerException {
+        super(t, path, type, chain);
+        this.chain = chain;
+    }
+
+    /**
+     * @return a primitive model for int, long, double and boolean properties,
+     *         null for any other type
+     */
+    @SuppressWarnings("unchecked")
+    static <S> CompiledPropertyModel<S> of(final Object t,
+            final String path, final Class<S> type, final AccessorChain chain) {
+        if (type == int.class) {
+            return (CompiledPropertyModel<S>) new OfInt(t, path, chain);
+        }
+        if (type == long.class) {
+            return (CompiledPropertyModel<S>) new OfLong(t, path, chain);
+        }
+        if (type == double.class) {
+            return (CompiledPropertyModel<S>) new OfDouble(t, path, chain);
+        }
+        if (type == boolean.class) {
+            return (CompiledPropertyModel<S>) new OfBoolean(t, path, chain);
+        }
+        return null;
+    }
+
+    /**
+     * @return the object holding the property, null if anything on the way to
+     *         it is null, or this model if the chain does not apply to the
+     *         current model object.
+     */
+    final Object parent() {
+        Object target = getInnermostModelOrObject();
+        if (target == null) {
+            return null;
+        }
+        if (!chain.accepts(target)) {
+            return this;
+        }
+        return chain.getParent(target);
+    }
+
+    final MethodHandle getter() {
+        return chain.getExactGetter();
+    }
+
+    /**
+     * @return the setter, or null if it has to be set by setObject()
+     */
+    final MethodHandle setter(final Object parent) {
+        if ((parent == null) || (parent == this)) {
+            return null;
+        }
+        return chain.getExactSetter();
+    }
+
+    /**
+     * @return what to throw when the getter failed on the given parent
+     */
+    final RuntimeException getterFailed(final Object parent,
+            final Throwable cause) {
+        return chain.getterFailed(parent, cause);
+    }
+
+    /**
+     * @return what to throw when the setter failed on the given parent
+     */
+    final RuntimeException setterFailed(final Object parent,
+            final Throwable cause) {
+        return chain.setterFailed(parent, cause);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <S> Class<S> type(final Class<?> primitive) {
+        return (Class<S>) primitive;
+    }
+
+    static final class OfInt extends PrimitivePropertyModel<Integer>
+            implements IIntModel {
+        private static final long serialVersionUID = 1L;
+
+        OfInt(final Object t, final String path, final AccessorChain chain) {
+            super(t, path, PrimitivePropertyModel.<Integer> type(int.class),
+                    chain);
+        }
+
+        @Override
+        public int getInt() {
+            Object parent = parent();
+            if (parent == this) {
+                Integer value = getObject();
+                return value == null ? 0 : value.intValue();
+            }
+            if (parent == null) {
+                return 0;
+            }
+            try {
+                return (int) getter().invokeExact(parent);
+            }
+            catch (Throwable t) {
+                throw getterFailed(parent, t);
+            }
+        }
+
+        @Override
+        public void setInt(final int value) {
+            Object parent = parent();
+            MethodHandle setter = setter(parent);
+            if (setter == null) {
+                setObject(value);
+                return;
+            }
+            try {
+                setter.invokeExact(parent, value);
+            }
+            catch (Throwable t) {
+                throw setterFailed(parent, t);
+            }
+        }
+    }
+
+    static final class OfLong extends PrimitivePropertyModel<Long> implements
+            ILongModel {
+        private static final long serialVersionUID = 1L;
+
+        OfLong(final Object t, final String path, final AccessorChain chain) {
+            super(t, path, PrimitivePropertyModel.<Long> type(long.class),
+                    chain);
+        }
+
+        @Override
+        public long getLong() {
+            Object parent = parent();
+            if (parent == this) {
+                Long value = getObject();
+                return value == null ? 0L : value.longValue();
+            }
+            if (parent == null) {
+                return 0L;
+            }
+            try {
+                return (long) getter().invokeExact(parent);
+            }
+            catch (Throwable t) {
+                throw getterFailed(parent, t);
+            }
+        }
+
+        @Override
+        public void setLong(final long value) {
+            Object parent = parent();
+            MethodHandle setter = setter(parent);
+            if (setter == null) {
+                setObject(value);
+                return;
+            }
+            try {
+                setter.invokeExact(parent, value);
+            }
+            catch (Throwable t) {
+                throw setterFailed(parent, t);
+            }
+        }
+    }
+
+    static final class OfDouble extends PrimitivePropertyModel<Double>
+            implements IDoubleModel {
+        private static final long serialVersionUID = 1L;
+
+        OfDouble(final Object t, final String path, final AccessorChain chain) {
+            super(t, path, PrimitivePropertyModel.<Double> type(double.class),
+                    chain);
+        }
+
+        @Override
+        public double getDouble() {
+            Object parent = parent();
+            if (parent == this) {
+                Double value = getObject();
+                return value == null ? 0d : value.doubleValue();
+            }
+            if (parent == null) {
+                return 0d;
+            }
+            try {
+                return (double) getter().invokeExact(parent);
+            }
+            catch (Throwable t) {
+                throw getterFailed(parent, t);
+            }
+        }
+
+        @Override
+        public void setDouble(final double value) {
+            Object parent = parent();
+            MethodHandle setter = setter(parent);
+            if (setter == null) {
+                setObject(value);
+                return;
+            }
+            try {
+                setter.invokeExact(parent, value);
+            }
+            catch (Throwable t) {
+                throw setterFailed(parent, t);
+            }
+        }
+    }
+
+    static final class OfBoolean extends PrimitivePropertyModel<Boolean>
+            implements IBooleanModel {
+        private static final long serialVersionUID = 1L;
+
+        OfBoolean(final Object t, final String path, final AccessorChain chain) {
+            super(t, path,
+                    PrimitivePropertyModel.<Boolean> type(boolean.class),
+                    chain);
+        }
+
+        @Override
+        public boolean getBoolean() {
+            Object parent = parent();
+            if (parent == this) {
+                Boolean value = getObject();
+                return (value != null) && value.booleanValue();
+            }
+            if (parent == null) {
+                return false;
+            }
+            try {
+                return (boolean) getter().invokeExact(parent);
+            }
+            catch (Throwable t) {
+                throw getterFailed(parent, t);
+            }
+        }
+
+        @Override
+        public void setBoolean(final boolean value) {
+            Object parent = parent();
+            MethodHandle setter = setter(parent);
+            if (setter == null) {
+                setObject(value);
+                return;
+            }
+            try {
+                setter.invokeExact(parent, value);
+            }
+            catch (Throwable t) {
+                throw setterFailed(parent, t);
+            }
+        }
+    }
+}
@@ -19,20 +19,31 @@ package org.wicketeer.modelfactory;
 
 import static org.wicketeer.modelfactory.Preconditions.checkNotNull;
 
+import java.lang.ref.WeakReference;
+
 import org.apache.wicket.Application;
+import org.apache.wicket.MetaDataKey;
 import org.apache.wicket.RuntimeConfigurationType;
+import org.apache.wicket.ThreadContext;
 
 /**
- * Bundles a Reference to an Object together with an Exception that can be used
- * to inform about the Reference's creation. This can be used while in Wicket's
- * DEVELOPEMT-Mode to find out, where this Reference was instantiated.
+ * Bundles a Reference to an Object together with the {@link CallSite} of its
+ * creation. This can be used while in Wicket's DEVELOPEMT-Mode to find out,
+ * where this Reference was instantiated.
  *
  * @author uweschaefer
  */
 class Reference {
+    private static final MetaDataKey<Boolean> debugKey = new DebugKey();
+
+    /**
+     * the debug mode of the Application seen last, so that only switching
+     * between Applications takes the monitor of Application.getMetaData().
+     */
+    private static volatile DebugMode debugMode;
+
     private final Object object;
-    private final Exception invokationPath;
-    private volatile Boolean createExceptionForDebug = null;
+    private final CallSite callSite;
 
     /**
      * @param objectToReference
@@ -42,18 +53,35 @@ class Reference {
      */
     protected Reference(final Object objectToReference) throws NullPointerException {
         object = checkNotNull(objectToReference);
+        callSite = isDebug() ? CallSite.capture() : null;
+    }
 
-        if (createExceptionForDebug == null) {
-            createExceptionForDebug = RuntimeConfigurationType.DEVELOPMENT
-                    .equals(Application.get().getConfigurationType());
+    private static boolean isDebug() {
+        // no Application outside of Wicket threads, e.g. in batch jobs
+        Application application = ThreadContext.getApplication();
+        if (application == null) {
+            return false;
         }
-
-        if (createExceptionForDebug) {
-            invokationPath = new Exception();
+        DebugMode mode = debugMode;
+        if ((mode == null) || (mode.application.get() != application)) {
+            mode = new DebugMode(application, isDebug(application));
+            debugMode = mode;
         }
-        else {
-            invokationPath = null;
+        return mode.enabled;
+    }
+
+    /**
+     * the configuration type is resolved once per Application and kept as its
+     * MetaData.
+     */
+    private static boolean isDebug(final Application application) {
+        Boolean debug = application.getMetaData(debugKey);
+        if (debug == null) {
+            debug = RuntimeConfigurationType.DEVELOPMENT.equals(application
+                    .getConfigurationType());
+            application.setMetaData(debugKey, debug);
         }
+        return debug;
     }
 
     /**
@@ -64,11 +92,25 @@ class Reference {
     }
 
     /**
-     * @return Exception that was create on creation or null, if called within
-     *         RuntimeConfigurationType.DEPLOYMENT
+     * @return where this Reference was created or null, if called within
+     *         RuntimeConfigurationType.DEPLOYMENT or not captured
      */
-    protected Exception getInvokationPath() {
-        return invokationPath;
+    protected CallSite getCallSite() {
+        return callSite;
+    }
+
+    private static final class DebugMode {
+        private final WeakReference<Application> application;
+        private final boolean enabled;
+
+        private DebugMode(final Application application,
+                final boolean enabled) {
+            this.application = new WeakReference<Application>(application);
+            this.enabled = enabled;
+        }
     }
 
+    private static final class DebugKey extends MetaDataKey<Boolean> {
+        private static final long serialVersionUID = 1L;
+    }
 }
@@ -0,0 +1,42 @@
+//
+//
+// Copyright 2012-2012 Uwe Schäfer <uwe@codesmell.de>
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+
+
+package org.wicketeer.modelfactory;
+
+import java.io.Serializable;
+
+/**
+ * Serializable method reference to a setter, like
+ * <code>Person::setAddress</code>. Used by generated {@link MetaPath}s.
+ *
+ * @author uweschaefer
+ * @param <T>
+ *            type declaring the setter
+ * @param <V>
+ *            type of the value to set
+ */
+@FunctionalInterface
+public interface Setter<T, V> extends Serializable {
+    /**
+     * @param object
+     *            the object to call the setter on
+     * @param value
+     *            the value to pass to the setter
+     */
+    void set(T object, V value);
+}
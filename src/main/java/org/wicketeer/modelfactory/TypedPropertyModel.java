@@ -14,12 +14,29 @@
 // See the License for the specific language governing permissions and
 // limitations under the License.
 //
-
 package org.wicketeer.modelfactory;
 
+import java.io.ObjectStreamException;
+import java.io.Serializable;
+
+import org.apache.wicket.model.IModel;
 import org.apache.wicket.model.IObjectClassAwareModel;
 import org.apache.wicket.model.PropertyModel;
+import org.wicketeer.modelfactory.internal.AccessorChain;
+import org.wicketeer.modelfactory.internal.Metrics;
+import org.wicketeer.modelfactory.internal.PathTable;
+import org.wicketeer.modelfactory.internal.PropertyAccessor;
 
+/**
+ * PropertyModel, that knows the type of its property. Models are serialized
+ * in a compact form that refers to the path, type and accessor, interned in
+ * the {@link PathTable} on writing and reading. Within one stream, e.g. a page
+ * in the page store, each of them is written only once, no matter how many
+ * models use it.
+ *
+ * @param <S>
+ *            the type of the model object
+ */
 class TypedPropertyModel<S> extends PropertyModel<S>
         implements IObjectClassAwareModel<S> {
     private static final long serialVersionUID = 1L;
@@ -31,8 +48,95 @@ class TypedPropertyModel<S> extends PropertyModel<S>
         this.type = Preconditions.checkNotNull(type);
     }
 
+    /**
+     * @param accessor
+     *            the accessor of the path, or null to resolve the path by
+     *            Wicket's PropertyResolver
+     * @return the most specific model for the given path
+     */
+    static <S> IModel<S> of(final Object t, final String path,
+            final Class<S> type, final PropertyAccessor accessor) {
+        if (accessor == null) {
+            return new TypedPropertyModel<S>(t, path, type);
+        }
+        if (accessor instanceof AccessorChain) {
+            AccessorChain chain = (AccessorChain) accessor;
+            IModel<S> primitive = PrimitivePropertyModel.of(t, path, type,
+                    chain);
+            if (primitive != null) {
+                return primitive;
+            }
+            return new CompiledPropertyModel<S>(t, path, type, chain);
+        }
+        return new CompiledPropertyModel<S>(t, path, type, accessor);
+    }
+
+    @Override
+    public S getObject() {
+        if (!Metrics.isEnabled()) {
+            return evaluate();
+        }
+        long start = System.nanoTime();
+        try {
+            return evaluate();
+        }
+        finally {
+            Metrics.getMetrics().modelEvaluated(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * @return the model object, without reporting to {@link Metrics}
+     */
+    S evaluate() {
+        return super.getObject();
+    }
+
     @Override
     public Class<S> getObjectClass() {
         return type;
     }
+
+    /**
+     * @return the accessor to evaluate the path with, null for the
+     *         PropertyResolver
+     */
+    PropertyAccessor getAccessor() {
+        return null;
+    }
+
+    protected final Object writeReplace() throws ObjectStreamException {
+        PropertyAccessor accessor = getAccessor();
+        if (accessor instanceof AccessorChain) {
+            accessor = PathTable.intern((AccessorChain) accessor);
+        }
+        return new CompactForm(getTarget(),
+                PathTable.intern(propertyExpression()), type, accessor);
+    }
+
+    /**
+     * The serialized form of all TypedPropertyModels. The model class is not
+     * written, as it follows from type and accessor.
+     */
+    private static final class CompactForm implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private final Object target;
+        private final String path;
+        private final Class<?> type;
+        private final PropertyAccessor accessor;
+
+        CompactForm(final Object target, final String path,
+                final Class<?> type, final PropertyAccessor accessor) {
+            this.target = target;
+            this.path = path;
+            this.type = type;
+            this.accessor = accessor;
+        }
+
+        private Object readResolve() throws ObjectStreamException {
+            // the accessor is interned by its own readResolve
+            return of(target, PathTable.intern(path), type, accessor);
+        }
+    }
 }
@@ -0,0 +1,434 @@
+//
+//
+// Copyright 2012-2012 Uwe Schäfer <uwe@codesmell.de>
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+
+
+package org.wicketeer.modelfactory.internal;
+
+import java.io.ObjectStreamException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+import org.apache.wicket.WicketRuntimeException;
+
+/**
+ * A recorded chain of no-arg getters, that can be evaluated directly through
+ * cached MethodHandles instead of parsing the property path on every access.
+ * Only the declaring classes and method names are serialized, the handles are
+ * resolved lazily after deserialization.
+ *
+ * @author uweschaefer
+ */
+public final class AccessorChain implements PropertyAccessor {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final MethodType GETTER_TYPE = MethodType
+            .methodType(Object.class, Object.class);
+
+    private static final MethodType SETTER_TYPE = MethodType
+            .methodType(void.class, Object.class, Object.class);
+
+    private final Class<?>[] declaringClasses;
+    private final String[] methodNames;
+
+    private transient volatile MethodHandle[] getters;
+    private transient Class<?> valueType;
+    private transient MethodHandle setter;
+    private transient volatile boolean setterResolved;
+    private transient volatile MethodHandle exactGetter;
+    private transient MethodHandle exactSetter;
+    private transient volatile boolean exactSetterResolved;
+
+    private AccessorChain(final Class<?>[] declaringClasses,
+            final String[] methodNames) {
+        this.declaringClasses = declaringClasses;
+        this.methodNames = methodNames;
+    }
+
+    /**
+     * @param methods
+     *            the getters to chain. all of them must be no-arg methods.
+     * @return the chain or null, if the list is empty or contains a method
+     *         that needs arguments
+     */
+    public static AccessorChain of(final List<Method> methods) {
+        int size = methods.size();
+        if (size == 0) {
+            return null;
+        }
+        Class<?>[] classes = new Class<?>[size];
+        String[] names = new String[size];
+        for (int i = 0; i < size; i++) {
+            Method m = methods.get(i);
+            if (m.getParameterTypes().length > 0) {
+                return null;
+            }
+            classes[i] = m.getDeclaringClass();
+            names[i] = m.getName();
+        }
+        return new AccessorChain(classes, names);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean equals(final Object obj) {
+        if (obj == this) {
+            return true;
+        }
+        if (!(obj instanceof AccessorChain)) {
+            return false;
+        }
+        AccessorChain other = (AccessorChain) obj;
+        return Arrays.equals(declaringClasses, other.declaringClasses)
+                && Arrays.equals(methodNames, other.methodNames);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int hashCode() {
+        return (31 * Arrays.hashCode(declaringClasses))
+                + Arrays.hashCode(methodNames);
+    }
+
+    /**
+     * replaces deserialized copies by the canonical instance, whose handles
+     * are probably resolved already.
+     */
+    private Object readResolve() throws ObjectStreamException {
+        return PathTable.intern(this);
+    }
+
+    /**
+     * @return the property path expressed by this chain, like
+     *         "bestFriend.male"
+     */
+    public String getPropertyPath() {
+        StringBuilder sb = new StringBuilder();
+        for (String name : methodNames) {
+            if (sb.length() > 0) {
+                sb.append('.');
+            }
+            sb.append(Invocation.getPropertyName(name));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * @return the number of getters in this chain
+     */
+    public int size() {
+        return methodNames.length;
+    }
+
+    /**
+     * @param index
+     *            index of a getter in this chain
+     * @return the name of the property read by that getter, like "male"
+     */
+    public String getPropertyName(final int index) {
+        return Invocation.getPropertyName(methodNames[index]);
+    }
+
+    /**
+     * @return the return type of the last getter of this chain
+     */
+    public Class<?> getReturnType() {
+        return getMethod(methodNames.length - 1).getReturnType();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean accepts(final Object root) {
+        return declaringClasses[0].isInstance(root);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Object get(final Object root) {
+        MethodHandle[] handles = getGetters();
+        Object value = root;
+        for (int i = 0; (i < handles.length) && (value != null); i++) {
+            value = invokeGetter(i, handles[i], value);
+        }
+        return value;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean set(final Object root, final Object value) {
+        if (!accepts(root)) {
+            return false;
+        }
+        MethodHandle[] handles = getGetters();
+        MethodHandle s = getSetter();
+        if ((s == null) || !isAssignable(valueType, value)) {
+            return false;
+        }
+
+        Object target = root;
+        for (int i = 0; i < (handles.length - 1); i++) {
+            target = invokeGetter(i, handles[i], target);
+            if (target == null) {
+                return false;
+            }
+        }
+
+        try {
+            s.invokeExact(target, value);
+        }
+        catch (Throwable e) {
+            throw setterFailed(target, e);
+        }
+        return true;
+    }
+
+    /**
+     * @param root
+     *            the object to start evaluation from. Must be accepted by
+     *            {@link #accepts(Object)}.
+     * @return the object the last getter of this chain is invoked on, or null
+     *         if anything on the way to it is null
+     */
+    public Object getParent(final Object root) {
+        MethodHandle[] handles = getGetters();
+        Object value = root;
+        for (int i = 0; (i < (handles.length - 1)) && (value != null); i++) {
+            value = invokeGetter(i, handles[i], value);
+        }
+        return value;
+    }
+
+    /**
+     * @param target
+     *            the object the last getter of this chain was invoked on
+     * @param cause
+     *            what the getter threw
+     * @return the exception Wicket's PropertyResolver throws in this case
+     */
+    public WicketRuntimeException getterFailed(final Object target,
+            final Throwable cause) {
+        return callFailed(getMethod(methodNames.length - 1), target, cause);
+    }
+
+    /**
+     * @param target
+     *            the object the setter of this chain was invoked on
+     * @param cause
+     *            what the setter threw
+     * @return the exception Wicket's PropertyResolver throws in this case
+     */
+    public WicketRuntimeException setterFailed(final Object target,
+            final Throwable cause) {
+        return callFailed(findSetter(getMethod(methodNames.length - 1)),
+                target, cause);
+    }
+
+    private static WicketRuntimeException callFailed(final Method method,
+            final Object target, final Throwable cause) {
+        return new WicketRuntimeException("Error calling method: " + method
+                + " on object: " + target, cause);
+    }
+
+    /**
+     * @return the last getter of this chain, typed
+     *         <code>(Object)returnType</code>, so that primitive values can be
+     *         read by invokeExact without boxing.
+     */
+    public MethodHandle getExactGetter() {
+        MethodHandle handle = exactGetter;
+        if (handle == null) {
+            Method m = getMethod(methodNames.length - 1);
+            try {
+                handle = MethodHandles.lookup().unreflect(m).asType(
+                        MethodType.methodType(m.getReturnType(),
+                                Object.class));
+            }
+            catch (IllegalAccessException e) {
+                throw new InvocationException(e, m, null);
+            }
+            exactGetter = handle;
+        }
+        return handle;
+    }
+
+    /**
+     * @return the setter matching the last getter of this chain, typed
+     *         <code>(Object, returnType)void</code>, or null if there is none
+     */
+    public MethodHandle getExactSetter() {
+        if (!exactSetterResolved) {
+            Method getter = getMethod(methodNames.length - 1);
+            Method setterMethod = findSetter(getter);
+            MethodHandle handle = null;
+            if (setterMethod != null) {
+                try {
+                    handle = MethodHandles.lookup().unreflect(setterMethod)
+                            .asType(MethodType.methodType(void.class,
+                                    Object.class, getter.getReturnType()));
+                }
+                catch (IllegalAccessException e) {
+                    handle = null;
+                }
+            }
+            exactSetter = handle;
+            exactSetterResolved = true;
+        }
+        return exactSetter;
+    }
+
+    private static boolean isAssignable(final Class<?> type,
+            final Object value) {
+        if (value == null) {
+            return !type.isPrimitive();
+        }
+        Class<?> boxed = type.isPrimitive()
+                ? MethodType.methodType(type).wrap().returnType() : type;
+        return boxed.isInstance(value);
+    }
+
+    private Object invokeGetter(final int index, final MethodHandle handle,
+            final Object target) {
+        try {
+            return handle.invokeExact(target);
+        }
+        catch (Throwable e) {
+            throw callFailed(getMethod(index), target, e);
+        }
+    }
+
+    static Object invokeGetter(final MethodHandle handle,
+            final Object target) {
+        try {
+            return handle.invokeExact(target);
+        }
+        catch (RuntimeException e) {
+            throw e;
+        }
+        catch (Error e) {
+            throw e;
+        }
+        catch (Throwable e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    MethodHandle[] getGetters() {
+        MethodHandle[] handles = getters;
+        if (handles == null) {
+            handles = new MethodHandle[methodNames.length];
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            for (int i = 0; i < handles.length; i++) {
+                try {
+                    handles[i] = lookup.unreflect(getMethod(i))
+                            .asType(GETTER_TYPE);
+                }
+                catch (IllegalAccessException e) {
+                    throw new InvocationException(e, getMethod(i), null);
+                }
+            }
+            getters = handles;
+        }
+        return handles;
+    }
+
+    private MethodHandle getSetter() {
+        if (!setterResolved) {
+            Method getter = getMethod(methodNames.length - 1);
+            Method setterMethod = findSetter(getter);
+            MethodHandle handle = null;
+            if (setterMethod != null) {
+                try {
+                    handle = MethodHandles.lookup().unreflect(setterMethod)
+                            .asType(SETTER_TYPE);
+                }
+                catch (IllegalAccessException e) {
+                    handle = null;
+                }
+            }
+            valueType = getter.getReturnType();
+            setter = handle;
+            setterResolved = true;
+        }
+        return setter;
+    }
+
+    private static Method findSetter(final Method getter) {
+        String name = getter.getName();
+        String property;
+        if (name.startsWith("get") && (name.length() > 3)) {
+            property = name.substring(3);
+        }
+        else
+            if (name.startsWith("is") && (name.length() > 2)) {
+                property = name.substring(2);
+            }
+            else {
+                return null;
+            }
+
+        String setterName = "set"
+                + property.substring(0, 1).toUpperCase(Locale.ENGLISH)
+                + property.substring(1);
+        Class<?> valueType = getter.getReturnType();
+        for (Class<?> c = getter.getDeclaringClass(); c != null; c = c
+                .getSuperclass()) {
+            try {
+                Method m = c.getDeclaredMethod(setterName, valueType);
+                m.setAccessible(true);
+                return m;
+            }
+            catch (NoSuchMethodException e) {
+                // try superclass
+            }
+        }
+        try {
+            return getter.getDeclaringClass().getMethod(setterName,
+                    valueType);
+        }
+        catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+
+    private Method getMethod(final int index) {
+        try {
+            Method m = declaringClasses[index]
+                    .getDeclaredMethod(methodNames[index]);
+            m.setAccessible(true);
+            return m;
+        }
+        catch (NoSuchMethodException e) {
+            throw new IllegalStateException("Method " + methodNames[index]
+                    + " vanished from " + declaringClasses[index], e);
+        }
+    }
+}
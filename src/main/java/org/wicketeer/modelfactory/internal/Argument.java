@@ -17,6 +17,8 @@
 
 package org.wicketeer.modelfactory.internal;
 
+import java.util.List;
+
 /**
  * An Argument represents a statically defined sequence of method invocations on
  * a given Class.
@@ -57,6 +59,68 @@ public class Argument<T> {
         return (T) invocationSequence.evaluate(object);
     }
 
+    /**
+     * Evaluates this Argument on each of the given objects, in parallel for
+     * large lists.
+     * 
+     * @param objects
+     *            The Objects on which this Argument should be evaluated
+     * @return The values of this Argument, in the order of the given Objects
+     * @see Projection
+     */
+    public Object[] evaluateAll(final List<?> objects) {
+        Object[] values = new Object[objects.size()];
+        evaluateAll(objects, values);
+        return values;
+    }
+
+    /**
+     * Evaluates this Argument on each of the given objects into a preallocated
+     * array.
+     * 
+     * @param objects
+     *            The Objects on which this Argument should be evaluated
+     * @param values
+     *            receives the values, must be at least as long as objects
+     * @throws IllegalArgumentException
+     *             if values is too short
+     * @see Projection
+     */
+    public void evaluateAll(final List<?> objects, final Object[] values)
+            throws IllegalArgumentException {
+        if (values.length < objects.size()) {
+            throw new IllegalArgumentException("array is too short for "
+                    + objects.size() + " objects");
+        }
+        Projection.evaluate(new Argument<?>[] { this }, objects,
+                new Object[][] { values });
+    }
+
+    /**
+     * Returns a directly evaluable chain of the getters invoked by this
+     * Argument.
+     * 
+     * @return the chain or null, if any of the invocations takes arguments
+     */
+    public AccessorChain getAccessorChain() {
+        return invocationSequence.getAccessorChain();
+    }
+
+    /**
+     * @param defaults
+     *            where to take the value from, that is returned instead of
+     *            null
+     * @return an evaluator, that stops at the first null in this Argument's
+     *         chain of getters
+     * @throws IllegalArgumentException
+     *             if this Argument invokes methods with arguments
+     * @see NullSafeEvaluator
+     */
+    public NullSafeEvaluator<T> nullSafe(final NullDefaults defaults)
+            throws IllegalArgumentException {
+        return NullSafeEvaluator.of(this, defaults);
+    }
+
     /**
      * Returns the root class from which the sequence of method invocation
      * defined by this argument starts
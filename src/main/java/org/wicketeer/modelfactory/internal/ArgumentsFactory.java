@@ -18,14 +18,17 @@
 package org.wicketeer.modelfactory.internal;
 
 import java.lang.reflect.Array;
+import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.IdentityHashMap;
 import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
 
-import org.apache.wicket.MetaDataKey;
 import org.objenesis.Objenesis;
 import org.objenesis.ObjenesisStd;
-import org.wicketeer.modelfactory.RequestCycleLocal;
 
 /**
  * An utility class of static factory methods that creates arguments and binds
@@ -35,7 +38,6 @@ import org.wicketeer.modelfactory.RequestCycleLocal;
  */
 public final class ArgumentsFactory {
 
-    private static final LastArgHolder ARG = new LastArgHolder();
     private static final Objenesis objenesis = new ObjenesisStd(true);
     private static final Map<Class<?>, Object> primitives = new IdentityHashMap<Class<?>, Object>();
 
@@ -50,27 +52,157 @@ public final class ArgumentsFactory {
         primitives.put(char.class, 'p');
     }
 
+    private static volatile boolean reusingPlaceholders;
+
+    /**
+     * the mappings keeping placeholders for reuse, so that they can be
+     * released even in contexts that never record again, like those of idle
+     * pooled threads. Weak, as contexts go away without notice.
+     */
+    private static final Set<ArgumentMapping> keeping = Collections
+            .synchronizedSet(Collections
+                    .newSetFromMap(new WeakHashMap<ArgumentMapping, Boolean>()));
+
     private ArgumentsFactory() {
     }
 
+    /**
+     * Lets every context keep one placeholder per class and reuse it for all
+     * steps of all recordings that return this class, instead of creating a
+     * new proxy for every getter invoked. A recording then only allocates its
+     * Argument.
+     * <p>
+     * A reused placeholder stands for the last step recorded on it. Code that
+     * keeps a placeholder in a variable and records more than one path from
+     * it, like <code>Person p = from(x).getBoss(); path(p.getBoss());
+     * path(p.getName());</code>, must not be run with reuse enabled: the second
+     * path would be <code>boss.boss.name</code>. Disabled by default.
+     *
+     * @param reuse
+     *            true to reuse placeholders
+     */
+    public static void setReusingPlaceholders(final boolean reuse) {
+        reusingPlaceholders = reuse;
+        releasePlaceholders();
+    }
+
+    /**
+     * @return true, if placeholders are reused
+     * @see #setReusingPlaceholders(boolean)
+     */
+    public static boolean isReusingPlaceholders() {
+        return reusingPlaceholders;
+    }
+
+    /**
+     * makes all contexts drop the placeholders they keep for reuse, so that
+     * they do not keep classes of undeployed applications.
+     */
+    public static void releasePlaceholders() {
+        synchronized (keeping) {
+            for (ArgumentMapping mapping : keeping) {
+                mapping.reusable = null;
+            }
+            keeping.clear();
+        }
+    }
+
     public static <T> T createArgument(final Class<T> clazz) {
-        return createArgument(clazz, new InvocationSequence(clazz));
+        return createArgument(ModelFactoryContext.get(), clazz);
     }
 
+    /**
+     * creates the placeholder a recording starts with.
+     *
+     * @param context
+     *            the context to record in
+     * @param clazz
+     *            the root class of the recording
+     * @return the placeholder
+     */
     @SuppressWarnings("unchecked")
-    protected static <T> T createArgument(final Class<T> clazz,
+    public static <T> T createArgument(final ModelFactoryContext context,
+            final Class<T> clazz) {
+        ArgumentMapping mapping = context.getArgumentMapping();
+        mapping.startRecording();
+        if (isMemoizing(mapping)) {
+            RecordingCache.Recording recording = RecordingCache.get(clazz,
+                    null);
+            if (recording == null) {
+                recording = record(mapping, clazz,
+                        InvocationSequence.root(clazz));
+                RecordingCache.put(clazz, null, recording);
+            }
+            return (T) replay(mapping, recording);
+        }
+        return createArgument(mapping, clazz, InvocationSequence.root(clazz));
+    }
+
+    /**
+     * Adds the invocation of a method on a placeholder to the placeholder's
+     * sequence and creates a new placeholder propagating the resulting
+     * sequence.
+     *
+     * @param owner
+     *            the mapping of the context the placeholder was created in,
+     *            null for placeholders shared between contexts
+     */
+    static Object createArgument(final ArgumentMapping owner,
+            final InvocationSequence sequence, final Class<?> proxiedClass,
+            final Method method, final Object[] args) {
+        ArgumentMapping mapping = owner != null ? owner : ModelFactoryContext
+                .get().getArgumentMapping();
+        mapping.checkThread();
+        Class<?> returnType = method.getReturnType();
+        if (((args == null) || (args.length == 0)) && isMemoizing(mapping)) {
+            RecordingCache.Recording recording = RecordingCache.get(sequence,
+                    method);
+            if (recording == null) {
+                recording = record(mapping, returnType,
+                        sequence.append(proxiedClass, method, args));
+                RecordingCache.put(sequence, method, recording);
+            }
+            return replay(mapping, recording);
+        }
+        return createArgument(mapping, returnType,
+                sequence.append(proxiedClass, method, args));
+    }
+
+    private static boolean isMemoizing(final ArgumentMapping mapping) {
+        return RecordingCache.isEnabled() && !mapping.detached
+                && (mapping.getState() == State.ACTIVE);
+    }
+
+    private static RecordingCache.Recording record(
+            final ArgumentMapping mapping, final Class<?> clazz,
             final InvocationSequence invocationSequence) {
-        T placeholder = (T) createPlaceholder(clazz, invocationSequence);
-        if (ARG.get().getState() == State.ACTIVE) {
-            ARG.get().set(placeholder, new Argument<T>(invocationSequence));
+        return new RecordingCache.Recording(
+                createPlaceholder(mapping, clazz, invocationSequence, true),
+                new Argument<Object>(invocationSequence));
+    }
+
+    private static Object replay(final ArgumentMapping mapping,
+            final RecordingCache.Recording recording) {
+        mapping.set(recording.getPlaceholder(), recording.getArgument());
+        return recording.getPlaceholder();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T createArgument(final ArgumentMapping mapping,
+            final Class<T> clazz, final InvocationSequence invocationSequence) {
+        T placeholder = (T) createPlaceholder(mapping, clazz,
+                invocationSequence, false);
+        if (mapping.getState() == State.ACTIVE) {
+            mapping.set(placeholder, invocationSequence);
         }
         return placeholder;
     }
 
-    private static Object createPlaceholder(final Class<?> clazz,
-            final InvocationSequence invocationSequence) {
+    private static Object createPlaceholder(final ArgumentMapping mapping,
+            final Class<?> clazz, final InvocationSequence invocationSequence,
+            final boolean shared) {
 
-        State stateBeforeCreationCall = ARG.get().getState();
+        State stateBeforeCreationCall = mapping.getState();
 
         if ((clazz == Void.class) || "void".equals(clazz.getName())) {
             if (stateBeforeCreationCall == State.IGNORE) {
@@ -90,7 +222,19 @@ public final class ArgumentsFactory {
             return Array.newInstance(arrayType, 0);
         }
 
-        ARG.get().set(State.IGNORE);
+        // placeholders created while constructing a proxy are thrown away
+        boolean reuse = reusingPlaceholders && !shared
+                && (stateBeforeCreationCall == State.ACTIVE);
+        if (reuse) {
+            Object placeholder = mapping.reuse(clazz, invocationSequence);
+            if (placeholder != null) {
+                return placeholder;
+            }
+        }
+
+        Object placeholder;
+        ProxyArgument interceptor = null;
+        mapping.set(State.IGNORE);
         try {
             if (Modifier.isFinal(clazz.getModifiers())) {
                 // This breaks backward comp. because wicket-modelfactory is
@@ -103,17 +247,24 @@ public final class ArgumentsFactory {
                 // "Modelfactory cannot proxy final Class or Enum '"
                 // + clazz + "'");
                 // }
-                return objenesis.newInstance(clazz);
+                if (Metrics.isEnabled()) {
+                    Metrics.getMetrics().finalClassInstantiated(clazz);
+                }
+                placeholder = objenesis.newInstance(clazz);
             }
             else {
-                return ProxyUtil.createProxy(
-                        new ProxyArgument(clazz, invocationSequence), clazz,
-                        false);
+                interceptor = new ProxyArgument(shared ? null : mapping,
+                        clazz, invocationSequence);
+                placeholder = ProxyUtil.createProxy(interceptor, clazz, false);
             }
         }
         finally {
-            ARG.get().set(stateBeforeCreationCall);
+            mapping.set(stateBeforeCreationCall);
         }
+        if (reuse && (placeholder != null)) {
+            mapping.keep(clazz, placeholder, interceptor);
+        }
+        return placeholder;
     }
 
     private static Object createPrimitivePlaceHolder(final Class<?> clazz,
@@ -126,13 +277,54 @@ public final class ArgumentsFactory {
             return ret;
     }
 
-    private static class ArgumentMapping {
+    /**
+     * State of the recordings of one context. Contexts are thread-confined,
+     * so nothing in here is synchronized. Placeholders call back into the
+     * mapping they were created for without looking up the context again;
+     * a placeholder used on another thread than the one its recording was
+     * started on is detected and rejected.
+     */
+    static final class ArgumentMapping {
+        /**
+         * true if no thread has the context of this mapping bound while a
+         * recording is in progress.
+         */
+        final boolean detached;
+
         private Argument<?> lastArgument;
 
+        /**
+         * the thread of the recording in progress, null if there is none.
+         */
+        private Thread owner;
+
+        /**
+         * sequence of the last placeholder, its Argument is created when it
+         * is asked for.
+         */
+        private InvocationSequence lastSequence;
+
         private Object lastPlaceHolder;
 
+        /**
+         * placeholders kept for reuse, null until the first one is kept.
+         * Only ever set to null by other threads, the map itself is confined
+         * to the thread recording.
+         */
+        private volatile Map<Class<?>, Reusable> reusable;
+
         private State state = State.ACTIVE;
 
+        /**
+         * System.nanoTime() at the start of the current recording, 0 if
+         * metrics are disabled.
+         */
+        private long recordingStart;
+
+        ArgumentMapping(final boolean detached) {
+            this.detached = detached;
+        }
+
         public State getState() {
             return this.state;
         }
@@ -140,20 +332,115 @@ public final class ArgumentsFactory {
         public void set(final Object placeHolder, final Argument<?> arg) {
             if (this.state == State.ACTIVE) {
                 this.lastArgument = arg;
+                this.lastSequence = null;
+                this.lastPlaceHolder = placeHolder;
+            }
+        }
+
+        void set(final Object placeHolder, final InvocationSequence sequence) {
+            if (this.state == State.ACTIVE) {
+                this.lastArgument = null;
+                this.lastSequence = sequence;
                 this.lastPlaceHolder = placeHolder;
             }
         }
 
+        /**
+         * @return the kept placeholder of the given class, now standing for
+         *         the given sequence, or null
+         */
+        Object reuse(final Class<?> clazz, final InvocationSequence sequence) {
+            Map<Class<?>, Reusable> kept = this.reusable;
+            if (kept == null) {
+                return null;
+            }
+            Reusable r = kept.get(clazz);
+            if (r == null) {
+                return null;
+            }
+            if (r.interceptor != null) {
+                r.interceptor.rebind(sequence);
+            }
+            return r.placeholder;
+        }
+
+        void keep(final Class<?> clazz, final Object placeholder,
+                final ProxyArgument interceptor) {
+            Map<Class<?>, Reusable> kept = this.reusable;
+            if (kept == null) {
+                kept = new HashMap<Class<?>, Reusable>();
+                this.reusable = kept;
+                // after publishing the map, so that a release cannot miss it
+                keeping.add(this);
+            }
+            kept.put(clazz, new Reusable(placeholder, interceptor));
+        }
+
         public void set(final State stateToSet) {
             this.state = stateToSet;
         }
 
+        void startRecording() {
+            this.owner = Thread.currentThread();
+            this.recordingStart = Metrics.isEnabled() ? System.nanoTime() : 0;
+        }
+
+        /**
+         * hands a recording in progress over to the current thread.
+         *
+         * @return the thread that owned it before, null if there is none
+         */
+        Thread adopt() {
+            Thread previous = this.owner;
+            if (previous != null) {
+                this.owner = Thread.currentThread();
+            }
+            return previous;
+        }
+
+        /**
+         * hands a recording, that is still in progress, back after
+         * {@link #adopt()}.
+         */
+        void restoreOwner(final Thread previous) {
+            if (this.owner == Thread.currentThread()) {
+                this.owner = previous;
+            }
+        }
+
+        /**
+         * @throws IllegalStateException
+         *             if a recording of this mapping is in progress on another
+         *             thread
+         */
+        void checkThread() throws IllegalStateException {
+            Thread current = Thread.currentThread();
+            if (this.owner != current) {
+                if (this.owner != null) {
+                    throw new IllegalStateException("Recording started on "
+                            + this.owner + " was continued on " + current
+                            + ". Placeholders must not be passed between"
+                            + " threads.");
+                }
+                this.owner = current;
+            }
+        }
+
         public Argument<?> getAndClear(final Object placeHolder) {
+            checkThread();
             try {
                 return get(placeHolder);
             }
             finally {
-                set(null, null);
+                this.owner = null;
+                this.lastArgument = null;
+                this.lastSequence = null;
+                this.lastPlaceHolder = null;
+                if (this.recordingStart != 0) {
+                    Metrics.getMetrics().pathRecorded(
+                            System.nanoTime() - this.recordingStart);
+                    this.recordingStart = 0;
+                }
             }
         }
 
@@ -173,13 +460,25 @@ public final class ArgumentsFactory {
                     throw new IllegalStateException(
                             "Unknown placeholder " + placeHolder);
                 }
-                else {
-                    return this.lastArgument;
-                }
             }
-            else {
-                return this.lastArgument;
+            if ((this.lastArgument == null) && (this.lastSequence != null)) {
+                this.lastArgument = new Argument<Object>(this.lastSequence);
             }
+            return this.lastArgument;
+        }
+    }
+
+    /**
+     * a placeholder kept for reuse and the interceptor to rebind, null for
+     * instances of final classes.
+     */
+    private static final class Reusable {
+        final Object placeholder;
+        final ProxyArgument interceptor;
+
+        Reusable(final Object placeholder, final ProxyArgument interceptor) {
+            this.placeholder = placeholder;
+            this.interceptor = interceptor;
         }
     }
 
@@ -187,36 +486,25 @@ public final class ArgumentsFactory {
         ACTIVE, IGNORE;
     }
 
-    private static class LastArgHolder
-            extends RequestCycleLocal<ArgumentMapping> {
-        private static final MetaDataKey<ArgumentMapping> LAST_ARG_HOLDER_KEY = new MetaDataKey<ArgumentsFactory.ArgumentMapping>() {
-
-            private static final long serialVersionUID = 1L;
-        };
-
-        public LastArgHolder() {
-            super(LAST_ARG_HOLDER_KEY);
-        }
-
-        @Override
-        public ArgumentMapping get() {
-            ArgumentMapping target = super.get();
-            if (target == null) {
-                target = new ArgumentMapping();
-                set(target);
-            }
-            return target;
-        }
+    public static <T> Argument<T> getAndRemoveArgumentFor(final T placeholder) {
+        return getAndRemoveArgumentFor(ModelFactoryContext.get(), placeholder);
     }
 
     @SuppressWarnings("unchecked")
-    public static <T> Argument<T> getAndRemoveArgumentFor(final T placeholder) {
-        return (Argument<T>) ARG.get().getAndClear(placeholder);
+    public static <T> Argument<T> getAndRemoveArgumentFor(
+            final ModelFactoryContext context, final T placeholder) {
+        return (Argument<T>) context.getArgumentMapping()
+                .getAndClear(placeholder);
     }
 
-    @SuppressWarnings("unchecked")
     public static <T> Argument<T> getArgumentFor(final T placeholder) {
-        return (Argument<T>) ARG.get().get(placeholder);
+        return getArgumentFor(ModelFactoryContext.get(), placeholder);
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <T> Argument<T> getArgumentFor(
+            final ModelFactoryContext context, final T placeholder) {
+        return (Argument<T>) context.getArgumentMapping().get(placeholder);
     }
 
 }
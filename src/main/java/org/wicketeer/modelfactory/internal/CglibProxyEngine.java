@@ -0,0 +1,157 @@
+//
+//
+// Copyright 2012-2012 Uwe Schäfer <uwe@codesmell.de>
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+
+package org.wicketeer.modelfactory.internal;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Proxy;
+import java.util.Collections;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+import net.sf.cglib.proxy.Enhancer;
+import net.sf.cglib.proxy.Factory;
+import net.sf.cglib.proxy.MethodInterceptor;
+
+/**
+ * The default {@link ProxyEngine}: native Java proxies for interfaces, cglib
+ * subclasses for everything else. Generated classes are defined in the
+ * ClassLoader of the proxied class and live as long as it does.
+ *
+ * @author Mario Fusco
+ * @author Sebastian Jancke
+ */
+@SuppressWarnings("unchecked")
+public final class CglibProxyEngine implements ProxyEngine {
+
+    /**
+     * Prototype instances of already generated proxy classes. New proxies are
+     * created by {@link Factory#newInstance(net.sf.cglib.proxy.Callback)},
+     * which skips the Enhancer completely. Prototypes answer every invocation
+     * with null, so that they do not keep the recording they were created for
+     * (and its classes) alive.
+     */
+    private static final ProxyClassCache<Factory> factories = new ProxyClassCache<Factory>();
+
+    /**
+     * interfaces, whose java.lang.reflect.Proxy class was created by
+     * {@link #prepare(Class)}. The JDK caches that class itself.
+     */
+    private static final Set<Class<?>> preparedInterfaces = Collections
+            .newSetFromMap(Collections
+                    .synchronizedMap(new WeakHashMap<Class<?>, Boolean>()));
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public <T> T createProxy(final InvocationInterceptor interceptor,
+            final Class<T> clazz, final Class<?>... implementedInterface) {
+        if (clazz.isInterface()) {
+            return (T) createNativeJavaProxy(clazz.getClassLoader(),
+                    interceptor, concatClasses(new Class<?>[] { clazz },
+                            implementedInterface));
+        }
+        boolean cacheable = (implementedInterface == null)
+                || (implementedInterface.length == 0);
+        if (cacheable) {
+            Factory factory = getFactory(clazz);
+            if (factory != null) {
+                return (T) factory.newInstance(interceptor);
+            }
+            if (ClassImposterizer.INSTANCE.hasProxyClass(clazz)) {
+                // no null constructor, skip the Enhancer
+                return ClassImposterizer.INSTANCE.imposterise(interceptor,
+                        clazz);
+            }
+        }
+        try {
+            Enhancer e = createEnhancer(interceptor, clazz,
+                    implementedInterface);
+            T proxy = (T) e.create();
+            if (cacheable && (proxy instanceof Factory)) {
+                // constructors may call overridden methods, so the prototype
+                // is created with the interceptor and detached afterwards
+                Factory prototype = (Factory) ((Factory) proxy)
+                        .newInstance(interceptor);
+                prototype.setCallback(0, ProxyUtil.NOOP);
+                factories.put(clazz, prototype);
+                Metrics.getMetrics().proxyClassGenerated(clazz);
+            }
+            return proxy;
+        }
+        catch (IllegalArgumentException iae) {
+            if (Proxy.isProxyClass(clazz)) {
+                return (T) createNativeJavaProxy(clazz.getClassLoader(),
+                        interceptor, concatClasses(implementedInterface,
+                                clazz.getInterfaces()));
+            }
+            if (ProxyUtil.isProxable(clazz)) {
+                return ClassImposterizer.INSTANCE.imposterise(interceptor,
+                        clazz, implementedInterface);
+            }
+            return null;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean prepare(final Class<?> type) {
+        if (type.isInterface() ? !preparedInterfaces.add(type)
+                : ((getFactory(type) != null)
+                        || ClassImposterizer.INSTANCE.hasProxyClass(type))) {
+            return false;
+        }
+        return createProxy(ProxyUtil.NOOP, type) != null;
+    }
+
+    private static Factory getFactory(final Class<?> clazz) {
+        return factories.get(clazz);
+    }
+
+    private static Enhancer createEnhancer(final MethodInterceptor interceptor,
+            final Class<?> clazz, final Class<?>... interfaces) {
+        Enhancer enhancer = new Enhancer();
+        enhancer.setCallback(interceptor);
+        enhancer.setSuperclass(clazz);
+        if (interfaces != null && interfaces.length > 0) {
+            enhancer.setInterfaces(interfaces);
+        }
+        return enhancer;
+    }
+
+    private static Object createNativeJavaProxy(final ClassLoader classLoader,
+            final InvocationHandler interceptor, final Class<?>... interfaces) {
+        return Proxy.newProxyInstance(classLoader, interfaces, interceptor);
+    }
+
+    private static Class<?>[] concatClasses(final Class<?>[] first,
+            final Class<?>[] second) {
+        if (first == null || first.length == 0) {
+            return second;
+        }
+        if (second == null || second.length == 0) {
+            return first;
+        }
+        Class<?>[] concatClasses = new Class[first.length + second.length];
+        System.arraycopy(first, 0, concatClasses, 0, first.length);
+        System.arraycopy(second, 0, concatClasses, first.length, second.length);
+        return concatClasses;
+    }
+}
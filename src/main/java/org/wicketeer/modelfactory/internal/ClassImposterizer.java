@@ -72,7 +72,13 @@ import org.objenesis.ObjenesisStd;
 final class ClassImposterizer {
 
     private final Objenesis objenesis = new ObjenesisStd();
-    
+
+    /**
+     * proxy classes already created for a mocked type (without ancillary
+     * types).
+     */
+    private final ProxyClassCache<Class<?>> proxyClasses = new ProxyClassCache<Class<?>>();
+
     protected static final ClassImposterizer INSTANCE = new ClassImposterizer();
 
     private ClassImposterizer() {
@@ -117,11 +123,37 @@ final class ClassImposterizer {
 
     protected <T> T imposterise(final Callback callback, final Class<T> mockedType,
             final Class<?>... ancillaryTypes) {
-        setConstructorsAccessible(mockedType, true);
-        Class<?> proxyClass = createProxyClass(mockedType, ancillaryTypes);
+        Class<?> proxyClass = getProxyClass(mockedType, ancillaryTypes);
         return mockedType.cast(createProxy(proxyClass, callback));
     }
 
+    /**
+     * @param mockedType
+     *            the type to check
+     * @return true if a proxy class for the given type has already been
+     *         created by this imposterizer
+     */
+    protected boolean hasProxyClass(final Class<?> mockedType) {
+        return proxyClasses.get(mockedType) != null;
+    }
+
+    private Class<?> getProxyClass(final Class<?> mockedType,
+            final Class<?>... ancillaryTypes) {
+        if ((ancillaryTypes != null) && (ancillaryTypes.length > 0)) {
+            setConstructorsAccessible(mockedType, true);
+            return createProxyClass(mockedType, ancillaryTypes);
+        }
+
+        Class<?> proxyClass = proxyClasses.get(mockedType);
+        if (proxyClass == null) {
+            setConstructorsAccessible(mockedType, true);
+            proxyClass = createProxyClass(mockedType);
+            proxyClasses.put(mockedType, proxyClass);
+            Metrics.getMetrics().proxyClassGenerated(mockedType);
+        }
+        return proxyClass;
+    }
+
     private void setConstructorsAccessible(final Class<?> mockedType,
             final boolean accessible) {
         for (Constructor<?> constructor : mockedType
@@ -0,0 +1,38 @@
+//
+//
+// Copyright 2012-2012 Uwe Schäfer <uwe@codesmell.de>
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+
+
+package org.wicketeer.modelfactory.internal;
+
+/**
+ * Decides where the {@link ModelFactoryContext} of a recording comes from.
+ * The default is {@link RequestCycleContextStrategy}, which requires a
+ * RequestCycle; use {@link ThreadContextStrategy} (or a RequestCycle strategy
+ * falling back to it) to record outside of requests, e.g. in background jobs.
+ *
+ * @author uweschaefer
+ * @see ModelFactoryContext#setStrategy(ContextStrategy)
+ */
+public interface ContextStrategy {
+
+    /**
+     * @return the context to record in, never null
+     * @throws IllegalStateException
+     *             if there is no context available for the current thread
+     */
+    ModelFactoryContext getContext() throws IllegalStateException;
+}
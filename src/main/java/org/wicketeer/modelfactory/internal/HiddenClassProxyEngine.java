@@ -0,0 +1,550 @@
+//
+//
+// Copyright 2012-2012 Uwe Schäfer <uwe@codesmell.de>
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+
+package org.wicketeer.modelfactory.internal;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodHandles.Lookup;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import net.sf.cglib.asm.ClassWriter;
+import net.sf.cglib.asm.MethodVisitor;
+import net.sf.cglib.asm.Opcodes;
+import net.sf.cglib.asm.Type;
+
+/**
+ * A {@link ProxyEngine} that defines its proxy classes as hidden classes (Java
+ * 15 and later) or as VM-anonymous classes (Java 8 to 16). cglib defines its
+ * classes in the ClassLoader of the proxied class, where they stay until the
+ * whole loader goes away; these classes are not registered with any loader
+ * and are unloaded as soon as the proxied class is no longer reachable.
+ * <p>
+ * On Java 15 and later, hidden classes can only be defined directly next to
+ * classes of the library's own module, that is of its own ClassLoader. Any
+ * other class, e.g. of every webapp when the library is in a shared lib, gets
+ * a small helper class <code>ModelFactoryLookup$$</code> defined in its
+ * package, through which the hidden classes are then defined. This helper is
+ * an ordinary class: like cglib's classes it stays in the loader of the
+ * proxied class, once per package.
+ * <p>
+ * Proxies are allocated without running a constructor, so no null constructor
+ * is needed. Final classes, classes of the JDK and proxies that need
+ * additional interfaces are left to the default engine.
+ *
+ * @author uweschaefer
+ */
+public final class HiddenClassProxyEngine implements ProxyEngine, Opcodes {
+
+    private static final String HANDLER = "$$handler";
+    private static final String METHODS = "$$methods";
+    private static final String OBJECT = "java/lang/Object";
+    private static final String INVOCATION_HANDLER = Type
+            .getInternalName(InvocationHandler.class);
+    private static final String INVOKE_DESC = "(Ljava/lang/Object;Ljava/lang/reflect/Method;[Ljava/lang/Object;)Ljava/lang/Object;";
+
+    private static final Definer definer = createDefiner();
+    private static final MethodHandle allocateInstance = createAllocator();
+
+    private static final ProxyClass UNPROXABLE = new ProxyClass(null, null);
+
+    private final ClassValue<ProxyClass> proxyClasses = new ClassValue<ProxyClass>() {
+        @Override
+        protected ProxyClass computeValue(final Class<?> type) {
+            ProxyClass proxyClass = defineProxyClass(type);
+            if (proxyClass != UNPROXABLE) {
+                Metrics.getMetrics().proxyClassGenerated(type);
+            }
+            return proxyClass;
+        }
+    };
+
+    /**
+     * @return true, if this JVM allows to define hidden or anonymous classes.
+     *         If not, every proxy is created by the default engine.
+     */
+    public static boolean isSupported() {
+        return (definer != null) && (allocateInstance != null);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public <T> T createProxy(final InvocationInterceptor interceptor,
+            final Class<T> type, final Class<?>... interfaces) {
+        if (!isSupported() || ((interfaces != null) && (interfaces.length > 0))) {
+            return null;
+        }
+        ProxyClass proxyClass = proxyClasses.get(type);
+        if (proxyClass == UNPROXABLE) {
+            return null;
+        }
+        if (!proxyClass.used.get()) {
+            proxyClass.used.set(true);
+        }
+        return type.cast(proxyClass.newInstance(interceptor));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean prepare(final Class<?> type) {
+        if (!isSupported()) {
+            return false;
+        }
+        ProxyClass proxyClass = proxyClasses.get(type);
+        return (proxyClass != UNPROXABLE)
+                && proxyClass.used.compareAndSet(false, true);
+    }
+
+    private static ProxyClass defineProxyClass(final Class<?> type) {
+        if (!canProxy(type)) {
+            return UNPROXABLE;
+        }
+        List<Method> methods = interceptedMethods(type);
+        if (methods == null) {
+            return UNPROXABLE;
+        }
+        try {
+            Lookup lookup = definer.define(type, generate(type, methods));
+            Class<?> proxyClass = lookup.lookupClass();
+            lookup.findStaticSetter(proxyClass, METHODS, Method[].class)
+                    .invoke(methods.toArray(new Method[methods.size()]));
+            MethodHandle setHandler = lookup.findSetter(proxyClass, HANDLER,
+                    InvocationHandler.class).asType(
+                    MethodType.methodType(void.class, Object.class,
+                            InvocationHandler.class));
+            return new ProxyClass(proxyClass, setHandler);
+        }
+        catch (Throwable e) {
+            return UNPROXABLE;
+        }
+    }
+
+    private static boolean canProxy(final Class<?> type) {
+        ClassLoader loader = type.getClassLoader();
+        return (loader != null) && !type.isArray() && !type.isPrimitive()
+                && !Modifier.isFinal(type.getModifiers())
+                && !type.isAnonymousClass()
+                && !packageOf(type).startsWith("java.");
+    }
+
+    /**
+     * @return the methods to override, in the order of their index in
+     *         {@value #METHODS}, or null if one of them cannot be overridden
+     *         from within the package of the proxied type.
+     */
+    private static List<Method> interceptedMethods(final Class<?> type) {
+        String packageName = packageOf(type);
+        Set<String> seen = new HashSet<String>();
+        List<Method> methods = new ArrayList<Method>();
+        Set<Class<?>> interfaces = new LinkedHashSet<Class<?>>();
+
+        for (Class<?> c = type.isInterface() ? Object.class : type; c != null; c = c
+                .getSuperclass()) {
+            collect(c, packageName, seen, methods);
+            collectInterfaces(c, interfaces);
+        }
+        if (type.isInterface()) {
+            interfaces.add(type);
+            collectInterfaces(type, interfaces);
+        }
+        for (Class<?> i : interfaces) {
+            collect(i, packageName, seen, methods);
+        }
+
+        for (Method m : methods) {
+            if (!isAccessible(m.getReturnType(), packageName)) {
+                return null;
+            }
+        }
+        return methods;
+    }
+
+    private static void collectInterfaces(final Class<?> c,
+            final Set<Class<?>> interfaces) {
+        for (Class<?> i : c.getInterfaces()) {
+            if (interfaces.add(i)) {
+                collectInterfaces(i, interfaces);
+            }
+        }
+    }
+
+    private static void collect(final Class<?> c, final String packageName,
+            final Set<String> seen, final List<Method> methods) {
+        for (Method m : c.getDeclaredMethods()) {
+            int mod = m.getModifiers();
+            if (Modifier.isStatic(mod) || Modifier.isPrivate(mod)
+                    || !seen.add(m.getName() + Type.getMethodDescriptor(m))) {
+                continue;
+            }
+            boolean packagePrivate = !Modifier.isPublic(mod)
+                    && !Modifier.isProtected(mod);
+            if (m.isBridge() || m.isSynthetic() || Modifier.isFinal(mod)
+                    || (packagePrivate && !packageName.equals(packageOf(c)))
+                    || isFinalizer(m)) {
+                continue;
+            }
+            methods.add(m);
+        }
+    }
+
+    private static boolean isFinalizer(final Method m) {
+        return "finalize".equals(m.getName())
+                && (m.getParameterTypes().length == 0);
+    }
+
+    private static boolean isAccessible(final Class<?> c,
+            final String packageName) {
+        Class<?> t = c;
+        while (t.isArray()) {
+            t = t.getComponentType();
+        }
+        return t.isPrimitive() || Modifier.isPublic(t.getModifiers())
+                || packageName.equals(packageOf(t));
+    }
+
+    private static String packageOf(final Class<?> c) {
+        String name = c.getName();
+        int i = name.lastIndexOf('.');
+        return i < 0 ? "" : name.substring(0, i);
+    }
+
+    private static byte[] generate(final Class<?> type,
+            final List<Method> methods) {
+        String className = Type.getInternalName(type) + "$$ModelFactoryProxy";
+        String superName = type.isInterface() ? OBJECT : Type
+                .getInternalName(type);
+        String[] interfaces = type.isInterface() ? new String[] { Type
+                .getInternalName(type) } : null;
+
+        ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+        cw.visit(V1_5, ACC_PUBLIC | ACC_FINAL | ACC_SUPER | ACC_SYNTHETIC,
+                className, null, superName, interfaces);
+        cw.visitField(ACC_PUBLIC | ACC_STATIC, METHODS,
+                "[Ljava/lang/reflect/Method;", null, null).visitEnd();
+        cw.visitField(ACC_PUBLIC, HANDLER, "L" + INVOCATION_HANDLER + ";",
+                null, null).visitEnd();
+
+        for (int i = 0; i < methods.size(); i++) {
+            generateMethod(cw, className, methods.get(i), i);
+        }
+
+        cw.visitEnd();
+        return cw.toByteArray();
+    }
+
+    private static void generateMethod(final ClassWriter cw,
+            final String className, final Method m, final int index) {
+        int access = m.getModifiers() & (ACC_PUBLIC | ACC_PROTECTED);
+        if (m.isVarArgs()) {
+            access |= ACC_VARARGS;
+        }
+        MethodVisitor mv = cw.visitMethod(access, m.getName(),
+                Type.getMethodDescriptor(m), null, null);
+        mv.visitCode();
+
+        // return handler.invoke(this, methods[index], args);
+        mv.visitVarInsn(ALOAD, 0);
+        mv.visitFieldInsn(GETFIELD, className, HANDLER, "L"
+                + INVOCATION_HANDLER + ";");
+        mv.visitVarInsn(ALOAD, 0);
+        mv.visitFieldInsn(GETSTATIC, className, METHODS,
+                "[Ljava/lang/reflect/Method;");
+        push(mv, index);
+        mv.visitInsn(AALOAD);
+
+        Class<?>[] parameters = m.getParameterTypes();
+        if (parameters.length == 0) {
+            mv.visitInsn(ACONST_NULL);
+        }
+        else {
+            push(mv, parameters.length);
+            mv.visitTypeInsn(ANEWARRAY, OBJECT);
+            int slot = 1;
+            for (int i = 0; i < parameters.length; i++) {
+                Type t = Type.getType(parameters[i]);
+                mv.visitInsn(DUP);
+                push(mv, i);
+                mv.visitVarInsn(t.getOpcode(ILOAD), slot);
+                box(mv, parameters[i]);
+                mv.visitInsn(AASTORE);
+                slot += t.getSize();
+            }
+        }
+        mv.visitMethodInsn(INVOKEINTERFACE, INVOCATION_HANDLER, "invoke",
+                INVOKE_DESC);
+
+        Class<?> returnType = m.getReturnType();
+        if (returnType == void.class) {
+            mv.visitInsn(POP);
+            mv.visitInsn(RETURN);
+        }
+        else {
+            unbox(mv, returnType);
+            mv.visitInsn(Type.getType(returnType).getOpcode(IRETURN));
+        }
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+    }
+
+    private static void push(final MethodVisitor mv, final int i) {
+        if (i <= 5) {
+            mv.visitInsn(ICONST_0 + i);
+        }
+        else if (i <= Byte.MAX_VALUE) {
+            mv.visitIntInsn(BIPUSH, i);
+        }
+        else if (i <= Short.MAX_VALUE) {
+            mv.visitIntInsn(SIPUSH, i);
+        }
+        else {
+            mv.visitLdcInsn(i);
+        }
+    }
+
+    private static void box(final MethodVisitor mv, final Class<?> type) {
+        if (!type.isPrimitive()) {
+            return;
+        }
+        String wrapperName = Type.getInternalName(wrapper(type));
+        mv.visitMethodInsn(INVOKESTATIC, wrapperName, "valueOf", "("
+                + Type.getDescriptor(type) + ")L" + wrapperName + ";");
+    }
+
+    private static void unbox(final MethodVisitor mv, final Class<?> type) {
+        if (!type.isPrimitive()) {
+            mv.visitTypeInsn(CHECKCAST, Type.getInternalName(type));
+            return;
+        }
+        // like native proxies, fails with a NullPointerException on null
+        String wrapperName = Type.getInternalName(wrapper(type));
+        mv.visitTypeInsn(CHECKCAST, wrapperName);
+        mv.visitMethodInsn(INVOKEVIRTUAL, wrapperName, type.getName()
+                + "Value", "()" + Type.getDescriptor(type));
+    }
+
+    private static Class<?> wrapper(final Class<?> primitive) {
+        return MethodType.methodType(primitive).wrap().returnType();
+    }
+
+    private static MethodHandle createAllocator() {
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Field f = unsafeClass.getDeclaredField("theUnsafe");
+            f.setAccessible(true);
+            Method allocate = unsafeClass.getMethod("allocateInstance",
+                    Class.class);
+            return MethodHandles.lookup().unreflect(allocate)
+                    .bindTo(f.get(null));
+        }
+        catch (Exception e) {
+            return null;
+        }
+    }
+
+    private static Definer createDefiner() {
+        try {
+            return new HiddenClassDefiner();
+        }
+        catch (Exception e) {
+            // before Java 15
+        }
+        try {
+            return new AnonymousClassDefiner();
+        }
+        catch (Exception e) {
+            return null;
+        }
+    }
+
+    private interface Definer {
+        /**
+         * @return a Lookup on the defined class with access to its public
+         *         members
+         */
+        Lookup define(Class<?> host, byte[] bytes) throws Throwable;
+    }
+
+    /**
+     * Lookup.defineHiddenClass, Java 15 and later.
+     */
+    private static final class HiddenClassDefiner implements Definer {
+        private static final String LOOKUP_PROVIDER = "ModelFactoryLookup$$";
+
+        private final Method privateLookupIn;
+        private final Method defineClass;
+        private final Method defineHiddenClass;
+        private final Object noOptions;
+
+        HiddenClassDefiner() throws Exception {
+            privateLookupIn = MethodHandles.class.getMethod("privateLookupIn",
+                    Class.class, Lookup.class);
+            defineClass = Lookup.class.getMethod("defineClass", byte[].class);
+            Class<?> option = Class
+                    .forName("java.lang.invoke.MethodHandles$Lookup$ClassOption");
+            noOptions = Array.newInstance(option, 0);
+            defineHiddenClass = Lookup.class.getMethod("defineHiddenClass",
+                    byte[].class, boolean.class, noOptions.getClass());
+        }
+
+        @Override
+        public Lookup define(final Class<?> host, final byte[] bytes)
+                throws Throwable {
+            Lookup hostLookup = (Lookup) privateLookupIn.invoke(null, host,
+                    MethodHandles.lookup());
+            try {
+                return defineHidden(hostLookup, bytes);
+            }
+            catch (IllegalAccessException e) {
+                // host is in another module, i.e. another ClassLoader: ask
+                // a class in its package for a lookup with full privileges
+                return defineHidden(packageLookup(host, hostLookup), bytes);
+            }
+        }
+
+        private Lookup defineHidden(final Lookup lookup, final byte[] bytes)
+                throws Throwable {
+            try {
+                return (Lookup) defineHiddenClass.invoke(lookup, bytes, true,
+                        noOptions);
+            }
+            catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+
+        /**
+         * defines (once per package and loader) a class with a package private
+         * method that returns its own Lookup. Unlike the proxy classes, it is
+         * not hidden and lives as long as the loader of the host does.
+         */
+        private Lookup packageLookup(final Class<?> host,
+                final Lookup hostLookup) throws Throwable {
+            String packageName = packageOf(host);
+            String name = (packageName.isEmpty() ? "" : packageName + ".")
+                    + LOOKUP_PROVIDER;
+            Class<?> provider;
+            try {
+                provider = Class.forName(name, false, host.getClassLoader());
+            }
+            catch (ClassNotFoundException notYetDefined) {
+                try {
+                    provider = (Class<?>) defineClass.invoke(hostLookup,
+                            generateLookupProvider(name));
+                }
+                catch (InvocationTargetException e) {
+                    // defined concurrently
+                    provider = Class.forName(name, false,
+                            host.getClassLoader());
+                }
+            }
+            return (Lookup) hostLookup.findStatic(provider, "lookup",
+                    MethodType.methodType(Lookup.class)).invoke();
+        }
+
+        private static byte[] generateLookupProvider(final String name) {
+            String lookup = Type.getDescriptor(Lookup.class);
+            ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+            cw.visit(V1_5, ACC_FINAL | ACC_SUPER | ACC_SYNTHETIC,
+                    name.replace('.', '/'), null, OBJECT, null);
+            MethodVisitor mv = cw.visitMethod(ACC_STATIC, "lookup", "()"
+                    + lookup, null, null);
+            mv.visitCode();
+            mv.visitMethodInsn(INVOKESTATIC,
+                    Type.getInternalName(MethodHandles.class), "lookup", "()"
+                            + lookup);
+            mv.visitInsn(ARETURN);
+            mv.visitMaxs(0, 0);
+            mv.visitEnd();
+            cw.visitEnd();
+            return cw.toByteArray();
+        }
+    }
+
+    /**
+     * sun.misc.Unsafe.defineAnonymousClass, Java 8 to 16.
+     */
+    private static final class AnonymousClassDefiner implements Definer {
+        private final Object unsafe;
+        private final Method defineAnonymousClass;
+
+        AnonymousClassDefiner() throws Exception {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Field f = unsafeClass.getDeclaredField("theUnsafe");
+            f.setAccessible(true);
+            unsafe = f.get(null);
+            defineAnonymousClass = unsafeClass.getMethod(
+                    "defineAnonymousClass", Class.class, byte[].class,
+                    Object[].class);
+        }
+
+        @Override
+        public Lookup define(final Class<?> host, final byte[] bytes)
+                throws Throwable {
+            Class<?> c = (Class<?>) defineAnonymousClass.invoke(unsafe, host,
+                    bytes, null);
+            return MethodHandles.lookup().in(c);
+        }
+    }
+
+    private static final class ProxyClass {
+        private final Class<?> proxyClass;
+        private final MethodHandle setHandler;
+        /**
+         * set by the first proxy or prepare(), so that prepare() only reports
+         * classes it generated itself.
+         */
+        private final AtomicBoolean used = new AtomicBoolean();
+
+        ProxyClass(final Class<?> proxyClass, final MethodHandle setHandler) {
+            this.proxyClass = proxyClass;
+            this.setHandler = setHandler;
+        }
+
+        Object newInstance(final InvocationHandler handler) {
+            try {
+                Object proxy = allocateInstance.invoke(proxyClass);
+                setHandler.invokeExact(proxy, handler);
+                return proxy;
+            }
+            catch (RuntimeException e) {
+                throw e;
+            }
+            catch (Error e) {
+                throw e;
+            }
+            catch (Throwable e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+}
@@ -17,7 +17,11 @@
 
 package org.wicketeer.modelfactory.internal;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.ref.WeakReference;
+import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.util.Arrays;
 import java.util.Locale;
@@ -30,11 +34,19 @@ import java.util.Locale;
  */
 final class Invocation {
 
+    private static final Object[] NO_ARGS = new Object[0];
+    private static final MethodType GETTER = MethodType
+            .methodType(Object.class, Object.class);
+
     private final Class<?> invokedClass;
     private final Method invokedMethod;
     private String invokedPropertyName;
     private ParameterReference[] weakArgs;
     private transient int hashCode;
+    /**
+     * direct handle for invocations without arguments, resolved lazily.
+     */
+    private MethodHandle getter;
     protected Invocation previousInvocation;
 
     Invocation(final Class<?> invokedClass, final Method invokedMethod,
@@ -58,7 +70,7 @@ final class Invocation {
 
     private Object[] getConcreteArgs() {
         if (this.weakArgs == null) {
-            return new Object[0];
+            return NO_ARGS;
         }
         Object[] args = new Object[this.weakArgs.length];
         for (int i = 0; i < this.weakArgs.length; i++) {
@@ -87,9 +99,14 @@ final class Invocation {
     }
 
     protected Object invokeOn(final Object object) {
+        if (object == null) {
+            return null;
+        }
+        if (this.weakArgs == null) {
+            return invokeGetter(object);
+        }
         try {
-            return object == null ? null
-                    : this.invokedMethod.invoke(object, getConcreteArgs());
+            return this.invokedMethod.invoke(object, getConcreteArgs());
         }
         catch (RuntimeException re) {
             throw re;
@@ -99,6 +116,31 @@ final class Invocation {
         }
     }
 
+    private Object invokeGetter(final Object object) {
+        MethodHandle handle = this.getter;
+        if (handle == null) {
+            try {
+                handle = MethodHandles.lookup().unreflect(this.invokedMethod)
+                        .asType(GETTER);
+            }
+            catch (IllegalAccessException e) {
+                throw new RuntimeException(e);
+            }
+            this.getter = handle;
+        }
+        if (!this.invokedMethod.getDeclaringClass().isInstance(object)) {
+            throw new IllegalArgumentException(
+                    "object is not an instance of declaring class");
+        }
+        try {
+            return handle.invokeExact(object);
+        }
+        catch (Throwable t) {
+            // same as Method.invoke
+            throw new RuntimeException(new InvocationTargetException(t));
+        }
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -199,7 +241,11 @@ final class Invocation {
     }
 
     public static String getPropertyName(final Method invokedMethod) {
-        String methodName = invokedMethod.getName();
+        return getPropertyName(invokedMethod.getName());
+    }
+
+    static String getPropertyName(final String invokedMethodName) {
+        String methodName = invokedMethodName;
         if ((methodName.startsWith("get") || methodName.startsWith("set"))
                 && (methodName.length() > 3)) {
             methodName = methodName.substring(3);
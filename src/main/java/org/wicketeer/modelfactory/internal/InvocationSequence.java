@@ -17,30 +17,164 @@
 
 package org.wicketeer.modelfactory.internal;
 
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
 /**
  * Registers a sequence of method invocations
+ * <p>
+ * Sequences of invocations without arguments are canonical: they form a trie
+ * per root class, so that recording the same path again - in the same or any
+ * later request - resolves to the very same sequence, along with its property
+ * name, accessor chain and jitted invoker, at the cost of one hash lookup per
+ * step. The roots are attached to their classes, so the trie does not keep
+ * class loaders alive. Sequences containing invocations with arguments are
+ * recorded afresh every time.
  *
  * @author Mario Fusco
  * @author Frode Carlsen
  */
 final class InvocationSequence implements Invoker {
 
+    private static final ClassValue<InvocationSequence> roots = new ClassValue<InvocationSequence>() {
+        @Override
+        protected InvocationSequence computeValue(final Class<?> type) {
+            return new InvocationSequence(type, true);
+        }
+    };
+
     private final Class<?> rootInvokedClass;
+    private final InvocationSequence parent;
+    /**
+     * the canonical continuations of this sequence, null if this sequence is
+     * not canonical.
+     */
+    private final ConcurrentMap<Method, InvocationSequence> children;
+    /**
+     * the memoized recording ending in this sequence, see RecordingCache.
+     */
+    private volatile RecordingCache.Recording recording;
     private String inkvokedPropertyName;
     protected Invocation lastInvocation;
     private int hashCode;
+    private AccessorChain accessorChain;
+    /**
+     * the invocations in order, built on first evaluation.
+     */
+    private volatile Invocation[] path;
+    private volatile boolean accessorChainResolved;
 
-    private Invoker invoker = this;
+    private static final AtomicIntegerFieldUpdater<InvocationSequence> JIT_STATE = AtomicIntegerFieldUpdater
+            .newUpdater(InvocationSequence.class, "jitState");
+    private static final int JIT_PENDING = 0;
+    private static final int JIT_SUBMITTED = 1;
+
+    private volatile Invoker invoker = this;
+    private volatile int jitState = JIT_PENDING;
+    /**
+     * only approximate, as it is incremented without synchronization.
+     */
+    private int evaluations;
 
     protected InvocationSequence(final Class<?> rootInvokedClass) {
-        this.rootInvokedClass = rootInvokedClass;
+        this(rootInvokedClass, false);
     }
 
     protected InvocationSequence(final InvocationSequence sequence,
             final Invocation invocation) {
+        this(sequence, invocation, false);
+    }
+
+    private InvocationSequence(final Class<?> rootInvokedClass,
+            final boolean canonical) {
+        this.rootInvokedClass = rootInvokedClass;
+        this.parent = null;
+        this.children = canonical ? new ConcurrentHashMap<Method, InvocationSequence>()
+                : null;
+        this.inkvokedPropertyName = "";
+    }
+
+    private InvocationSequence(final InvocationSequence sequence,
+            final Invocation invocation, final boolean canonical) {
         this.rootInvokedClass = sequence.getRootInvokedClass();
+        this.parent = sequence;
         invocation.previousInvocation = sequence.lastInvocation;
         this.lastInvocation = invocation;
+        if (canonical) {
+            this.children = new ConcurrentHashMap<Method, InvocationSequence>();
+            this.inkvokedPropertyName = calcInkvokedPropertyName();
+        }
+        else {
+            this.children = null;
+        }
+    }
+
+    /**
+     * @param rootInvokedClass
+     *            the class the recording starts from
+     * @return the canonical, empty sequence of the given class
+     */
+    static InvocationSequence root(final Class<?> rootInvokedClass) {
+        return roots.get(rootInvokedClass);
+    }
+
+    /**
+     * @param invokedClass
+     *            the class of the placeholder the method was invoked on
+     * @param method
+     *            the method invoked
+     * @param args
+     *            the arguments of the invocation, may be null
+     * @return this sequence continued by the given invocation, canonical if
+     *         this sequence is canonical and there are no arguments
+     */
+    InvocationSequence append(final Class<?> invokedClass, final Method method,
+            final Object[] args) {
+        if ((this.children == null) || ((args != null) && (args.length > 0))) {
+            return new InvocationSequence(this, new Invocation(invokedClass,
+                    method, args), false);
+        }
+        InvocationSequence child = this.children.get(method);
+        if (child == null) {
+            child = new InvocationSequence(this, new Invocation(invokedClass,
+                    method, null), true);
+            InvocationSequence raced = this.children.putIfAbsent(method, child);
+            if (raced != null) {
+                child = raced;
+            }
+        }
+        return child;
+    }
+
+    /**
+     * @param method
+     *            the method invoked
+     * @return the canonical continuation by the given method, if it was
+     *         appended before, otherwise null
+     */
+    InvocationSequence getChild(final Method method) {
+        return this.children == null ? null : this.children.get(method);
+    }
+
+    RecordingCache.Recording getRecording() {
+        return this.recording;
+    }
+
+    void setRecording(final RecordingCache.Recording recording) {
+        this.recording = recording;
+    }
+
+    /**
+     * @return true, if this sequence is shared by all recordings of its path
+     */
+    boolean isCanonical() {
+        return this.children != null;
     }
 
     protected Class<?> getRootInvokedClass() {
@@ -58,19 +192,43 @@ final class InvocationSequence implements Invoker {
         if (null == this.lastInvocation) {
             return "";
         }
-        StringBuilder sb = new StringBuilder();
+        String name = this.lastInvocation.getInvokedPropertyName();
+        String parentName = this.parent.getInkvokedPropertyName();
+        return parentName.isEmpty() ? name : parentName + "." + name;
+    }
 
-        calcInkvokedPropertyName(this.lastInvocation,
-                this.lastInvocation.previousInvocation, sb);
-        return sb.substring(1);
+    /**
+     * @return the chain of getters expressed by this sequence, or null if it
+     *         is empty or contains invocations with arguments.
+     */
+    protected AccessorChain getAccessorChain() {
+        if (!this.accessorChainResolved) {
+            this.accessorChain = calcAccessorChain();
+            this.accessorChainResolved = true;
+        }
+        return this.accessorChain;
     }
 
-    private void calcInkvokedPropertyName(final Invocation inv,
-            final Invocation prevInv, final StringBuilder sb) {
-        if (prevInv != null) {
-            calcInkvokedPropertyName(prevInv, prevInv.previousInvocation, sb);
+    private AccessorChain calcAccessorChain() {
+        List<Method> methods = new ArrayList<Method>();
+        for (Invocation invocation : getInvocations()) {
+            if (invocation.hasArguments()) {
+                return null;
+            }
+            methods.add(invocation.getInvokedMethod());
         }
-        sb.append(".").append(inv.getInvokedPropertyName());
+        return AccessorChain.of(methods);
+    }
+
+    /**
+     * @return the invocations of this sequence in order of invocation
+     */
+    protected List<Invocation> getInvocations() {
+        LinkedList<Invocation> invocations = new LinkedList<Invocation>();
+        for (Invocation invocation = this.lastInvocation; invocation != null; invocation = invocation.previousInvocation) {
+            invocations.addFirst(invocation);
+        }
+        return invocations;
     }
 
     protected Class<?> getReturnType() {
@@ -103,36 +261,58 @@ final class InvocationSequence implements Invoker {
     }
 
     public Object evaluate(final Object object) {
-        // if (!jitDone && needsJitting.compareAndSet(true, false)) {
-        // jitDone = true;
-        // if (executor != null) {
-        // executor.submit(new Runnable() {
-        // public void run() {
-        // invoker = new InvokerJitter(object,
-        // InvocationSequence.this).jitInvoker();
-        // }
-        // });
-        // }
-        // }
+        if ((this.jitState == JIT_PENDING) && needsJitting()) {
+            jit();
+        }
         return this.invoker.invokeOn(object);
     }
 
-    @Override
-    public Object invokeOn(final Object object) {
-        return invokeOn(this.lastInvocation, object);
+    Invoker getInvoker() {
+        return this.invoker;
     }
 
-    private Object invokeOn(final Invocation invocation, Object value) {
+    private boolean needsJitting() {
+        int threshold = InvokerJitter.getThreshold();
+        return (threshold > 0) && (++this.evaluations >= threshold)
+                && JIT_STATE.compareAndSet(this, JIT_PENDING, JIT_SUBMITTED);
+    }
 
-        Object ret = value;
+    private void jit() {
+        try {
+            InvokerJitter.getExecutor().execute(new Runnable() {
+                @Override
+                public void run() {
+                    Invoker jitted = new InvokerJitter(InvocationSequence.this)
+                            .jitInvoker();
+                    if (jitted != null) {
+                        InvocationSequence.this.invoker = jitted;
+                    }
+                }
+            });
+        }
+        catch (RejectedExecutionException e) {
+            // stay with reflection
+        }
+    }
 
-        if (invocation == null) {
-            return ret;
+    @Override
+    public Object invokeOn(final Object object) {
+        Invocation[] path = getPath();
+        Object ret = object;
+        // there is nothing to invoke the rest of the path on
+        for (int i = 0; (i < path.length) && (ret != null); i++) {
+            ret = path[i].invokeOn(ret);
         }
-        if (invocation.previousInvocation != null) {
-            ret = invokeOn(invocation.previousInvocation, ret);
+        return ret;
+    }
+
+    private Invocation[] getPath() {
+        Invocation[] path = this.path;
+        if (path == null) {
+            path = getInvocations().toArray(new Invocation[0]);
+            this.path = path;
         }
-        return invocation.invokeOn(ret);
+        return path;
     }
 
     @Override
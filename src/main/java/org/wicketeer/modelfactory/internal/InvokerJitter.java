@@ -0,0 +1,341 @@
+//
+//
+// Copyright 2012-2012 Uwe Schäfer <uwe@codesmell.de>
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+
+
+package org.wicketeer.modelfactory.internal;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import net.sf.cglib.asm.ClassWriter;
+import net.sf.cglib.asm.Label;
+import net.sf.cglib.asm.MethodVisitor;
+import net.sf.cglib.asm.Opcodes;
+import net.sf.cglib.asm.Type;
+import net.sf.cglib.core.ReflectUtils;
+
+/**
+ * Generates an {@link Invoker} class, that calls the getters of an
+ * InvocationSequence directly instead of going through reflection. Jitting is
+ * triggered by {@link InvocationSequence#evaluate(Object)} after a
+ * configurable number of evaluations and runs on a background executor. If
+ * code generation is not possible (invocations with arguments, inaccessible
+ * classes or methods) or fails, the sequence keeps using reflection.
+ * <p>
+ * Invoker classes are defined in the class loader of the sequence's root
+ * class, one per distinct getter chain, and are unloaded along with it. To
+ * bound their number, no more than {@link #getMaximumClassCount()} classes are
+ * generated; further sequences keep using reflection.
+ *
+ * @author uweschaefer
+ */
+public final class InvokerJitter implements Opcodes {
+
+    /**
+     * default number of evaluations of a sequence before it gets jitted.
+     */
+    public static final int DEFAULT_THRESHOLD = 1000;
+
+    /**
+     * default maximum number of Invoker classes to generate.
+     */
+    public static final int DEFAULT_MAXIMUM_CLASS_COUNT = 10000;
+
+    private static final String INVOKER = Type.getInternalName(Invoker.class);
+    private static final String OBJECT = Type.getInternalName(Object.class);
+    private static final String ILLEGAL_ARGUMENT = Type
+            .getInternalName(IllegalArgumentException.class);
+    private static final String RUNTIME_EXCEPTION = Type
+            .getInternalName(RuntimeException.class);
+    private static final String INVOCATION_TARGET_EXCEPTION = Type
+            .getInternalName(InvocationTargetException.class);
+    private static final String INVOKE_ON = "invokeOn";
+    private static final String INVOKE_ON_DESC = "(Ljava/lang/Object;)Ljava/lang/Object;";
+
+    /**
+     * numbers the generated classes, including those that failed to load.
+     */
+    private static final AtomicInteger counter = new AtomicInteger();
+    private static final AtomicInteger classCount = new AtomicInteger();
+
+    private static volatile int threshold = DEFAULT_THRESHOLD;
+    private static volatile int maximumClassCount = DEFAULT_MAXIMUM_CLASS_COUNT;
+    private static volatile Executor executor;
+
+    private final InvocationSequence sequence;
+
+    InvokerJitter(final InvocationSequence sequence) {
+        this.sequence = sequence;
+    }
+
+    /**
+     * @param evaluations
+     *            number of evaluations of a sequence, before a direct-call
+     *            Invoker is generated for it. Values &lt; 1 disable jitting.
+     */
+    public static void setThreshold(final int evaluations) {
+        threshold = evaluations;
+    }
+
+    /**
+     * @return number of evaluations of a sequence, before a direct-call
+     *         Invoker is generated for it.
+     */
+    public static int getThreshold() {
+        return threshold;
+    }
+
+    /**
+     * @param count
+     *            maximum number of Invoker classes to generate. Once reached,
+     *            sequences keep using reflection.
+     */
+    public static void setMaximumClassCount(final int count) {
+        maximumClassCount = count;
+    }
+
+    /**
+     * @return maximum number of Invoker classes to generate
+     */
+    public static int getMaximumClassCount() {
+        return maximumClassCount;
+    }
+
+    /**
+     * @return number of Invoker classes generated so far
+     */
+    public static int getClassCount() {
+        return classCount.get();
+    }
+
+    /**
+     * @param executorToUse
+     *            the executor to generate Invokers on. If null, a single
+     *            daemon thread is used.
+     */
+    public static void setExecutor(final Executor executorToUse) {
+        executor = executorToUse;
+    }
+
+    static Executor getExecutor() {
+        Executor e = executor;
+        if (e == null) {
+            synchronized (InvokerJitter.class) {
+                e = executor;
+                if (e == null) {
+                    e = createDefaultExecutor();
+                    executor = e;
+                }
+            }
+        }
+        return e;
+    }
+
+    private static ExecutorService createDefaultExecutor() {
+        return Executors.newSingleThreadExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(final Runnable r) {
+                Thread t = new Thread(r, "modelfactory-invoker-jitter");
+                t.setDaemon(true);
+                return t;
+            }
+        });
+    }
+
+    /**
+     * @return a generated Invoker or null, if the sequence cannot be jitted.
+     */
+    Invoker jitInvoker() {
+        List<Invocation> invocations = sequence.getInvocations();
+        if ((invocations == null) || invocations.isEmpty()
+                || (classCount.get() >= maximumClassCount)) {
+            return null;
+        }
+
+        ClassLoader loader = sequence.getRootInvokedClass().getClassLoader();
+        String packageName = packageOf(sequence.getRootInvokedClass());
+        if (!canJit(invocations, loader, packageName)) {
+            // maybe all public, try from our own loader
+            loader = InvokerJitter.class.getClassLoader();
+            packageName = packageOf(InvokerJitter.class);
+            if (!canJit(invocations, loader, packageName)) {
+                return null;
+            }
+        }
+
+        String className = packageName + (packageName.isEmpty() ? "" : ".")
+                + "InvokerByModelFactory$$" + counter.incrementAndGet();
+        try {
+            Class<?> invokerClass = ReflectUtils.defineClass(className,
+                    generate(className, invocations), loader);
+            Invoker invoker = (Invoker) invokerClass.getDeclaredConstructor()
+                    .newInstance();
+            classCount.incrementAndGet();
+            return invoker;
+        }
+        catch (Exception e) {
+            return null;
+        }
+        catch (LinkageError e) {
+            return null;
+        }
+    }
+
+    private static String packageOf(final Class<?> c) {
+        String name = c.getName();
+        int i = name.lastIndexOf('.');
+        return i < 0 ? "" : name.substring(0, i);
+    }
+
+    private static boolean canJit(final List<Invocation> invocations,
+            final ClassLoader loader, final String packageName) {
+        if ((loader == null) || packageName.startsWith("java.")
+                || !isVisible(Invoker.class, loader)) {
+            return false;
+        }
+        for (Invocation invocation : invocations) {
+            Method m = invocation.getInvokedMethod();
+            Class<?> c = m.getDeclaringClass();
+            if (invocation.hasArguments() || !isVisible(c, loader)
+                    || !isVisible(m.getReturnType(), loader)) {
+                return false;
+            }
+            int mod = m.getModifiers();
+            if (Modifier.isPrivate(mod) || Modifier.isStatic(mod)) {
+                return false;
+            }
+            boolean samePackage = packageName.equals(packageOf(c));
+            if (!samePackage && !(Modifier.isPublic(mod)
+                    && Modifier.isPublic(c.getModifiers()))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isVisible(final Class<?> c,
+            final ClassLoader loader) {
+        if (c.isPrimitive()) {
+            return true;
+        }
+        if (c.isArray()) {
+            return isVisible(c.getComponentType(), loader);
+        }
+        try {
+            return Class.forName(c.getName(), false, loader) == c;
+        }
+        catch (ClassNotFoundException e) {
+            return false;
+        }
+    }
+
+    private static byte[] generate(final String className,
+            final List<Invocation> invocations) {
+        String internalName = className.replace('.', '/');
+        ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+        cw.visit(V1_5, ACC_PUBLIC | ACC_FINAL | ACC_SUPER, internalName, null,
+                OBJECT, new String[] { INVOKER });
+
+        MethodVisitor init = cw.visitMethod(ACC_PUBLIC, "<init>", "()V", null,
+                null);
+        init.visitCode();
+        init.visitVarInsn(ALOAD, 0);
+        init.visitMethodInsn(INVOKESPECIAL, OBJECT, "<init>", "()V");
+        init.visitInsn(RETURN);
+        init.visitMaxs(0, 0);
+        init.visitEnd();
+
+        MethodVisitor mv = cw.visitMethod(ACC_PUBLIC, INVOKE_ON,
+                INVOKE_ON_DESC, null, null);
+        mv.visitCode();
+        Label returnNull = new Label();
+        Label wrongType = new Label();
+        Label getterStart = new Label();
+        Label getterEnd = new Label();
+        Label getterFailed = new Label();
+        mv.visitTryCatchBlock(getterStart, getterEnd, getterFailed,
+                "java/lang/Throwable");
+        mv.visitVarInsn(ALOAD, 1);
+        mv.visitLabel(getterStart);
+        Class<?> returnType = Object.class;
+        for (Invocation invocation : invocations) {
+            // the stack holds the current target, return it if it is null
+            mv.visitInsn(DUP);
+            mv.visitJumpInsn(IFNULL, returnNull);
+
+            Method m = invocation.getInvokedMethod();
+            Class<?> owner = m.getDeclaringClass();
+            String ownerName = Type.getInternalName(owner);
+            // same exception as the reflective Invocation
+            mv.visitInsn(DUP);
+            mv.visitTypeInsn(INSTANCEOF, ownerName);
+            mv.visitJumpInsn(IFEQ, wrongType);
+            mv.visitTypeInsn(CHECKCAST, ownerName);
+            mv.visitMethodInsn(owner.isInterface() ? INVOKEINTERFACE
+                    : INVOKEVIRTUAL, ownerName, m.getName(),
+                    Type.getMethodDescriptor(m));
+            returnType = m.getReturnType();
+        }
+        mv.visitLabel(getterEnd);
+        box(mv, returnType);
+        mv.visitLabel(returnNull);
+        mv.visitInsn(ARETURN);
+        mv.visitLabel(wrongType);
+        mv.visitTypeInsn(NEW, ILLEGAL_ARGUMENT);
+        mv.visitInsn(DUP);
+        mv.visitLdcInsn("object is not an instance of declaring class");
+        mv.visitMethodInsn(INVOKESPECIAL, ILLEGAL_ARGUMENT, "<init>",
+                "(Ljava/lang/String;)V");
+        mv.visitInsn(ATHROW);
+        // same as Method.invoke and the reflective Invocation
+        mv.visitLabel(getterFailed);
+        mv.visitVarInsn(ASTORE, 2);
+        mv.visitTypeInsn(NEW, RUNTIME_EXCEPTION);
+        mv.visitInsn(DUP);
+        mv.visitTypeInsn(NEW, INVOCATION_TARGET_EXCEPTION);
+        mv.visitInsn(DUP);
+        mv.visitVarInsn(ALOAD, 2);
+        mv.visitMethodInsn(INVOKESPECIAL, INVOCATION_TARGET_EXCEPTION,
+                "<init>", "(Ljava/lang/Throwable;)V");
+        mv.visitMethodInsn(INVOKESPECIAL, RUNTIME_EXCEPTION, "<init>",
+                "(Ljava/lang/Throwable;)V");
+        mv.visitInsn(ATHROW);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+
+        cw.visitEnd();
+        return cw.toByteArray();
+    }
+
+    private static void box(final MethodVisitor mv, final Class<?> type) {
+        if (!type.isPrimitive()) {
+            return;
+        }
+        Class<?> wrapper = java.lang.invoke.MethodType.methodType(type)
+                .wrap().returnType();
+        String wrapperName = Type.getInternalName(wrapper);
+        mv.visitMethodInsn(INVOKESTATIC, wrapperName, "valueOf", "("
+                + Type.getDescriptor(type) + ")L" + wrapperName + ";");
+    }
+}
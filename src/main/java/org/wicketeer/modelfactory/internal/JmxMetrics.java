@@ -0,0 +1,232 @@
+//
+//
+// Copyright 2012-2012 Uwe Schäfer <uwe@codesmell.de>
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+package org.wicketeer.modelfactory.internal;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Counts the events of {@link ModelFactoryMetrics} and exposes them as an
+ * MBean. Usually installed in Application.init() and uninstalled in
+ * onDestroy():
+ * <code>
+ * JmxMetrics metrics = new JmxMetrics();
+ * metrics.register();
+ * Metrics.setMetrics(metrics);
+ * </code>
+ *
+ * @author uweschaefer
+ */
+public final class JmxMetrics implements ModelFactoryMetrics, JmxMetricsMBean {
+
+    /**
+     * the name {@link #register()} uses.
+     */
+    public static final String OBJECT_NAME = "org.wicketeer.modelfactory:type=Metrics";
+
+    private final LongAdder proxyClasses = new LongAdder();
+    private final LongAdder proxies = new LongAdder();
+    private final LongAdder finalClassInstances = new LongAdder();
+    private final LongAdder[] discoveries = new LongAdder[TypeDiscovery
+            .values().length];
+    private final Timer recordings = new Timer();
+    private final Timer evaluations = new Timer();
+
+    private ObjectName registeredName;
+
+    public JmxMetrics() {
+        for (int i = 0; i < discoveries.length; i++) {
+            discoveries[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * registers this MBean under {@value #OBJECT_NAME} with the platform
+     * MBeanServer.
+     *
+     * @throws IllegalStateException
+     *             if the registration fails, e.g. because there already is an
+     *             MBean of that name
+     */
+    public synchronized void register() throws IllegalStateException {
+        try {
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this,
+                    name);
+            registeredName = name;
+        }
+        catch (JMException e) {
+            throw new IllegalStateException("Cannot register " + OBJECT_NAME,
+                    e);
+        }
+    }
+
+    /**
+     * removes this MBean from the platform MBeanServer, if it was registered.
+     */
+    public synchronized void unregister() {
+        if (registeredName == null) {
+            return;
+        }
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            server.unregisterMBean(registeredName);
+        }
+        catch (JMException e) {
+            // already gone
+        }
+        registeredName = null;
+    }
+
+    @Override
+    public void proxyClassGenerated(final Class<?> type) {
+        proxyClasses.increment();
+    }
+
+    @Override
+    public void proxyCreated(final Class<?> type) {
+        proxies.increment();
+    }
+
+    @Override
+    public void finalClassInstantiated(final Class<?> type) {
+        finalClassInstances.increment();
+    }
+
+    @Override
+    public void modelTypeDiscovered(final TypeDiscovery discovery) {
+        discoveries[discovery.ordinal()].increment();
+    }
+
+    @Override
+    public void pathRecorded(final long nanos) {
+        recordings.record(nanos);
+    }
+
+    @Override
+    public void modelEvaluated(final long nanos) {
+        evaluations.record(nanos);
+    }
+
+    @Override
+    public long getProxyClassCount() {
+        return proxyClasses.sum();
+    }
+
+    @Override
+    public long getProxyCount() {
+        return proxies.sum();
+    }
+
+    @Override
+    public long getFinalClassInstanceCount() {
+        return finalClassInstances.sum();
+    }
+
+    @Override
+    public long getDeclaredTypeDiscoveryCount() {
+        return discoveries[TypeDiscovery.DECLARED_TYPE.ordinal()].sum();
+    }
+
+    @Override
+    public long getObjectClassAwareDiscoveryCount() {
+        return discoveries[TypeDiscovery.OBJECT_CLASS_AWARE.ordinal()].sum();
+    }
+
+    @Override
+    public long getAnonymousClassDiscoveryCount() {
+        return discoveries[TypeDiscovery.ANONYMOUS_CLASS.ordinal()].sum();
+    }
+
+    @Override
+    public long getModelObjectDiscoveryCount() {
+        return discoveries[TypeDiscovery.MODEL_OBJECT.ordinal()].sum();
+    }
+
+    @Override
+    public long getRecordingCount() {
+        return recordings.count.sum();
+    }
+
+    @Override
+    public long getRecordingMeanNanos() {
+        return recordings.mean();
+    }
+
+    @Override
+    public long getRecordingMaxNanos() {
+        return recordings.max.get();
+    }
+
+    @Override
+    public long getEvaluationCount() {
+        return evaluations.count.sum();
+    }
+
+    @Override
+    public long getEvaluationMeanNanos() {
+        return evaluations.mean();
+    }
+
+    @Override
+    public long getEvaluationMaxNanos() {
+        return evaluations.max.get();
+    }
+
+    @Override
+    public void reset() {
+        proxyClasses.reset();
+        proxies.reset();
+        finalClassInstances.reset();
+        for (LongAdder d : discoveries) {
+            d.reset();
+        }
+        recordings.reset();
+        evaluations.reset();
+    }
+
+    private static final class Timer {
+        private final LongAdder count = new LongAdder();
+        private final LongAdder total = new LongAdder();
+        private final AtomicLong max = new AtomicLong();
+
+        void record(final long nanos) {
+            count.increment();
+            total.add(nanos);
+            long current = max.get();
+            while ((nanos > current) && !max.compareAndSet(current, nanos)) {
+                current = max.get();
+            }
+        }
+
+        long mean() {
+            long n = count.sum();
+            return n == 0 ? 0 : total.sum() / n;
+        }
+
+        void reset() {
+            count.reset();
+            total.reset();
+            max.set(0);
+        }
+    }
+}
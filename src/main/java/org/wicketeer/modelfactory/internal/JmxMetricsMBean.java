@@ -0,0 +1,56 @@
+//
+//
+// Copyright 2012-2012 Uwe Schäfer <uwe@codesmell.de>
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+package org.wicketeer.modelfactory.internal;
+
+/**
+ * The management interface of {@link JmxMetrics}. Times are in nanoseconds.
+ *
+ * @author uweschaefer
+ */
+public interface JmxMetricsMBean {
+
+    long getProxyClassCount();
+
+    long getProxyCount();
+
+    long getFinalClassInstanceCount();
+
+    long getDeclaredTypeDiscoveryCount();
+
+    long getObjectClassAwareDiscoveryCount();
+
+    long getAnonymousClassDiscoveryCount();
+
+    long getModelObjectDiscoveryCount();
+
+    long getRecordingCount();
+
+    long getRecordingMeanNanos();
+
+    long getRecordingMaxNanos();
+
+    long getEvaluationCount();
+
+    long getEvaluationMeanNanos();
+
+    long getEvaluationMaxNanos();
+
+    /**
+     * sets all counters and timers back to zero.
+     */
+    void reset();
+}
@@ -0,0 +1,60 @@
+//
+//
+// Copyright 2012-2012 Uwe Schäfer <uwe@codesmell.de>
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+package org.wicketeer.modelfactory.internal;
+
+/**
+ * Holds the {@link ModelFactoryMetrics} in use. There are none by default.
+ * The hot paths check {@link #isEnabled()} before they report anything, so
+ * that disabled metrics cost no more than a static field read.
+ *
+ * @author uweschaefer
+ */
+public final class Metrics {
+
+    private static final ModelFactoryMetrics NONE = new ModelFactoryMetrics() {
+    };
+
+    private static volatile ModelFactoryMetrics metrics = NONE;
+
+    /**
+     * hide.
+     */
+    private Metrics() {
+    }
+
+    /**
+     * @param metricsToUse
+     *            receives all events from now on, null to disable metrics
+     */
+    public static void setMetrics(final ModelFactoryMetrics metricsToUse) {
+        metrics = metricsToUse == null ? NONE : metricsToUse;
+    }
+
+    /**
+     * @return the metrics in use, a no-op implementation if disabled
+     */
+    public static ModelFactoryMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * @return true, if metrics were set. Guards measuring times.
+     */
+    public static boolean isEnabled() {
+        return metrics != NONE;
+    }
+}
@@ -0,0 +1,181 @@
+//
+//
+// Copyright 2012-2012 Uwe Schäfer <uwe@codesmell.de>
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+
+
+package org.wicketeer.modelfactory.internal;
+
+import java.util.concurrent.Callable;
+
+/**
+ * Holds all state of a recording in progress: the root reference passed to
+ * from() and the mapping of the last placeholder to its Argument. Where the
+ * context of the current thread comes from is decided by the configured
+ * {@link ContextStrategy}, unless a context has been bound explicitly.
+ *
+ * @author uweschaefer
+ */
+public final class ModelFactoryContext {
+
+    private static final ThreadLocal<ModelFactoryContext> bound = new ThreadLocal<ModelFactoryContext>();
+
+    private static volatile ContextStrategy strategy = new RequestCycleContextStrategy();
+
+    private final ArgumentsFactory.ArgumentMapping argumentMapping;
+    private Object root;
+
+    /**
+     * creates an empty context. Contexts are not thread-safe.
+     */
+    public ModelFactoryContext() {
+        this(false);
+    }
+
+    /**
+     * creates an empty context.
+     *
+     * @param detached
+     *            true if the context is bound only while from(), path() and
+     *            the like are called, not while the getters of a recording
+     *            are. Its placeholders then call back into it directly and
+     *            are never shared with other contexts through the
+     *            {@link RecordingCache}.
+     */
+    public ModelFactoryContext(final boolean detached) {
+        argumentMapping = new ArgumentsFactory.ArgumentMapping(detached);
+    }
+
+    /**
+     * @return the context bound to the current thread or, if there is none,
+     *         the one provided by the configured strategy
+     * @throws IllegalStateException
+     *             if the strategy cannot provide a context
+     */
+    public static ModelFactoryContext get() throws IllegalStateException {
+        ModelFactoryContext context = bound.get();
+        if (context != null) {
+            return context;
+        }
+        return strategy.getContext();
+    }
+
+    /**
+     * binds a context to the current thread, taking precedence over the
+     * configured strategy.
+     *
+     * @param context
+     *            the context to bind, null to unbind
+     * @return the context bound before, or null
+     */
+    public static ModelFactoryContext bind(final ModelFactoryContext context) {
+        ModelFactoryContext previous = bound.get();
+        if (context == null) {
+            bound.remove();
+        }
+        else {
+            bound.set(context);
+        }
+        return previous;
+    }
+
+    /**
+     * Runs a task with the given context bound to the current thread, and
+     * restores the previous binding afterwards. Nothing is left on the thread,
+     * which makes this the way to record on virtual threads or in tasks of
+     * a pool: pass each task a context of its own, or the context of the
+     * parent task to continue a recording the parent started. The parent
+     * must not record while the task runs, and a context must not be passed
+     * to two tasks running at the same time.
+     *
+     * @param context
+     *            the context to record in
+     * @param task
+     *            the task to run
+     */
+    public static void runWith(final ModelFactoryContext context,
+            final Runnable task) {
+        ModelFactoryContext previous = bind(context);
+        Thread owner = context.argumentMapping.adopt();
+        try {
+            task.run();
+        }
+        finally {
+            context.argumentMapping.restoreOwner(owner);
+            bind(previous);
+        }
+    }
+
+    /**
+     * Calls a task with the given context bound to the current thread.
+     *
+     * @param context
+     *            the context to record in
+     * @param task
+     *            the task to call
+     * @return the task's result
+     * @throws Exception
+     *             if the task throws one
+     * @see #runWith(ModelFactoryContext, Runnable)
+     */
+    public static <V> V callWith(final ModelFactoryContext context,
+            final Callable<V> task) throws Exception {
+        ModelFactoryContext previous = bind(context);
+        Thread owner = context.argumentMapping.adopt();
+        try {
+            return task.call();
+        }
+        finally {
+            context.argumentMapping.restoreOwner(owner);
+            bind(previous);
+        }
+    }
+
+    /**
+     * @param strategyToUse
+     *            where to get contexts from. If null, a
+     *            {@link RequestCycleContextStrategy} without fallback is used.
+     */
+    public static void setStrategy(final ContextStrategy strategyToUse) {
+        strategy = strategyToUse == null ? new RequestCycleContextStrategy()
+                : strategyToUse;
+    }
+
+    /**
+     * @return the strategy contexts are taken from
+     */
+    public static ContextStrategy getStrategy() {
+        return strategy;
+    }
+
+    /**
+     * @return the object registered by from(), or null
+     */
+    public Object getRoot() {
+        return root;
+    }
+
+    /**
+     * @param root
+     *            the object registered by from(), null to remove it
+     */
+    public void setRoot(final Object root) {
+        this.root = root;
+    }
+
+    ArgumentsFactory.ArgumentMapping getArgumentMapping() {
+        return argumentMapping;
+    }
+}
@@ -0,0 +1,96 @@
+//
+//
+// Copyright 2012-2012 Uwe Schäfer <uwe@codesmell.de>
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+package org.wicketeer.modelfactory.internal;
+
+/**
+ * Receives events from the internals of wicket-modelfactory, e.g. to feed
+ * them into a metrics library. Install an implementation with
+ * {@link Metrics#setMetrics(ModelFactoryMetrics)}; {@link JmxMetrics} exposes
+ * them as an MBean. All methods do nothing by default, and are called on the
+ * recording and evaluating threads, so they must be thread-safe and fast.
+ *
+ * @author uweschaefer
+ */
+public interface ModelFactoryMetrics {
+
+    /**
+     * how from(IModel) found the type of the model object.
+     */
+    enum TypeDiscovery {
+        /**
+         * the type argument of the model class.
+         */
+        DECLARED_TYPE,
+        /**
+         * {@link org.apache.wicket.model.IObjectClassAwareModel#getObjectClass()}.
+         */
+        OBJECT_CLASS_AWARE,
+        /**
+         * the type argument of the anonymous model class.
+         */
+        ANONYMOUS_CLASS,
+        /**
+         * the class of the model object, last resort.
+         */
+        MODEL_OBJECT
+    }
+
+    /**
+     * @param type
+     *            the class a recording proxy class was generated for
+     */
+    default void proxyClassGenerated(final Class<?> type) {
+    }
+
+    /**
+     * @param type
+     *            the class a recording proxy was created for
+     */
+    default void proxyCreated(final Class<?> type) {
+    }
+
+    /**
+     * @param type
+     *            the final class, that was instantiated by Objenesis as it
+     *            cannot be proxied
+     */
+    default void finalClassInstantiated(final Class<?> type) {
+    }
+
+    /**
+     * @param discovery
+     *            the way from(IModel) found the type of the model object
+     */
+    default void modelTypeDiscovered(final TypeDiscovery discovery) {
+    }
+
+    /**
+     * @param nanos
+     *            the time from the start of a recording by from() or
+     *            fromClass() up to its completion by path(), model() or
+     *            argument()
+     */
+    default void pathRecorded(final long nanos) {
+    }
+
+    /**
+     * @param nanos
+     *            the time getObject() of a model created by model() took
+     */
+    default void modelEvaluated(final long nanos) {
+    }
+}
@@ -0,0 +1,76 @@
+//
+//
+// Copyright 2012-2012 Uwe Schäfer <uwe@codesmell.de>
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+package org.wicketeer.modelfactory.internal;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Values to use instead of null, by type. Instances are immutable,
+ * {@link #with(Class, Object)} returns a copy.
+ *
+ * @author uweschaefer
+ * @see NullSafeEvaluator
+ */
+public final class NullDefaults {
+
+    /**
+     * no defaults at all, null stays null.
+     */
+    public static final NullDefaults NONE = new NullDefaults(
+            new IdentityHashMap<Class<?>, Object>());
+
+    /**
+     * zero, false and '\0' for the primitive types, so that a chain ending
+     * in a primitive never evaluates to null.
+     */
+    public static final NullDefaults PRIMITIVE_ZEROS = NONE
+            .with(boolean.class, false).with(int.class, 0)
+            .with(long.class, 0L).with(double.class, 0D)
+            .with(float.class, 0F).with(short.class, (short) 0)
+            .with(byte.class, (byte) 0).with(char.class, '\0');
+
+    private final Map<Class<?>, Object> defaults;
+
+    private NullDefaults(final Map<Class<?>, Object> defaults) {
+        this.defaults = defaults;
+    }
+
+    /**
+     * @param type
+     *            the type to define a default for. Primitive types must be
+     *            given a value of their wrapper type.
+     * @param value
+     *            the value to use instead of null
+     * @return a copy of these defaults with the given one added or replaced
+     */
+    public <V> NullDefaults with(final Class<V> type, final V value) {
+        Map<Class<?>, Object> copy = new IdentityHashMap<Class<?>, Object>(
+                defaults);
+        copy.put(type, value);
+        return new NullDefaults(copy);
+    }
+
+    /**
+     * @param type
+     *            the return type of a chain
+     * @return the default for exactly that type, or null
+     */
+    public Object get(final Class<?> type) {
+        return defaults.get(type);
+    }
+}
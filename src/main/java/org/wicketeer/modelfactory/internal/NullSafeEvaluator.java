@@ -0,0 +1,138 @@
+//
+//
+// Copyright 2012-2012 Uwe Schäfer <uwe@codesmell.de>
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+package org.wicketeer.modelfactory.internal;
+
+import java.lang.invoke.MethodHandle;
+
+/**
+ * Evaluates a chain of getters up to the first null in it, instead of passing
+ * null through the remaining getters. Where the chain evaluates to null, the
+ * default for its return type is returned, and an optional listener is told
+ * which getter could not be invoked. Getters are invoked through the compiled
+ * handles of the {@link AccessorChain}, and evaluations that do not hit null
+ * allocate nothing.
+ *
+ * @author uweschaefer
+ */
+public final class NullSafeEvaluator<T> {
+
+    /**
+     * is told where evaluation stopped, e.g. for logging.
+     */
+    public interface NullListener {
+        /**
+         * @param chain
+         *            the chain evaluated
+         * @param segment
+         *            index of the first getter, that could not be invoked
+         *            because the object to invoke it on was null. 0 if the
+         *            root was null.
+         * @param root
+         *            the object evaluation started from
+         */
+        void nullSegment(AccessorChain chain, int segment, Object root);
+    }
+
+    private final AccessorChain chain;
+    private final MethodHandle[] getters;
+    private final T defaultValue;
+    private final NullListener listener;
+
+    private NullSafeEvaluator(final AccessorChain chain,
+            final T defaultValue, final NullListener listener) {
+        this.chain = chain;
+        this.getters = chain.getGetters();
+        this.defaultValue = defaultValue;
+        this.listener = listener;
+    }
+
+    /**
+     * @param argument
+     *            a recorded chain of getters
+     * @param defaults
+     *            where to take the value from, that is returned instead of
+     *            null
+     * @param listener
+     *            to tell about null segments, may be null
+     * @return an evaluator for the given argument
+     * @throws IllegalArgumentException
+     *             if the argument invokes methods with arguments
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> NullSafeEvaluator<T> of(final Argument<T> argument,
+            final NullDefaults defaults, final NullListener listener)
+            throws IllegalArgumentException {
+        AccessorChain chain = argument.getAccessorChain();
+        if (chain == null) {
+            throw new IllegalArgumentException(
+                    "Only chains of getters can be evaluated null-safe: "
+                            + argument);
+        }
+        return new NullSafeEvaluator<T>(chain,
+                (T) defaults.get(chain.getReturnType()), listener);
+    }
+
+    /**
+     * @param argument
+     *            a recorded chain of getters
+     * @param defaults
+     *            where to take the value from, that is returned instead of
+     *            null
+     * @return an evaluator for the given argument
+     * @throws IllegalArgumentException
+     *             if the argument invokes methods with arguments
+     */
+    public static <T> NullSafeEvaluator<T> of(final Argument<T> argument,
+            final NullDefaults defaults) throws IllegalArgumentException {
+        return of(argument, defaults, null);
+    }
+
+    /**
+     * @param root
+     *            the object to evaluate the chain on
+     * @return the value of the chain, or the default for its return type, if
+     *         it is null or any getter on the way to it returned null
+     */
+    @SuppressWarnings("unchecked")
+    public T evaluate(final Object root) {
+        Object value = root;
+        for (int i = 0; i < getters.length; i++) {
+            if (value == null) {
+                if (listener != null) {
+                    listener.nullSegment(chain, i, root);
+                }
+                return defaultValue;
+            }
+            value = AccessorChain.invokeGetter(getters[i], value);
+        }
+        return value == null ? defaultValue : (T) value;
+    }
+
+    /**
+     * @return the value returned instead of null
+     */
+    public T getDefaultValue() {
+        return defaultValue;
+    }
+
+    /**
+     * @return the chain evaluated
+     */
+    public AccessorChain getChain() {
+        return chain;
+    }
+}
@@ -0,0 +1,121 @@
+//
+//
+// Copyright 2012-2012 Uwe Schäfer <uwe@codesmell.de>
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+
+package org.wicketeer.modelfactory.internal;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Canonicalizes property paths and accessor chains when models are serialized
+ * and deserialized, so that the copies read back share one instance with
+ * each other and with the live models written. Besides saving memory, this
+ * makes Java serialization write a path only once per stream - i.e. once per
+ * page in Wicket's page store - and refer back to it for every further model.
+ * Models created by recording share their paths already and are not interned.
+ * Entries are weak and vanish with the last model using them. The table takes
+ * no lock, so neither serializing threads nor virtual threads wait for each
+ * other.
+ *
+ * @author uweschaefer
+ */
+public final class PathTable {
+
+    private static final ConcurrentMap<Entry, Entry> table = new ConcurrentHashMap<Entry, Entry>();
+
+    private static final ReferenceQueue<Object> collected = new ReferenceQueue<Object>();
+
+    /**
+     * hide.
+     */
+    private PathTable() {
+    }
+
+    /**
+     * @param value
+     *            a path string or an {@link AccessorChain}, may be null
+     * @return the canonical instance equal to the given value
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> T intern(final T value) {
+        if (value == null) {
+            return null;
+        }
+        expunge();
+        Entry entry = new Entry(value, collected);
+        while (true) {
+            Entry existing = table.putIfAbsent(entry, entry);
+            if (existing == null) {
+                return value;
+            }
+            Object canonical = existing.get();
+            if (canonical != null) {
+                return (T) canonical;
+            }
+            // collected, but not yet expunged
+            table.remove(existing, existing);
+        }
+    }
+
+    /**
+     * @return the number of canonical instances currently held
+     */
+    public static int getSize() {
+        expunge();
+        return table.size();
+    }
+
+    private static void expunge() {
+        Reference<?> ref;
+        while ((ref = collected.poll()) != null) {
+            table.remove(ref);
+        }
+    }
+
+    /**
+     * a weak reference that is equal to all entries referring to an equal
+     * value. Once cleared, it is only equal to itself.
+     */
+    private static final class Entry extends WeakReference<Object> {
+        private final int hash;
+
+        Entry(final Object value, final ReferenceQueue<Object> queue) {
+            super(value, queue);
+            hash = value.hashCode();
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            if (obj == this) {
+                return true;
+            }
+            if (!(obj instanceof Entry)) {
+                return false;
+            }
+            Object value = get();
+            return (value != null) && value.equals(((Entry) obj).get());
+        }
+    }
+}
@@ -0,0 +1,213 @@
+//
+//
+// Copyright 2012-2012 Uwe Schäfer <uwe@codesmell.de>
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+
+package org.wicketeer.modelfactory.internal;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Evaluates several Arguments - the columns - on many root objects - the
+ * rows - at once, e.g. to export a list of beans. Values are written into one
+ * array per column. Null roots and nulls along the way evaluate to null, just
+ * as with {@link Argument#evaluate(Object)}.
+ * <p>
+ * Inputs of at least {@link #getParallelThreshold()} rows are split into
+ * chunks that are evaluated in a ForkJoinPool, the common pool unless
+ * {@link #setPool(ForkJoinPool)} was called. The Arguments must not take
+ * arguments that are changed concurrently, and the getters they call must be
+ * safe to be called from several threads.
+ *
+ * @author uweschaefer
+ * @see Argument#evaluateAll(List)
+ */
+public final class Projection {
+
+    /**
+     * the default number of rows from which on evaluation is parallel.
+     */
+    public static final int DEFAULT_PARALLEL_THRESHOLD = 10000;
+
+    /**
+     * chunks are not split any further.
+     */
+    private static final int MINIMUM_CHUNK_SIZE = 1024;
+
+    private static volatile int parallelThreshold = DEFAULT_PARALLEL_THRESHOLD;
+    private static volatile ForkJoinPool pool;
+
+    private final Argument<?>[] columns;
+
+    private Projection(final Argument<?>[] columns) {
+        this.columns = columns;
+    }
+
+    /**
+     * @param columns
+     *            the Arguments to evaluate on every row, in column order
+     * @return a Projection evaluating the given Arguments
+     * @throws NullPointerException
+     *             if any of the columns is null
+     */
+    public static Projection of(final Argument<?>... columns)
+            throws NullPointerException {
+        Argument<?>[] copy = columns.clone();
+        for (Argument<?> column : copy) {
+            if (column == null) {
+                throw new NullPointerException("column must not be null");
+            }
+        }
+        return new Projection(copy);
+    }
+
+    /**
+     * @see #of(Argument...)
+     */
+    public static Projection of(final List<? extends Argument<?>> columns)
+            throws NullPointerException {
+        return of(columns.toArray(new Argument<?>[columns.size()]));
+    }
+
+    /**
+     * @param rows
+     *            number of rows from which on evaluation is split across the
+     *            ForkJoinPool. Values &lt; 1 disable parallel evaluation.
+     */
+    public static void setParallelThreshold(final int rows) {
+        parallelThreshold = rows;
+    }
+
+    public static int getParallelThreshold() {
+        return parallelThreshold;
+    }
+
+    /**
+     * @param forkJoinPool
+     *            the pool for parallel evaluation, null for the common pool
+     */
+    public static void setPool(final ForkJoinPool forkJoinPool) {
+        pool = forkJoinPool;
+    }
+
+    public int getColumnCount() {
+        return columns.length;
+    }
+
+    /**
+     * @param roots
+     *            the objects to evaluate the columns on
+     * @return the values, indexed by column, then row
+     */
+    public Object[][] evaluate(final List<?> roots) {
+        Object[][] values = new Object[columns.length][roots.size()];
+        evaluate(roots, values);
+        return values;
+    }
+
+    /**
+     * Evaluates into preallocated arrays, so that they can be reused for
+     * subsequent batches.
+     *
+     * @param roots
+     *            the objects to evaluate the columns on
+     * @param values
+     *            one array per column, each at least as long as roots
+     * @throws IllegalArgumentException
+     *             if there are too few or too short arrays
+     */
+    public void evaluate(final List<?> roots, final Object[][] values)
+            throws IllegalArgumentException {
+        if (values.length < columns.length) {
+            throw new IllegalArgumentException("expected " + columns.length
+                    + " columns, but got " + values.length);
+        }
+        for (int c = 0; c < columns.length; c++) {
+            if (values[c].length < roots.size()) {
+                throw new IllegalArgumentException("column " + c
+                        + " is too short for " + roots.size() + " rows");
+            }
+        }
+        evaluate(columns, roots, values);
+    }
+
+    static void evaluate(final Argument<?>[] columns, final List<?> roots,
+            final Object[][] values) {
+        List<?> rows = roots instanceof RandomAccess ? roots : Arrays
+                .asList(roots.toArray());
+        int size = rows.size();
+        int threshold = parallelThreshold;
+        if ((threshold < 1) || (size < threshold)) {
+            evaluate(columns, rows, values, 0, size);
+            return;
+        }
+        ForkJoinPool forkJoinPool = pool;
+        if (forkJoinPool == null) {
+            forkJoinPool = ForkJoinPool.commonPool();
+        }
+        int chunkSize = Math.max(MINIMUM_CHUNK_SIZE,
+                size / (forkJoinPool.getParallelism() * 4));
+        forkJoinPool.invoke(new Chunk(columns, rows, values, 0, size,
+                chunkSize));
+    }
+
+    private static void evaluate(final Argument<?>[] columns,
+            final List<?> rows, final Object[][] values, final int from,
+            final int to) {
+        for (int r = from; r < to; r++) {
+            Object root = rows.get(r);
+            for (int c = 0; c < columns.length; c++) {
+                values[c][r] = root == null ? null : columns[c].evaluate(root);
+            }
+        }
+    }
+
+    private static final class Chunk extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final Argument<?>[] columns;
+        private final List<?> rows;
+        private final Object[][] values;
+        private final int from;
+        private final int to;
+        private final int chunkSize;
+
+        Chunk(final Argument<?>[] columns, final List<?> rows,
+                final Object[][] values, final int from, final int to,
+                final int chunkSize) {
+            this.columns = columns;
+            this.rows = rows;
+            this.values = values;
+            this.from = from;
+            this.to = to;
+            this.chunkSize = chunkSize;
+        }
+
+        @Override
+        protected void compute() {
+            if ((to - from) <= chunkSize) {
+                evaluate(columns, rows, values, from, to);
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new Chunk(columns, rows, values, from, middle, chunkSize),
+                    new Chunk(columns, rows, values, middle, to, chunkSize));
+        }
+    }
+}
@@ -0,0 +1,55 @@
+//
+//
+// Copyright 2012-2012 Uwe Schäfer <uwe@codesmell.de>
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+
+
+package org.wicketeer.modelfactory.internal;
+
+import java.io.Serializable;
+
+/**
+ * Reads and writes a property, that is reached from a root object by a fixed
+ * sequence of getters.
+ *
+ * @author uweschaefer
+ */
+public interface PropertyAccessor extends Serializable {
+
+    /**
+     * @param root
+     *            the object to evaluate on
+     * @return true, if the root object is compatible to this accessor
+     */
+    boolean accepts(Object root);
+
+    /**
+     * @param root
+     *            the object to start evaluation from. Must be accepted by
+     *            {@link #accepts(Object)}.
+     * @return the property value, or null if anything on the way to it is null
+     */
+    Object get(Object root);
+
+    /**
+     * @param root
+     *            the object to start evaluation from
+     * @param value
+     *            the value to set
+     * @return false if the value could not be set directly, in which case
+     *         nothing was changed.
+     */
+    boolean set(Object root, Object value);
+}
@@ -24,16 +24,35 @@ import java.lang.reflect.Method;
  */
 class ProxyArgument extends InvocationInterceptor {
 
+    private final ArgumentsFactory.ArgumentMapping mapping;
+
     private final Class<?> proxiedClass;
 
-    private final InvocationSequence invocationSequence;
+    private InvocationSequence invocationSequence;
 
-    ProxyArgument(final Class<?> proxiedClass,
+    /**
+     * @param mapping
+     *            the mapping to record into, null to record into the one of
+     *            the current context
+     */
+    ProxyArgument(final ArgumentsFactory.ArgumentMapping mapping,
+            final Class<?> proxiedClass,
             final InvocationSequence invocationSequence) {
+        this.mapping = mapping;
         this.proxiedClass = proxiedClass;
         this.invocationSequence = invocationSequence;
     }
 
+    /**
+     * lets a reused placeholder stand for another sequence.
+     *
+     * @param sequence
+     *            the sequence, further invocations are appended to
+     */
+    void rebind(final InvocationSequence sequence) {
+        this.invocationSequence = sequence;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -60,12 +79,9 @@ class ProxyArgument extends InvocationInterceptor {
         if ("equals".equals(name)) {
             return this.invocationSequence.equals(args[0]);
         }
-        Class<?> returnType = method.getReturnType();
-
         // Adds this invocation to the current invocation sequence and creates a
         // new proxy propagating the invocation sequence
-        return ArgumentsFactory.createArgument(returnType,
-                new InvocationSequence(this.invocationSequence,
-                        new Invocation(this.proxiedClass, method, args)));
+        return ArgumentsFactory.createArgument(this.mapping,
+                this.invocationSequence, this.proxiedClass, method, args);
     }
 }
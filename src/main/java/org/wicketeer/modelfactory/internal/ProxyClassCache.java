@@ -0,0 +1,295 @@
+//
+//
+// Copyright 2012-2012 Uwe Schäfer <uwe@codesmell.de>
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+package org.wicketeer.modelfactory.internal;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Holds generated proxy classes (or prototypes of them) per proxied class.
+ * Entries are attached to the proxied class by a ClassValue, so they never
+ * keep a class loader alive on their own, unlike maps with weak keys, whose
+ * values refer back to the key. Each cache holds at most
+ * {@link #getMaximumSize()} entries and evicts the least recently used ones
+ * beyond that; {@link #purge(ClassLoader)} drops everything of an undeployed
+ * application right away.
+ * {@link org.wicketeer.modelfactory.ModelFactoryInitializer} calls it when a
+ * Wicket Application is destroyed.
+ *
+ * @author uweschaefer
+ * @param <V>
+ *            the type of the cached values
+ */
+public final class ProxyClassCache<V> {
+
+    /**
+     * the maximum size per cache, if you do not want to tune it.
+     */
+    public static final int DEFAULT_MAXIMUM_SIZE = 4096;
+
+    private static volatile int maximumSize = DEFAULT_MAXIMUM_SIZE;
+
+    private static final AtomicLong evictions = new AtomicLong();
+
+    private static final List<ProxyClassCache<?>> caches = new CopyOnWriteArrayList<ProxyClassCache<?>>();
+
+    /**
+     * approximate clock for the least recently used order, incremented
+     * without synchronization.
+     */
+    private static int clock;
+
+    private final ClassValue<Entry<V>> entries = new ClassValue<Entry<V>>() {
+        @Override
+        protected Entry<V> computeValue(final Class<?> type) {
+            return new Entry<V>();
+        }
+    };
+
+    /**
+     * the classes with an entry, to enumerate them for eviction and purging.
+     */
+    private final Map<ClassKey, Boolean> keys = new ConcurrentHashMap<ClassKey, Boolean>();
+
+    private final ReferenceQueue<Class<?>> collected = new ReferenceQueue<Class<?>>();
+
+    private final AtomicInteger size = new AtomicInteger();
+
+    ProxyClassCache() {
+        caches.add(this);
+    }
+
+    /**
+     * @param size
+     *            maximum number of entries per cache, values &lt; 1 remove
+     *            the limit
+     */
+    public static void setMaximumSize(final int size) {
+        maximumSize = size;
+        for (ProxyClassCache<?> cache : caches) {
+            cache.evictIfFull();
+        }
+    }
+
+    /**
+     * @return maximum number of entries per cache, 0 if unlimited
+     */
+    public static int getMaximumSize() {
+        return Math.max(0, maximumSize);
+    }
+
+    /**
+     * @return number of entries in all caches
+     */
+    public static int getSize() {
+        int total = 0;
+        for (ProxyClassCache<?> cache : caches) {
+            cache.expungeCollected();
+            total += cache.size.get();
+        }
+        return total;
+    }
+
+    /**
+     * @return number of entries evicted because a cache was full
+     */
+    public static long getEvictionCount() {
+        return evictions.get();
+    }
+
+    /**
+     * drops all entries for classes defined by the given class loader or one
+     * of its descendants, e.g. when a web application is undeployed. Does
+     * nothing for null, the bootstrap loader.
+     *
+     * @param loader
+     *            the class loader to forget
+     * @return number of entries dropped
+     */
+    public static int purge(final ClassLoader loader) {
+        if (loader == null) {
+            return 0;
+        }
+        int purged = 0;
+        for (ProxyClassCache<?> cache : caches) {
+            purged += cache.removeIf(loader);
+        }
+        return purged;
+    }
+
+    /**
+     * drops all entries.
+     */
+    public static void clear() {
+        for (ProxyClassCache<?> cache : caches) {
+            for (ClassKey key : cache.keys.keySet()) {
+                cache.remove(key);
+            }
+        }
+    }
+
+    /**
+     * @return the cached value for the given class, or null
+     */
+    V get(final Class<?> type) {
+        Entry<V> entry = entries.get(type);
+        V value = entry.value;
+        if (value != null) {
+            entry.lastUsed = clock++;
+        }
+        return value;
+    }
+
+    void put(final Class<?> type, final V value) {
+        Entry<V> entry = entries.get(type);
+        entry.lastUsed = clock++;
+        entry.value = value;
+        if (keys.put(new ClassKey(type, collected), Boolean.TRUE) == null) {
+            size.incrementAndGet();
+        }
+        expungeCollected();
+        evictIfFull();
+    }
+
+    private int removeIf(final ClassLoader loader) {
+        int removed = 0;
+        for (ClassKey key : keys.keySet()) {
+            Class<?> type = key.get();
+            if ((type != null) && isDefinedBy(type, loader) && remove(key)) {
+                removed++;
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * @param type
+     *            the class to check
+     * @param loader
+     *            a class loader, not null
+     * @return true, if the class was defined by the given loader or one of
+     *         its descendants
+     */
+    public static boolean isDefinedBy(final Class<?> type,
+            final ClassLoader loader) {
+        for (ClassLoader l = type.getClassLoader(); l != null; l = l
+                .getParent()) {
+            if (l == loader) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean remove(final ClassKey key) {
+        if (keys.remove(key) == null) {
+            return false;
+        }
+        size.decrementAndGet();
+        Class<?> type = key.get();
+        if (type != null) {
+            entries.remove(type);
+        }
+        return true;
+    }
+
+    private void expungeCollected() {
+        for (Reference<?> ref = collected.poll(); ref != null; ref = collected
+                .poll()) {
+            if (keys.remove(ref) != null) {
+                size.decrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * evicts the least recently used eighth of the entries, once the maximum
+     * size is exceeded.
+     */
+    private synchronized void evictIfFull() {
+        int max = maximumSize;
+        if ((max < 1) || (size.get() <= max)) {
+            return;
+        }
+        final Map<ClassKey, Integer> lastUsed = new HashMap<ClassKey, Integer>();
+        List<ClassKey> candidates = new ArrayList<ClassKey>();
+        for (ClassKey key : keys.keySet()) {
+            Class<?> type = key.get();
+            if (type != null) {
+                lastUsed.put(key, entries.get(type).lastUsed);
+                candidates.add(key);
+            }
+        }
+        Collections.sort(candidates, new Comparator<ClassKey>() {
+            @Override
+            public int compare(final ClassKey a, final ClassKey b) {
+                return Integer.compare(lastUsed.get(a), lastUsed.get(b));
+            }
+        });
+        int target = max - (max / 8);
+        for (int i = 0; (i < candidates.size()) && (size.get() > target); i++) {
+            if (remove(candidates.get(i))) {
+                evictions.incrementAndGet();
+            }
+        }
+    }
+
+    private static final class Entry<V> {
+        private volatile V value;
+        private int lastUsed;
+    }
+
+    /**
+     * weak reference to a class with identity semantics.
+     */
+    private static final class ClassKey extends WeakReference<Class<?>> {
+        private final int hash;
+
+        ClassKey(final Class<?> type, final ReferenceQueue<Class<?>> queue) {
+            super(type, queue);
+            this.hash = System.identityHashCode(type);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            if (obj == this) {
+                return true;
+            }
+            if (!(obj instanceof ClassKey)) {
+                return false;
+            }
+            Object type = get();
+            return (type != null) && (type == ((ClassKey) obj).get());
+        }
+    }
+}
@@ -0,0 +1,56 @@
+//
+//
+// Copyright 2012-2012 Uwe Schäfer <uwe@codesmell.de>
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+
+package org.wicketeer.modelfactory.internal;
+
+/**
+ * Creates the recording proxies that {@link ArgumentsFactory} hands out as
+ * placeholders. The engine in use is chosen by
+ * {@link ProxyUtil#setEngine(ProxyEngine)} or the system property
+ * {@value ProxyUtil#ENGINE_PROPERTY}. Whatever the chosen engine cannot proxy
+ * is passed on to the default {@link CglibProxyEngine}.
+ *
+ * @author uweschaefer
+ */
+public interface ProxyEngine {
+
+    /**
+     * @param interceptor
+     *            receives every invocation on the proxy
+     * @param type
+     *            the class or interface to proxy
+     * @param interfaces
+     *            additional interfaces the proxy has to implement, may be
+     *            empty
+     * @return a new proxy, or null if this engine cannot proxy the given type
+     */
+    <T> T createProxy(InvocationInterceptor interceptor, Class<T> type,
+            Class<?>... interfaces);
+
+    /**
+     * Generates and caches the proxy class of the given type ahead of time,
+     * see {@link ProxyPrewarmer}. Engines that cannot tell whether a class was
+     * generated report every type they can proxy.
+     *
+     * @param type
+     *            the class or interface to proxy
+     * @return true, if a proxy class was generated by this call
+     */
+    default boolean prepare(final Class<?> type) {
+        return createProxy(ProxyUtil.NOOP, type) != null;
+    }
+}
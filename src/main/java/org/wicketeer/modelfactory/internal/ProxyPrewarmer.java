@@ -0,0 +1,223 @@
+//
+//
+// Copyright 2012-2012 Uwe Schäfer <uwe@codesmell.de>
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+package org.wicketeer.modelfactory.internal;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Generates the recording proxies of a domain model ahead of time, typically
+ * in Application.init(), so that the first requests after a deploy do not pay
+ * for class generation. Starting from the given classes, every class reachable
+ * by public getters is prepared with the {@link ProxyEngine} in use, just as if
+ * a path through it had been recorded. Classes of the JDK are prepared when
+ * they are returned by a getter, but not searched for further getters.
+ *
+ * @author uweschaefer
+ * @see ProxyUtil#setEngine(ProxyEngine)
+ */
+public final class ProxyPrewarmer {
+
+    /**
+     * hide.
+     */
+    private ProxyPrewarmer() {
+    }
+
+    /**
+     * prepares the proxies in the calling thread.
+     *
+     * @param classes
+     *            the classes to start from
+     * @return what was done
+     */
+    public static Report prewarm(final Class<?>... classes) {
+        return prewarm(null, classes);
+    }
+
+    /**
+     * @param pool
+     *            the pool to prepare the proxies in, e.g.
+     *            {@link ForkJoinPool#commonPool()} to use all cores, null to
+     *            prepare them in the calling thread
+     * @param classes
+     *            the classes to start from
+     * @return what was done
+     */
+    public static Report prewarm(final ForkJoinPool pool,
+            final Class<?>... classes) {
+        Walk walk = new Walk();
+        long start = System.nanoTime();
+        List<Class<?>> roots = new ArrayList<Class<?>>();
+        for (Class<?> c : classes) {
+            if (walk.enqueue(c)) {
+                roots.add(c);
+            }
+        }
+        if (pool == null) {
+            Deque<Class<?>> todo = new ArrayDeque<Class<?>>(roots);
+            while (!todo.isEmpty()) {
+                todo.addAll(walk.visit(todo.poll()));
+            }
+        }
+        else {
+            pool.invoke(new PrepareTask(walk, roots));
+        }
+        return new Report(walk.classes.get(), walk.generated.get(),
+                System.nanoTime() - start);
+    }
+
+    /**
+     * the outcome of {@link ProxyPrewarmer#prewarm(Class...)}.
+     */
+    public static final class Report {
+        private final int classCount;
+        private final int generatedCount;
+        private final long nanos;
+
+        Report(final int classCount, final int generatedCount,
+                final long nanos) {
+            this.classCount = classCount;
+            this.generatedCount = generatedCount;
+            this.nanos = nanos;
+        }
+
+        /**
+         * @return the number of classes, that can now be recorded on without
+         *         generating a proxy class
+         */
+        public int getClassCount() {
+            return classCount;
+        }
+
+        /**
+         * @return the number of proxy classes generated, classes that had
+         *         been proxied before are not counted
+         */
+        public int getGeneratedCount() {
+            return generatedCount;
+        }
+
+        /**
+         * @param unit
+         *            the unit to return the time in
+         * @return the time it took
+         */
+        public long getDuration(final TimeUnit unit) {
+            return unit.convert(nanos, TimeUnit.NANOSECONDS);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public String toString() {
+            return "generated " + generatedCount + " proxy classes for "
+                    + classCount + " classes in "
+                    + getDuration(TimeUnit.MILLISECONDS) + "ms";
+        }
+    }
+
+    private static final class Walk {
+        private final Set<Class<?>> seen = ConcurrentHashMap.newKeySet();
+        private final AtomicInteger classes = new AtomicInteger();
+        private final AtomicInteger generated = new AtomicInteger();
+
+        /**
+         * @return true, if the class is to be prepared and was not seen before
+         */
+        boolean enqueue(final Class<?> c) {
+            return (c != null) && !c.isArray() && ProxyUtil.isProxable(c)
+                    && seen.add(c);
+        }
+
+        /**
+         * prepares the given class.
+         *
+         * @return the classes reachable by its getters, that were not seen
+         *         before
+         */
+        List<Class<?>> visit(final Class<?> c) {
+            try {
+                if (ProxyUtil.prepare(c)) {
+                    generated.incrementAndGet();
+                }
+                classes.incrementAndGet();
+            }
+            catch (RuntimeException e) {
+                // recording on it will fail just the same
+            }
+            List<Class<?>> next = new ArrayList<Class<?>>();
+            if (isJdk(c)) {
+                return next;
+            }
+            for (Method m : c.getMethods()) {
+                if ((m.getParameterTypes().length == 0)
+                        && !Modifier.isStatic(m.getModifiers())
+                        && (m.getDeclaringClass() != Object.class)
+                        && enqueue(m.getReturnType())) {
+                    next.add(m.getReturnType());
+                }
+            }
+            return next;
+        }
+
+        private static boolean isJdk(final Class<?> c) {
+            String name = c.getName();
+            return name.startsWith("java.") || name.startsWith("javax.");
+        }
+    }
+
+    private static final class PrepareTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final transient Walk walk;
+        private final transient List<Class<?>> classes;
+
+        PrepareTask(final Walk walk, final List<Class<?>> classes) {
+            this.walk = walk;
+            this.classes = classes;
+        }
+
+        @Override
+        protected void compute() {
+            if (classes.size() == 1) {
+                List<Class<?>> next = walk.visit(classes.get(0));
+                if (!next.isEmpty()) {
+                    new PrepareTask(walk, next).compute();
+                }
+                return;
+            }
+            List<PrepareTask> subtasks = new ArrayList<PrepareTask>();
+            for (Class<?> c : classes) {
+                subtasks.add(new PrepareTask(walk, Collections
+                        .<Class<?>> singletonList(c)));
+            }
+            invokeAll(subtasks);
+        }
+    }
+}
@@ -17,14 +17,10 @@
 
 package org.wicketeer.modelfactory.internal;
 
-import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
-import java.lang.reflect.Proxy;
 import java.util.Collection;
 
-import net.sf.cglib.proxy.Enhancer;
-import net.sf.cglib.proxy.MethodInterceptor;
-
 /**
  * An utility class of static factory methods that provide facilities to create
  * proxies
@@ -32,12 +28,70 @@ import net.sf.cglib.proxy.MethodInterceptor;
  * @author Mario Fusco
  * @author Sebastian Jancke
  */
-@SuppressWarnings("unchecked")
 public final class ProxyUtil {
 
+    /**
+     * System property to choose the {@link ProxyEngine}: "cglib" (the
+     * default), "hidden" for the {@link HiddenClassProxyEngine} or the name of
+     * a ProxyEngine class with a public no-arg constructor.
+     */
+    public static final String ENGINE_PROPERTY = "org.wicketeer.modelfactory.proxyEngine";
+
+    private static final ProxyEngine DEFAULT_ENGINE = new CglibProxyEngine();
+
+    /**
+     * answers every invocation with null, used for proxies that are never
+     * invoked.
+     */
+    static final InvocationInterceptor NOOP = new InvocationInterceptor() {
+        @Override
+        public Object invoke(final Object proxy, final Method method,
+                final Object[] args) {
+            return null;
+        }
+    };
+
+    private static volatile ProxyEngine engine = createEngine(System
+            .getProperty(ENGINE_PROPERTY));
+
     private ProxyUtil() {
     }
 
+    /**
+     * Chooses the engine for all proxies created from now on. Call this from
+     * your Application's init() to override the system property.
+     * 
+     * @param proxyEngine
+     *            the engine to use, null to reset to the default
+     */
+    public static void setEngine(final ProxyEngine proxyEngine) {
+        engine = proxyEngine == null ? DEFAULT_ENGINE : proxyEngine;
+    }
+
+    public static ProxyEngine getEngine() {
+        return engine;
+    }
+
+    static ProxyEngine createEngine(final String name) {
+        if ((name == null) || name.trim().isEmpty()
+                || "cglib".equals(name.trim())) {
+            return DEFAULT_ENGINE;
+        }
+        if ("hidden".equals(name.trim())) {
+            return new HiddenClassProxyEngine();
+        }
+        try {
+            return (ProxyEngine) Class
+                    .forName(name.trim(), true,
+                            ProxyUtil.class.getClassLoader())
+                    .getDeclaredConstructor().newInstance();
+        }
+        catch (Exception e) {
+            throw new IllegalArgumentException("Cannot create ProxyEngine '"
+                    + name + "'", e);
+        }
+    }
+
     public static boolean isProxable(final Class<?> clazz) {
         return !clazz.isPrimitive() && !Modifier.isFinal(clazz.getModifiers())
                 && !clazz.isAnonymousClass();
@@ -46,29 +100,35 @@ public final class ProxyUtil {
     protected static <T> T createProxy(final InvocationInterceptor interceptor,
             final Class<T> clazz, final boolean failSafe,
             final Class<?>... implementedInterface) {
-        if (clazz.isInterface()) {
-            return (T) createNativeJavaProxy(clazz.getClassLoader(),
-                    interceptor, concatClasses(new Class<?>[] { clazz },
-                            implementedInterface));
-        }
-        try {
-            Enhancer e = createEnhancer(interceptor, clazz,
+        ProxyEngine e = engine;
+        T proxy = e.createProxy(interceptor, clazz, implementedInterface);
+        if ((proxy == null) && (e != DEFAULT_ENGINE)) {
+            proxy = DEFAULT_ENGINE.createProxy(interceptor, clazz,
                     implementedInterface);
-            return (T) e.create();
         }
-        catch (IllegalArgumentException iae) {
-            if (Proxy.isProxyClass(clazz)) {
-                return (T) createNativeJavaProxy(clazz.getClassLoader(),
-                        interceptor, concatClasses(implementedInterface,
-                                clazz.getInterfaces()));
-            }
-            if (isProxable(clazz)) {
-                return ClassImposterizer.INSTANCE.imposterise(interceptor,
-                        clazz, implementedInterface);
-            }
+        if (proxy == null) {
             return manageUnproxableClass(clazz, failSafe);
         }
+        if (Metrics.isEnabled()) {
+            Metrics.getMetrics().proxyCreated(clazz);
+        }
+        return proxy;
+    }
 
+    /**
+     * Generates the proxy class of the given type with the engine, that
+     * {@link #createProxy(InvocationInterceptor, Class, boolean, Class...)}
+     * would use for it.
+     *
+     * @return true, if a proxy class was generated
+     */
+    static boolean prepare(final Class<?> clazz) {
+        ProxyEngine e = engine;
+        if (e.prepare(clazz)) {
+            return true;
+        }
+        return (e != DEFAULT_ENGINE) && (e.createProxy(NOOP, clazz) == null)
+                && DEFAULT_ENGINE.prepare(clazz);
     }
 
     public static String enumerate(final Collection<?> l,
@@ -94,38 +154,4 @@ public final class ProxyUtil {
         }
         throw new UnproxableClassException(clazz);
     }
-
-    // ////////////////////////////////////////////////////////////////////////
-    // /// Private
-    // ////////////////////////////////////////////////////////////////////////
-
-    private static Enhancer createEnhancer(final MethodInterceptor interceptor,
-            final Class<?> clazz, final Class<?>... interfaces) {
-        Enhancer enhancer = new Enhancer();
-        enhancer.setCallback(interceptor);
-        enhancer.setSuperclass(clazz);
-        if (interfaces != null && interfaces.length > 0) {
-            enhancer.setInterfaces(interfaces);
-        }
-        return enhancer;
-    }
-
-    private static Object createNativeJavaProxy(final ClassLoader classLoader,
-            final InvocationHandler interceptor, final Class<?>... interfaces) {
-        return Proxy.newProxyInstance(classLoader, interfaces, interceptor);
-    }
-
-    private static Class<?>[] concatClasses(final Class<?>[] first,
-            final Class<?>[] second) {
-        if (first == null || first.length == 0) {
-            return second;
-        }
-        if (second == null || second.length == 0) {
-            return first;
-        }
-        Class<?>[] concatClasses = new Class[first.length + second.length];
-        System.arraycopy(first, 0, concatClasses, 0, first.length);
-        System.arraycopy(second, 0, concatClasses, first.length, second.length);
-        return concatClasses;
-    }
 }
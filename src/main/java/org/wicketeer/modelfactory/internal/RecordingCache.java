@@ -0,0 +1,313 @@
+//
+//
+// Copyright 2012-2012 Uwe Schäfer <uwe@codesmell.de>
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+
+
+package org.wicketeer.modelfactory.internal;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Memoizes recordings, so that a call site like
+ * <code>model(from(item).getFoo().getBar())</code>, that runs once per row
+ * and render, creates its InvocationSequences and placeholders only once.
+ * Recordings are kept on the canonical InvocationSequence they end in, that
+ * is per root class and sequence of methods invoked on it; on a hit, the
+ * placeholder, its Argument and thus the property path, accessor chain and
+ * jitted Invoker of the first recording are reused. Invocations with
+ * arguments are never memoized.
+ * <p>
+ * Memoization is opt-in: it is disabled until a maximum size greater than zero
+ * is set. Lookups take no lock. Once the cache is full, the least recently
+ * used eighth of the recordings is evicted, in the approximate order
+ * {@link ProxyClassCache} uses. Eviction is guarded by a ReentrantLock rather
+ * than a monitor, as virtual threads waiting for a monitor pin their carrier
+ * thread, and threads finding it taken do not wait for it at all.
+ *
+ * @author uweschaefer
+ */
+public final class RecordingCache {
+
+    /**
+     * a reasonable maximum size, if you do not want to tune it.
+     */
+    public static final int DEFAULT_MAXIMUM_SIZE = 10000;
+
+    private static final LongAdder hits = new LongAdder();
+    private static final LongAdder misses = new LongAdder();
+
+    private static volatile int maximumSize;
+
+    /**
+     * approximate clock for the least recently used order, incremented
+     * without synchronization.
+     */
+    private static int clock;
+
+    /**
+     * the sequences holding a recording, to enumerate them for eviction and
+     * purging.
+     */
+    private static final Map<InvocationSequence, Boolean> sequences = new ConcurrentHashMap<InvocationSequence, Boolean>();
+
+    private static final AtomicInteger size = new AtomicInteger();
+
+    private static final ReentrantLock evictionLock = new ReentrantLock();
+
+    /**
+     * hide.
+     */
+    private RecordingCache() {
+    }
+
+    /**
+     * @param size
+     *            maximum number of recordings to keep. Values &lt; 1 disable
+     *            memoization, which is the default.
+     */
+    public static void setMaximumSize(final int size) {
+        maximumSize = size;
+        if (size < 1) {
+            removeAll();
+        }
+        else {
+            evictionLock.lock();
+            try {
+                evict();
+            }
+            finally {
+                evictionLock.unlock();
+            }
+        }
+    }
+
+    /**
+     * @return maximum number of recordings to keep, 0 if memoization is
+     *         disabled
+     */
+    public static int getMaximumSize() {
+        return Math.max(0, maximumSize);
+    }
+
+    /**
+     * @return true, if recordings are memoized
+     */
+    public static boolean isEnabled() {
+        return maximumSize > 0;
+    }
+
+    /**
+     * @return number of recordings currently cached
+     */
+    public static int getSize() {
+        return size.get();
+    }
+
+    /**
+     * @return number of recording steps, that were answered from the cache
+     */
+    public static long getHitCount() {
+        return hits.sum();
+    }
+
+    /**
+     * @return number of recording steps, that had to be recorded
+     */
+    public static long getMissCount() {
+        return misses.sum();
+    }
+
+    /**
+     * @return ratio of hits to all lookups, 0 if there were no lookups yet
+     */
+    public static double getHitRate() {
+        long h = hits.sum();
+        long total = h + misses.sum();
+        return total == 0 ? 0 : (double) h / total;
+    }
+
+    /**
+     * drops all cached recordings and resets the statistics.
+     */
+    public static void clear() {
+        removeAll();
+        hits.reset();
+        misses.reset();
+    }
+
+    /**
+     * drops all recordings starting from classes defined by the given class
+     * loader or one of its descendants.
+     *
+     * @param loader
+     *            the class loader to forget
+     * @return number of recordings dropped
+     * @see ProxyClassCache#purge(ClassLoader)
+     */
+    public static int purge(final ClassLoader loader) {
+        if (loader == null) {
+            return 0;
+        }
+        int purged = 0;
+        for (InvocationSequence sequence : sequences.keySet()) {
+            if (ProxyClassCache.isDefinedBy(sequence.getRootInvokedClass(),
+                    loader) && remove(sequence)) {
+                purged++;
+            }
+        }
+        return purged;
+    }
+
+    /**
+     * @param parent
+     *            the root class or the (memoized) sequence the method was
+     *            invoked on
+     * @param method
+     *            the method invoked, null for the root
+     * @return the memoized recording or null
+     */
+    static Recording get(final Object parent, final Method method) {
+        InvocationSequence sequence = sequenceOf(parent, method);
+        Recording recording = sequence == null ? null : sequence
+                .getRecording();
+        if (recording == null) {
+            misses.increment();
+        }
+        else {
+            recording.lastUsed = clock++;
+            hits.increment();
+        }
+        return recording;
+    }
+
+    static void put(final Object parent, final Method method,
+            final Recording recording) {
+        InvocationSequence sequence = sequenceOf(parent, method);
+        if ((maximumSize < 1) || (sequence == null)) {
+            return;
+        }
+        recording.lastUsed = clock++;
+        sequence.setRecording(recording);
+        if (sequences.put(sequence, Boolean.TRUE) == null) {
+            size.incrementAndGet();
+        }
+        if ((size.get() > maximumSize) && evictionLock.tryLock()) {
+            try {
+                evict();
+            }
+            finally {
+                evictionLock.unlock();
+            }
+        }
+    }
+
+    /**
+     * @return the canonical sequence a recording of the given step ends in,
+     *         null if there is none
+     */
+    private static InvocationSequence sequenceOf(final Object parent,
+            final Method method) {
+        return method == null ? InvocationSequence.root((Class<?>) parent)
+                : ((InvocationSequence) parent).getChild(method);
+    }
+
+    private static boolean remove(final InvocationSequence sequence) {
+        if (sequences.remove(sequence) == null) {
+            return false;
+        }
+        sequence.setRecording(null);
+        size.decrementAndGet();
+        return true;
+    }
+
+    private static void removeAll() {
+        for (InvocationSequence sequence : sequences.keySet()) {
+            remove(sequence);
+        }
+    }
+
+    /**
+     * evicts the least recently used eighth of the recordings, once the
+     * maximum size is exceeded. Needs the eviction lock.
+     */
+    private static void evict() {
+        int max = maximumSize;
+        if ((max < 1) || (size.get() <= max)) {
+            return;
+        }
+        List<Candidate> candidates = new ArrayList<Candidate>();
+        for (InvocationSequence sequence : sequences.keySet()) {
+            Recording recording = sequence.getRecording();
+            candidates.add(new Candidate(sequence, recording == null ? 0
+                    : recording.lastUsed));
+        }
+        Collections.sort(candidates, new Comparator<Candidate>() {
+            @Override
+            public int compare(final Candidate a, final Candidate b) {
+                return Integer.compare(a.lastUsed, b.lastUsed);
+            }
+        });
+        int target = max - (max / 8);
+        for (int i = 0; (i < candidates.size()) && (size.get() > target); i++) {
+            remove(candidates.get(i).sequence);
+        }
+    }
+
+    /**
+     * a memoized placeholder along with its Argument.
+     */
+    static final class Recording {
+        private final Object placeholder;
+        private final Argument<?> argument;
+        private int lastUsed;
+
+        Recording(final Object placeholder, final Argument<?> argument) {
+            this.placeholder = placeholder;
+            this.argument = argument;
+        }
+
+        Object getPlaceholder() {
+            return placeholder;
+        }
+
+        Argument<?> getArgument() {
+            return argument;
+        }
+    }
+
+    /**
+     * a sequence along with the time its recording was used last, which
+     * must not change while sorting.
+     */
+    private static final class Candidate {
+        private final InvocationSequence sequence;
+        private final int lastUsed;
+
+        private Candidate(final InvocationSequence sequence, final int lastUsed) {
+            this.sequence = sequence;
+            this.lastUsed = lastUsed;
+        }
+    }
+}
@@ -0,0 +1,98 @@
+//
+//
+// Copyright 2012-2012 Uwe Schäfer <uwe@codesmell.de>
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+
+
+package org.wicketeer.modelfactory.internal;
+
+import java.lang.ref.WeakReference;
+
+import org.apache.wicket.MetaDataKey;
+import org.apache.wicket.request.cycle.RequestCycle;
+
+/**
+ * Keeps one {@link ModelFactoryContext} per RequestCycle, stored in its
+ * metadata, so that nothing leaks into another request. As a recording
+ * usually stays on one thread, the context last used is also remembered per
+ * thread, which saves the scan over the RequestCycle's metadata for all but
+ * the first lookup in a request.
+ *
+ * @author uweschaefer
+ */
+public class RequestCycleContextStrategy implements ContextStrategy {
+
+    private static final MetaDataKey<Entry> KEY = new MetaDataKey<Entry>() {
+        private static final long serialVersionUID = 1L;
+    };
+
+    private final ThreadLocal<WeakReference<Entry>> lastUsed = new ThreadLocal<WeakReference<Entry>>();
+    private final ContextStrategy fallback;
+
+    /**
+     * creates a strategy that fails outside of a RequestCycle.
+     */
+    public RequestCycleContextStrategy() {
+        this(null);
+    }
+
+    /**
+     * @param fallback
+     *            strategy to use when there is no RequestCycle, may be null
+     */
+    public RequestCycleContextStrategy(final ContextStrategy fallback) {
+        this.fallback = fallback;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws IllegalStateException
+     *             if there currently is no active RequestCycle and no fallback
+     */
+    @Override
+    public ModelFactoryContext getContext() throws IllegalStateException {
+        RequestCycle requestCycle = RequestCycle.get();
+        if (requestCycle == null) {
+            if (fallback == null) {
+                throw new IllegalStateException("Outside of request-cycle");
+            }
+            return fallback.getContext();
+        }
+
+        WeakReference<Entry> ref = lastUsed.get();
+        Entry entry = ref == null ? null : ref.get();
+        if ((entry != null) && (entry.requestCycle == requestCycle)) {
+            return entry.context;
+        }
+
+        entry = requestCycle.getMetaData(KEY);
+        if (entry == null) {
+            entry = new Entry(requestCycle);
+            requestCycle.setMetaData(KEY, entry);
+        }
+        lastUsed.set(new WeakReference<Entry>(entry));
+        return entry.context;
+    }
+
+    private static final class Entry {
+        private final RequestCycle requestCycle;
+        private final ModelFactoryContext context = new ModelFactoryContext();
+
+        private Entry(final RequestCycle requestCycle) {
+            this.requestCycle = requestCycle;
+        }
+    }
+}
@@ -0,0 +1,49 @@
+//
+//
+// Copyright 2012-2012 Uwe Schäfer <uwe@codesmell.de>
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+
+
+package org.wicketeer.modelfactory.internal;
+
+/**
+ * Keeps one {@link ModelFactoryContext} per thread, so that recording works in
+ * any thread, no matter if there is a RequestCycle. As the context lives as
+ * long as its thread, a recording must be completed by model() or path() on
+ * the thread it was started on.
+ * <p>
+ * For short-lived tasks, and for virtual threads in particular, consider
+ * {@link ModelFactoryContext#runWith(ModelFactoryContext, Runnable)} with a
+ * new context instead, which creates no thread local state at all.
+ *
+ * @author uweschaefer
+ */
+public class ThreadContextStrategy implements ContextStrategy {
+
+    private final ThreadLocal<ModelFactoryContext> contexts = new ThreadLocal<ModelFactoryContext>() {
+        @Override
+        protected ModelFactoryContext initialValue() {
+            return new ModelFactoryContext();
+        }
+    };
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ModelFactoryContext getContext() {
+        return contexts.get();
+    }
+}
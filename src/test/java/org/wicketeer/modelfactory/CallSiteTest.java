@@ -0,0 +1,116 @@
+package org.wicketeer.modelfactory;
+
+import static org.wicketeer.modelfactory.ModelFactory.from;
+
+import junit.framework.TestCase;
+
+import org.apache.wicket.RuntimeConfigurationType;
+import org.apache.wicket.ThreadContext;
+import org.apache.wicket.mock.MockApplication;
+import org.apache.wicket.util.tester.WicketTester;
+
+public class CallSiteTest extends TestCase {
+
+    @Override
+    protected void tearDown() throws Exception {
+        CallSite.setSamplingInterval(CallSite.DEFAULT_SAMPLING_INTERVAL);
+        super.tearDown();
+    }
+
+    public void testCapture() throws Exception {
+        CallSite.setSamplingInterval(1);
+        CallSite site = CallSite.capture();
+
+        assertNotNull(site);
+        String rendered = site.render();
+        // frames of this package are skipped
+        assertFalse(rendered.contains("CallSiteTest"));
+        assertTrue(rendered, rendered.matches(".+\\..+ \\(.+:-?\\d+\\)"));
+    }
+
+    public void testSampling() throws Exception {
+        if (CallSite.usesStackWalker()) {
+            return;
+        }
+        CallSite.setSamplingInterval(4);
+        int captured = 0;
+        for (int i = 0; i < 16; i++) {
+            if (CallSite.capture() != null) {
+                captured++;
+            }
+        }
+        assertEquals(4, captured);
+
+        CallSite.setSamplingInterval(0);
+        assertNull(CallSite.capture());
+    }
+
+    public void testCapturedInDevelopmentMode() throws Exception {
+        CallSite.setSamplingInterval(1);
+        new WicketTester();
+        from(new Bean());
+        try {
+            from(new Bean());
+            fail();
+        }
+        catch (IllegalStateException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains(" at "));
+        }
+    }
+
+    public void testNotCapturedInDeploymentMode() throws Exception {
+        CallSite.setSamplingInterval(1);
+        new WicketTester(new MockApplication() {
+            @Override
+            public RuntimeConfigurationType getConfigurationType() {
+                return RuntimeConfigurationType.DEPLOYMENT;
+            }
+        });
+        assertNull(new Reference("foo").getCallSite());
+
+        new WicketTester();
+        assertNotNull(new Reference("foo").getCallSite());
+    }
+
+    public void testResolvedOncePerApplication() throws Exception {
+        CallSite.setSamplingInterval(1);
+        CountingApplication deployment = new CountingApplication(
+                RuntimeConfigurationType.DEPLOYMENT);
+        new WicketTester(deployment);
+        CountingApplication development = new CountingApplication(
+                RuntimeConfigurationType.DEVELOPMENT);
+        new WicketTester(development);
+        deployment.resolved = 0;
+        development.resolved = 0;
+
+        for (int i = 0; i < 3; i++) {
+            ThreadContext.setApplication(deployment);
+            assertNull(new Reference("foo").getCallSite());
+            ThreadContext.setApplication(development);
+            assertNotNull(new Reference("foo").getCallSite());
+        }
+        assertEquals(1, deployment.resolved);
+        assertEquals(1, development.resolved);
+    }
+
+    static class CountingApplication extends MockApplication {
+        private final RuntimeConfigurationType type;
+        private int resolved;
+
+        CountingApplication(final RuntimeConfigurationType type) {
+            this.type = type;
+        }
+
+        @Override
+        public RuntimeConfigurationType getConfigurationType() {
+            resolved++;
+            return type;
+        }
+    }
+
+    public static class Bean {
+        public String getName() {
+            return "bean";
+        }
+    }
+}
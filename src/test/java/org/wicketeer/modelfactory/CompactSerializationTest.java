@@ -0,0 +1,139 @@
+package org.wicketeer.modelfactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.apache.wicket.model.IModel;
+import org.apache.wicket.model.IObjectClassAwareModel;
+import org.apache.wicket.model.PropertyModel;
+import org.wicketeer.modelfactory.internal.AccessorChain;
+
+public class CompactSerializationTest extends TestCase {
+
+    private final ModelRecorder r = new ModelRecorder();
+
+    public void testRoundTrip() throws Exception {
+        Row row = new Row(42, "foo");
+        IModel<String> name = r.model(r.from(row).getName());
+        IModel<Integer> count = r.model(r.from(row).getCount());
+        IModel<String> lambda = ModelFactory.model(row, Row::getName);
+
+        List<IModel<?>> models = roundTrip(list(name, count, lambda));
+
+        IModel<?> name2 = models.get(0);
+        assertEquals(name.getClass(), name2.getClass());
+        assertEquals("foo", name2.getObject());
+        assertEquals(String.class,
+                ((IObjectClassAwareModel<?>) name2).getObjectClass());
+
+        IModel<?> count2 = models.get(1);
+        assertTrue(count2 instanceof IIntModel);
+        assertEquals(42, ((IIntModel) count2).getInt());
+        assertEquals(int.class,
+                ((IObjectClassAwareModel<?>) count2).getObjectClass());
+
+        assertEquals(lambda.getClass(), models.get(2).getClass());
+        assertEquals("foo", models.get(2).getObject());
+    }
+
+    public void testTargetIsShared() throws Exception {
+        Row row = new Row(1, "bar");
+        List<IModel<?>> models = roundTrip(list(
+                r.model(r.from(row).getName()),
+                r.model(r.from(row).getCount())));
+
+        ((IIntModel) models.get(1)).setInt(7);
+        Row copy = (Row) ((PropertyModel<?>) models.get(0))
+                .getInnermostModelOrObject();
+        assertEquals(7, copy.getCount());
+    }
+
+    public void testPathsAreCanonical() throws Exception {
+        Row row = new Row(1, "bar");
+        TypedPropertyModel<?> m = (TypedPropertyModel<?>) r.model(r.from(row)
+                .getName());
+
+        TypedPropertyModel<?> copy = (TypedPropertyModel<?>) roundTrip(
+                list(m)).get(0);
+
+        assertSame(m.getPropertyExpression(), copy.getPropertyExpression());
+        assertTrue(m.getAccessor() instanceof AccessorChain);
+        assertSame(m.getAccessor(), copy.getAccessor());
+    }
+
+    public void testRepeatedPathsAreWrittenOnce() throws Exception {
+        Row row = new Row(1, "bar");
+        List<IModel<?>> models = new ArrayList<IModel<?>>();
+        models.add(r.model(r.from(row).getName()));
+        int single = serialize(models).length;
+        for (int i = 0; i < 100; i++) {
+            models.add(r.model(r.from(row).getName()));
+        }
+        int perModel = (serialize(models).length - single) / 100;
+
+        // nothing but the model itself and references to target, path, type
+        // and accessor
+        assertTrue(String.valueOf(perModel), perModel <= 32);
+    }
+
+    private static List<IModel<?>> list(final IModel<?>... models) {
+        List<IModel<?>> list = new ArrayList<IModel<?>>();
+        for (IModel<?> m : models) {
+            list.add(m);
+        }
+        return list;
+    }
+
+    private static byte[] serialize(final Object o) throws Exception {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        ObjectOutputStream oos = new ObjectOutputStream(bos);
+        oos.writeObject(o);
+        oos.close();
+        return bos.toByteArray();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<IModel<?>> roundTrip(final List<IModel<?>> models)
+            throws Exception {
+        ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(
+                serialize(models)));
+        return (List<IModel<?>>) ois.readObject();
+    }
+
+    public static class Row implements Serializable {
+        private static final long serialVersionUID = 1L;
+        private int count;
+        private String name;
+
+        public Row() {
+        }
+
+        Row(final int count, final String name) {
+            this.count = count;
+            this.name = name;
+        }
+
+        public int getCount() {
+            return count;
+        }
+
+        public void setCount(final int count) {
+            this.count = count;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(final String name) {
+            this.name = name;
+        }
+    }
+}
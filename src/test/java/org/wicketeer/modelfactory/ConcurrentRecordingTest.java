@@ -0,0 +1,163 @@
+package org.wicketeer.modelfactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import junit.framework.TestCase;
+
+import org.wicketeer.modelfactory.internal.ArgumentsFactory;
+import org.wicketeer.modelfactory.internal.ContextStrategy;
+import org.wicketeer.modelfactory.internal.ModelFactoryContext;
+import org.wicketeer.modelfactory.internal.RecordingCache;
+import org.wicketeer.modelfactory.internal.ThreadContextStrategy;
+
+/**
+ * Runs recordings on several threads in lock step and checks, that no
+ * recording sees state of another thread.
+ */
+public class ConcurrentRecordingTest extends TestCase {
+
+    private static final int THREADS = 8;
+    private static final int ROUNDS = 300;
+
+    private ContextStrategy previousStrategy;
+    private ExecutorService pool;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        previousStrategy = ModelFactoryContext.getStrategy();
+        ModelFactoryContext.setStrategy(new ThreadContextStrategy());
+        pool = Executors.newFixedThreadPool(THREADS);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        pool.shutdownNow();
+        ModelFactoryContext.bind(null);
+        ModelFactoryContext.setStrategy(previousStrategy);
+        ArgumentsFactory.setReusingPlaceholders(false);
+        RecordingCache.setMaximumSize(0);
+        super.tearDown();
+    }
+
+    public void testNoCrossTalk() throws Exception {
+        storm();
+    }
+
+    public void testNoCrossTalkWithReusedPlaceholders() throws Exception {
+        ArgumentsFactory.setReusingPlaceholders(true);
+        storm();
+    }
+
+    public void testNoCrossTalkWithSharedPlaceholders() throws Exception {
+        RecordingCache.setMaximumSize(RecordingCache.DEFAULT_MAXIMUM_SIZE);
+        storm();
+    }
+
+    public void testPlaceholderPassedToOtherThreadIsRejected()
+            throws Exception {
+        final Node next = ModelFactory.from(new Node()).getNext();
+        Future<String> foreign = pool.submit(new Callable<String>() {
+            @Override
+            public String call() throws Exception {
+                return ModelFactory.path(next.getName());
+            }
+        });
+        try {
+            foreign.get();
+            fail();
+        }
+        catch (ExecutionException expected) {
+            assertTrue(expected.getCause() instanceof IllegalStateException);
+        }
+        // the recording of this thread is unharmed
+        assertEquals("next.name", ModelFactory.path(next.getName()));
+    }
+
+    public void testForeignCompletionIsRejected() throws Exception {
+        final ModelFactoryContext context = new ModelFactoryContext();
+        ModelFactoryContext.bind(context);
+        final Node next = ModelFactory.fromClass(Node.class).getNext();
+        Future<String> foreign = pool.submit(new Callable<String>() {
+            @Override
+            public String call() throws Exception {
+                ModelFactoryContext.bind(context);
+                try {
+                    return ModelFactory.path(next);
+                }
+                finally {
+                    ModelFactoryContext.bind(null);
+                }
+            }
+        });
+        try {
+            foreign.get();
+            fail();
+        }
+        catch (ExecutionException expected) {
+            assertTrue(expected.getCause() instanceof IllegalStateException);
+        }
+        assertEquals("next", ModelFactory.path(next));
+    }
+
+    private void storm() throws Exception {
+        final CyclicBarrier barrier = new CyclicBarrier(THREADS);
+        List<Future<Void>> futures = new ArrayList<Future<Void>>();
+        for (int t = 0; t < THREADS; t++) {
+            final int depth = t + 1;
+            futures.add(pool.submit(new Callable<Void>() {
+                @Override
+                public Void call() throws Exception {
+                    Node root = new Node();
+                    for (int round = 0; round < ROUNDS; round++) {
+                        barrier.await();
+                        Node start = ModelFactory.from(root);
+                        barrier.await();
+                        Node n = start;
+                        for (int i = 0; i < depth; i++) {
+                            n = n.getNext();
+                            Thread.yield();
+                        }
+                        barrier.await();
+                        String path = (round % 2) == 0 ? ModelFactory.path(n
+                                .getName()) : ModelFactory.path(n.getValue());
+                        assertEquals(expected(depth, round), path);
+                    }
+                    return null;
+                }
+            }));
+        }
+        for (Future<Void> f : futures) {
+            f.get();
+        }
+    }
+
+    private static String expected(final int depth, final int round) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < depth; i++) {
+            sb.append("next.");
+        }
+        return sb.append((round % 2) == 0 ? "name" : "value").toString();
+    }
+
+    public static class Node {
+        public Node getNext() {
+            return new Node();
+        }
+
+        public String getName() {
+            return "node";
+        }
+
+        public int getValue() {
+            return 1;
+        }
+    }
+}
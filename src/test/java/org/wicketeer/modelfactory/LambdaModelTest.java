@@ -0,0 +1,90 @@
+package org.wicketeer.modelfactory;
+
+import static org.wicketeer.modelfactory.ModelFactory.from;
+import static org.wicketeer.modelfactory.ModelFactory.model;
+import static org.wicketeer.modelfactory.ModelFactory.path;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+import junit.framework.TestCase;
+
+import org.apache.wicket.ThreadContext;
+import org.apache.wicket.model.IModel;
+import org.apache.wicket.model.IObjectClassAwareModel;
+import org.apache.wicket.model.Model;
+import org.apache.wicket.util.tester.WicketTester;
+import org.wicketeer.modelfactory.ModelFactoryTest.A;
+import org.wicketeer.modelfactory.ModelFactoryTest.B;
+import org.wicketeer.modelfactory.ModelFactoryTest.C;
+import org.wicketeer.modelfactory.ModelFactoryTest.R3;
+import org.wicketeer.modelfactory.ModelFactoryTest.V;
+
+public class LambdaModelTest extends TestCase {
+
+    public void testSamePathAsProxy() throws Exception {
+        new WicketTester();
+        A a = new A();
+        assertEquals(path(from(a).getB().getV().getStringProperty()),
+                path(A::getB, B::getV, V::getStringProperty));
+        assertEquals(path(from(a).getB().getV().isBooleanProperty()),
+                path(A::getB, B::getV, V::isBooleanProperty));
+        assertEquals(path(from(a).getB().getV().nonPropertyCall()),
+                path(A::getB, B::getV, V::nonPropertyCall));
+    }
+
+    public void testWithoutRequestCycle() throws Exception {
+        ThreadContext.detach();
+        A a = new A();
+        IModel<String> m = model(a, A::getB, B::getV, V::getStringProperty);
+        assertEquals("bar", m.getObject());
+        m.setObject("baz");
+        assertEquals("baz", a.getB().getV().getStringProperty());
+    }
+
+    public void testModelRoot() throws Exception {
+        IModel<A> root = Model.of(new A());
+        IModel<Integer> m = model(root, A::getB, B::getV,
+                V::getPrimitiveProperty);
+        assertEquals(Integer.valueOf(5), m.getObject());
+        assertEquals(int.class,
+                ((IObjectClassAwareModel<Integer>) m).getObjectClass());
+
+        root.setObject(null);
+        assertNull(m.getObject());
+    }
+
+    public void testFinalClass() throws Exception {
+        R3 r3 = new R3();
+        C c = new C();
+        c.setFoo("foo");
+        r3.setC(c);
+        IModel<String> m = model(r3, R3::getC, C::getFoo);
+        assertEquals("c.foo", path(R3::getC, C::getFoo));
+        assertEquals("foo", m.getObject());
+    }
+
+    @SuppressWarnings("unchecked")
+    public void testSerialization() throws Exception {
+        IModel<String> m = model(new A(), A::getB, B::getV,
+                V::getStringProperty);
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        ObjectOutputStream oos = new ObjectOutputStream(baos);
+        oos.writeObject(m);
+        oos.close();
+        m = (IModel<String>) new ObjectInputStream(
+                new ByteArrayInputStream(baos.toByteArray())).readObject();
+        assertEquals("bar", m.getObject());
+    }
+
+    public void testLambdaIsRejected() throws Exception {
+        try {
+            model(new A(), x -> x.getB());
+            fail();
+        }
+        catch (IllegalArgumentException expected) {
+        }
+    }
+}
@@ -8,10 +8,12 @@ import java.io.Serializable;
 
 import junit.framework.TestCase;
 
+import org.apache.wicket.WicketRuntimeException;
 import org.apache.wicket.model.AbstractReadOnlyModel;
 import org.apache.wicket.model.IModel;
 import org.apache.wicket.model.LoadableDetachableModel;
 import org.apache.wicket.model.Model;
+import org.apache.wicket.model.PropertyModel;
 import org.apache.wicket.util.io.ByteArrayOutputStream;
 import org.apache.wicket.util.tester.WicketTester;
 
@@ -89,6 +91,89 @@ public class ModelFactoryTest extends TestCase implements Serializable {
 
     }
 
+    public void testCompiledModel() throws Exception {
+        IModel<String> pm = ModelFactory
+                .model(ModelFactory.from(a).getB().getV().getStringProperty());
+        assertTrue(pm instanceof CompiledPropertyModel);
+        assertEquals("b.v.stringProperty",
+                ((CompiledPropertyModel<String>) pm).getPropertyExpression());
+        assertEquals(String.class,
+                ((CompiledPropertyModel<String>) pm).getObjectClass());
+
+        pm.setObject("baz");
+        assertEquals("baz", a.getB().getV().getStringProperty());
+        pm = testSer(pm);
+        assertEquals("baz", pm.getObject());
+        pm.setObject("bar");
+        assertEquals("bar", pm.getObject());
+    }
+
+    public void testCompiledModelPrimitiveSet() throws Exception {
+        IModel<Integer> pm = ModelFactory
+                .model(ModelFactory.from(a).getB().getV().getPrimitiveProperty());
+        pm.setObject(7);
+        assertEquals(7, a.getB().getV().getPrimitiveProperty());
+        assertEquals(Integer.valueOf(7), pm.getObject());
+    }
+
+    public void testCompiledModelNullIntermediate() throws Exception {
+        R1 r1 = new R1();
+        IModel<R2> pm = ModelFactory.model(ModelFactory.from(r1).getR2());
+        assertNull(pm.getObject());
+
+        IModel<C> cm = ModelFactory.model(ModelFactory.from(new R3()).getC());
+        assertNull(cm.getObject());
+
+        // setting through a null intermediate is left to PropertyResolver
+        A empty = new A(null);
+        IModel<V> vm = ModelFactory.model(ModelFactory.from(empty).getB().getV());
+        assertNull(vm.getObject());
+        try {
+            vm.setObject(new V());
+            fail();
+        }
+        catch (WicketRuntimeException expected) {
+        }
+    }
+
+    public void testCompiledModelFailsLikePropertyModel() throws Exception {
+        Failing f = new Failing();
+        assertFailsAlike(new PropertyModel<String>(f, "name"),
+                ModelFactory.model(ModelFactory.from(f).getName()), "x");
+        assertFailsAlike(new PropertyModel<Integer>(f, "count"),
+                ModelFactory.model(ModelFactory.from(f).getCount()), 1);
+        assertFailsAlike(new PropertyModel<String>(f, "next.name"),
+                ModelFactory.model(ModelFactory.from(f).getNext().getName()),
+                "x");
+    }
+
+    private static <X> void assertFailsAlike(final IModel<X> expected,
+            final IModel<X> actual, final X value) {
+        assertTrue(actual instanceof CompiledPropertyModel);
+        assertEquals(failure(expected, null), failure(actual, null));
+        assertEquals(failure(expected, value), failure(actual, value));
+    }
+
+    /**
+     * @return type, message and cause of what the model threw on getObject()
+     *         or, if value is not null, on setObject(value)
+     */
+    private static <X> String failure(final IModel<X> model, final X value) {
+        try {
+            if (value == null) {
+                model.getObject();
+            }
+            else {
+                model.setObject(value);
+            }
+        }
+        catch (WicketRuntimeException e) {
+            return e.getClass() + ": " + e.getMessage() + " / " + e.getCause();
+        }
+        fail("should have failed");
+        return null;
+    }
+
     @SuppressWarnings("unchecked")
     private <X> IModel<X> testSer(final IModel<X> pm)
             throws IOException, ClassNotFoundException {
@@ -417,6 +502,49 @@ public class ModelFactoryTest extends TestCase implements Serializable {
         testSer(pm);
     }
 
+    public void testModelTypeIsCached() throws Exception {
+        ModelFactory.path(ModelFactory.from(new LDM2()).getB());
+        long misses = ModelTypeCache.getMissCount();
+        long hits = ModelTypeCache.getHitCount();
+
+        assertEquals("b", ModelFactory.path(ModelFactory.from(new LDM2()).getB()));
+        assertEquals(misses, ModelTypeCache.getMissCount());
+        assertEquals(hits + 1, ModelTypeCache.getHitCount());
+    }
+
+    public static class Failing implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        public String getName() {
+            throw new IllegalStateException("getName");
+        }
+
+        public void setName(final String name) {
+            throw new IllegalStateException("setName");
+        }
+
+        public int getCount() {
+            throw new IllegalStateException("getCount");
+        }
+
+        public void setCount(final int count) {
+            throw new IllegalStateException("setCount");
+        }
+
+        public Failing getNext() {
+            throw new IllegalStateException("getNext");
+        }
+    }
+
+    static class LDM2 extends LoadableDetachableModel<A> {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected A load() {
+            throw new RuntimeException("load was called, but shouldn't be");
+        }
+    }
+
     static class LDM1 extends LoadableDetachableModel<A> {
         private static final long serialVersionUID = 1L;
 
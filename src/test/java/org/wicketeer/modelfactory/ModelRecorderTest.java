@@ -0,0 +1,138 @@
+package org.wicketeer.modelfactory;
+
+import static org.wicketeer.modelfactory.ModelFactory.from;
+import static org.wicketeer.modelfactory.ModelFactory.model;
+
+import java.io.Serializable;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import junit.framework.TestCase;
+
+import org.apache.wicket.ThreadContext;
+import org.apache.wicket.model.IModel;
+import org.apache.wicket.model.Model;
+import org.apache.wicket.model.PropertyModel;
+import org.apache.wicket.util.tester.WicketTester;
+import org.wicketeer.modelfactory.internal.ModelFactoryContext;
+
+public class ModelRecorderTest extends TestCase {
+
+    public void testWithoutRequestCycle() throws Exception {
+        ThreadContext.detach();
+        ModelRecorder r = new ModelRecorder();
+
+        assertEquals("b.s", r.path(r.fromClass(A.class).getB().getS()));
+
+        A a = new A();
+        IModel<String> m = r.model(r.from(a).getB().getS());
+        m.setObject("foo");
+        assertEquals("foo", a.getB().getS());
+
+        IModel<A> root = Model.of(a);
+        assertEquals("foo", r.model(r.from(root).getB().getS()).getObject());
+    }
+
+    public void testInWorkerThreads() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            Future<?>[] results = new Future<?>[16];
+            for (int i = 0; i < results.length; i++) {
+                results[i] = pool.submit(new Callable<String>() {
+                    @Override
+                    public String call() {
+                        ModelRecorder r = new ModelRecorder();
+                        return r.path(r.fromClass(A.class).getB().getS());
+                    }
+                });
+            }
+            for (Future<?> f : results) {
+                assertEquals("b.s", f.get());
+            }
+        }
+        finally {
+            pool.shutdown();
+        }
+    }
+
+    public void testDoesNotInterfereWithRequest() throws Exception {
+        new WicketTester();
+        A a = new A();
+        B b = from(a).getB();
+
+        ModelRecorder r = new ModelRecorder();
+        assertEquals("s", r.path(r.fromClass(B.class).getS()));
+
+        assertEquals("b.s",
+                ((PropertyModel<?>) model(b.getS())).getPropertyExpression());
+    }
+
+    public void testFailedFromUnbinds() throws Exception {
+        ThreadContext.detach();
+        ModelRecorder r = new ModelRecorder();
+        try {
+            r.from((A) null);
+            fail();
+        }
+        catch (NullPointerException expected) {
+        }
+        try {
+            ModelFactory.fromClass(A.class);
+            fail("should not use the recorder's context");
+        }
+        catch (IllegalStateException expected) {
+        }
+    }
+
+    public void testFailedRecordingLeavesNothingBound() throws Exception {
+        ThreadContext.detach();
+        ModelRecorder r = new ModelRecorder();
+        try {
+            r.from(new A()).touch();
+            fail();
+        }
+        catch (IllegalArgumentException expected) {
+        }
+        try {
+            ModelFactoryContext.get();
+            fail("the recorder's context must not stay bound");
+        }
+        catch (IllegalStateException expected) {
+        }
+
+        new ModelRecorder().fromClass(A.class).getB();
+        try {
+            ModelFactoryContext.get();
+            fail("an unfinished recording must not bind the context");
+        }
+        catch (IllegalStateException expected) {
+        }
+    }
+
+    public static class A implements Serializable {
+        private static final long serialVersionUID = 1L;
+        private B b = new B();
+
+        public B getB() {
+            return b;
+        }
+
+        public void touch() {
+        }
+    }
+
+    public static class B implements Serializable {
+        private static final long serialVersionUID = 1L;
+        private String s;
+
+        public String getS() {
+            return s;
+        }
+
+        public void setS(final String s) {
+            this.s = s;
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package org.wicketeer.modelfactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+public class PathComparatorTest extends TestCase {
+
+    private final ModelRecorder r = new ModelRecorder();
+
+    private final Person anna = new Person("anna", 3, 30000L, 1.5d, "20095");
+    private final Person bert = new Person("bert", 1, 10000L, 2.5d, null);
+    private final Person carl = new Person("carl", 2, 20000L, 0.5d, "10115");
+    private final Person nobody = new Person(null, 0, 0L, 0d, "80331");
+
+    public void testComparableKeys() throws Exception {
+        PathComparator<Person> byName = r.comparator(r.fromClass(
+                Person.class).getName());
+
+        assertSorted(byName, nobody, anna, bert, carl);
+        assertSorted(byName.nullsLast(), anna, bert, carl, nobody);
+        assertSorted(byName.reversed(), nobody, carl, bert, anna);
+        assertSorted(byName.reversed().nullsLast(), carl, bert, anna, nobody);
+    }
+
+    public void testNullIntermediates() throws Exception {
+        PathComparator<Person> byZip = r.comparator(r.fromClass(Person.class)
+                .getAddress().getZip());
+        nobody.address = null;
+
+        List<Person> sorted = sort(byZip, anna, null, bert, carl, nobody);
+        assertEquals(Arrays.asList(null, bert, nobody, carl, anna), sorted);
+    }
+
+    public void testPrimitiveKeys() throws Exception {
+        Person p = r.fromClass(Person.class);
+        assertSorted(r.<Person> comparator(p.getAge()), nobody, bert, carl,
+                anna);
+        p = r.fromClass(Person.class);
+        assertSorted(r.<Person> comparator(p.getIncome()).reversed(), anna,
+                carl, bert, nobody);
+        p = r.fromClass(Person.class);
+        assertSorted(r.<Person> comparator(p.getHeight()), nobody, carl,
+                anna, bert);
+    }
+
+    public void testSortIsStableAndAgreesWithCompare() throws Exception {
+        PathComparator<Person> byAge = r.comparator(r.fromClass(Person.class)
+                .getAge());
+        Random random = new Random(42);
+        List<Person> people = new ArrayList<Person>();
+        for (int i = 0; i < 1000; i++) {
+            people.add(new Person("p" + i, random.nextInt(10), 0, 0, null));
+        }
+        List<Person> expected = new ArrayList<Person>(people);
+        Collections.sort(expected, byAge);
+
+        byAge.sort(people);
+        assertEquals(expected, people);
+    }
+
+    public void testSerializable() throws Exception {
+        PathComparator<Person> byZip = r.comparator(r.fromClass(Person.class)
+                .getAddress().getZip());
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream(bytes);
+        out.writeObject(byZip.nullsLast());
+        out.close();
+        @SuppressWarnings("unchecked")
+        PathComparator<Person> copy = (PathComparator<Person>) new ObjectInputStream(
+                new ByteArrayInputStream(bytes.toByteArray())).readObject();
+
+        assertSorted(copy, carl, anna, nobody, bert);
+    }
+
+    public void testArgumentsAreRejected() throws Exception {
+        try {
+            r.comparator(r.fromClass(Person.class).getNickname(1));
+            fail();
+        }
+        catch (IllegalArgumentException expected) {
+        }
+    }
+
+    private void assertSorted(final PathComparator<Person> comparator,
+            final Person... expected) {
+        List<Person> shuffled = new ArrayList<Person>(Arrays.asList(expected));
+        Collections.reverse(shuffled);
+        Collections.swap(shuffled, 0, 2);
+
+        assertEquals(Arrays.asList(expected), sort(comparator,
+                shuffled.toArray(new Person[0])));
+        Collections.sort(shuffled, comparator);
+        assertEquals(Arrays.asList(expected), shuffled);
+    }
+
+    private List<Person> sort(final PathComparator<Person> comparator,
+            final Person... people) {
+        List<Person> list = new LinkedList<Person>(Arrays.asList(people));
+        comparator.sort(list);
+        return list;
+    }
+
+    public static class Person {
+        private final String name;
+        private final int age;
+        private final long income;
+        private final double height;
+        Address address = new Address();
+
+        public Person() {
+            this(null, 0, 0L, 0d, null);
+        }
+
+        Person(final String name, final int age, final long income,
+                final double height, final String zip) {
+            this.name = name;
+            this.age = age;
+            this.income = income;
+            this.height = height;
+            this.address.zip = zip;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public int getAge() {
+            return age;
+        }
+
+        public long getIncome() {
+            return income;
+        }
+
+        public double getHeight() {
+            return height;
+        }
+
+        public Address getAddress() {
+            return address;
+        }
+
+        public String getNickname(final int i) {
+            return name + i;
+        }
+
+        @Override
+        public String toString() {
+            return String.valueOf(name);
+        }
+    }
+
+    public static class Address {
+        private String zip;
+
+        public String getZip() {
+            return zip;
+        }
+    }
+}
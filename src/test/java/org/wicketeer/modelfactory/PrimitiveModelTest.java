@@ -0,0 +1,180 @@
+package org.wicketeer.modelfactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.lang.management.ManagementFactory;
+
+import junit.framework.TestCase;
+
+import org.apache.wicket.model.IModel;
+import org.apache.wicket.model.IObjectClassAwareModel;
+import org.apache.wicket.model.Model;
+
+public class PrimitiveModelTest extends TestCase {
+
+    private final ModelRecorder r = new ModelRecorder();
+
+    private final Outer outer = new Outer();
+
+    public void testInt() throws Exception {
+        IIntModel m = r.intModel(r.from(outer).getInner().getCount());
+        assertEquals(0, m.getInt());
+        m.setInt(1000);
+        assertEquals(1000, outer.getInner().getCount());
+        assertEquals(1000, m.getInt());
+        assertEquals(Integer.valueOf(1000), m.getObject());
+        assertEquals(int.class,
+                ((IObjectClassAwareModel<Integer>) m).getObjectClass());
+    }
+
+    public void testLongDoubleBoolean() throws Exception {
+        ILongModel l = r.longModel(r.from(outer).getInner().getTotal());
+        l.setLong(Long.MAX_VALUE);
+        assertEquals(Long.MAX_VALUE, l.getLong());
+
+        IDoubleModel d = r.doubleModel(r.from(outer).getInner().getRatio());
+        d.setDouble(0.25d);
+        assertEquals(0.25d, d.getDouble());
+
+        IBooleanModel b = r.booleanModel(r.from(outer).getInner().isActive());
+        b.setBoolean(true);
+        assertTrue(b.getBoolean());
+        assertTrue(outer.getInner().isActive());
+    }
+
+    public void testModelIsPrimitive() throws Exception {
+        IModel<Integer> m = r.model(r.from(outer).getInner().getCount());
+        assertTrue(m instanceof IIntModel);
+        IModel<Integer> lambda = ModelFactory.model(outer, Outer::getInner,
+                Inner::getCount);
+        assertTrue(lambda instanceof IIntModel);
+        IModel<?> inner = r.model(r.from(outer).getInner());
+        assertFalse(inner instanceof IIntModel);
+    }
+
+    public void testNullIntermediate() throws Exception {
+        IIntModel m = r.intModel(r.from(outer).getInner().getCount());
+        outer.setInner(null);
+        assertEquals(0, m.getInt());
+        assertNull(m.getObject());
+    }
+
+    public void testRootModel() throws Exception {
+        IModel<Outer> root = Model.of(outer);
+        IIntModel m = r.intModel(r.from(root).getInner().getCount());
+        m.setInt(7);
+        assertEquals(7, outer.getInner().getCount());
+        assertEquals(7, m.getInt());
+    }
+
+    public void testArgumentsAreRejected() throws Exception {
+        try {
+            r.intModel(r.from(outer).getInner().getCountTimes(2));
+            fail();
+        }
+        catch (IllegalArgumentException expected) {
+        }
+    }
+
+    public void testSerializable() throws Exception {
+        IIntModel m = r.intModel(r.from(outer).getInner().getCount());
+        m.setInt(3);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream(bytes);
+        out.writeObject(m);
+        out.close();
+        IIntModel copy = (IIntModel) new ObjectInputStream(
+                new ByteArrayInputStream(bytes.toByteArray())).readObject();
+
+        assertEquals(3, copy.getInt());
+    }
+
+    public void testGetIntDoesNotAllocate() throws Exception {
+        java.lang.management.ThreadMXBean bean = ManagementFactory
+                .getThreadMXBean();
+        if (!(bean instanceof com.sun.management.ThreadMXBean)
+                || !((com.sun.management.ThreadMXBean) bean)
+                        .isThreadAllocatedMemorySupported()) {
+            return;
+        }
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+        threads.setThreadAllocatedMemoryEnabled(true);
+        long thread = Thread.currentThread().getId();
+
+        IIntModel m = r.intModel(r.from(outer).getInner().getCount());
+        m.setInt(100000);
+        long sum = 0;
+        for (int i = 0; i < 20000; i++) {
+            sum += m.getInt();
+        }
+        long allocated = threads.getThreadAllocatedBytes(thread);
+        for (int i = 0; i < 100000; i++) {
+            sum += m.getInt();
+        }
+        allocated = threads.getThreadAllocatedBytes(thread) - allocated;
+
+        assertEquals(120000L * 100000L, sum);
+        assertTrue(allocated + " bytes allocated", allocated < 100000);
+    }
+
+    public static class Outer implements Serializable {
+        private static final long serialVersionUID = 1L;
+        private Inner inner = new Inner();
+
+        public Inner getInner() {
+            return inner;
+        }
+
+        public void setInner(final Inner inner) {
+            this.inner = inner;
+        }
+    }
+
+    public static class Inner implements Serializable {
+        private static final long serialVersionUID = 1L;
+        private int count;
+        private long total;
+        private double ratio;
+        private boolean active;
+
+        public int getCount() {
+            return count;
+        }
+
+        public void setCount(final int count) {
+            this.count = count;
+        }
+
+        public int getCountTimes(final int factor) {
+            return count * factor;
+        }
+
+        public long getTotal() {
+            return total;
+        }
+
+        public void setTotal(final long total) {
+            this.total = total;
+        }
+
+        public double getRatio() {
+            return ratio;
+        }
+
+        public void setRatio(final double ratio) {
+            this.ratio = ratio;
+        }
+
+        public boolean isActive() {
+            return active;
+        }
+
+        public void setActive(final boolean active) {
+            this.active = active;
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package org.wicketeer.modelfactory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.After;
+import org.junit.Test;
+import org.wicketeer.modelfactory.internal.ArgumentsFactory;
+import org.wicketeer.modelfactory.internal.ModelFactoryContext;
+import org.wicketeer.modelfactory.internal.RecordingCache;
+
+/**
+ * Records paths on 100.000 virtual threads, that are all alive at the same
+ * time, each in the middle of its recording while waiting for the others.
+ * Requires Java 21, and is reported as skipped before. A JUnit 4 test, as
+ * JUnit 3 knows no assumptions.
+ */
+public class VirtualThreadLoadTest {
+
+    private static final int THREADS = 100000;
+
+    @After
+    public void tearDown() throws Exception {
+        ArgumentsFactory.setReusingPlaceholders(false);
+        RecordingCache.setMaximumSize(0);
+    }
+
+    @Test
+    public void testScopedContexts() throws Exception {
+        load();
+    }
+
+    @Test
+    public void testScopedContextsWithReusedAndSharedPlaceholders()
+            throws Exception {
+        ArgumentsFactory.setReusingPlaceholders(true);
+        RecordingCache.setMaximumSize(RecordingCache.DEFAULT_MAXIMUM_SIZE);
+        load();
+    }
+
+    private void load() throws Exception {
+        ExecutorService executor = newVirtualThreadPerTaskExecutor();
+        assumeTrue("virtual threads require Java 21", executor != null);
+        final CountDownLatch started = new CountDownLatch(THREADS);
+        final AtomicInteger completed = new AtomicInteger();
+        final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+        try {
+            for (int i = 0; i < THREADS; i++) {
+                final int depth = i % 5;
+                executor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            ModelFactoryContext.runWith(
+                                    new ModelFactoryContext(), new Runnable() {
+                                        @Override
+                                        public void run() {
+                                            record(depth, started);
+                                        }
+                                    });
+                            // nothing left on the thread
+                            assertNull(ModelFactoryContext.bind(null));
+                            completed.incrementAndGet();
+                        }
+                        catch (Throwable t) {
+                            failure.compareAndSet(null, t);
+                            started.countDown();
+                        }
+                    }
+                });
+            }
+        }
+        finally {
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(2, TimeUnit.MINUTES));
+        }
+        if (failure.get() != null) {
+            throw new AssertionError(failure.get());
+        }
+        assertEquals(THREADS, completed.get());
+    }
+
+    private static void record(final int depth, final CountDownLatch started) {
+        Node n = ModelFactory.fromClass(Node.class);
+        for (int i = 0; i < depth; i++) {
+            n = n.getNext();
+        }
+        started.countDown();
+        try {
+            // parks with the recording in progress, until all are recording
+            assertTrue(started.await(2, TimeUnit.MINUTES));
+        }
+        catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < depth; i++) {
+            expected.append("next.");
+        }
+        assertEquals(expected.append("name").toString(),
+                ModelFactory.path(n.getName()));
+    }
+
+    private static ExecutorService newVirtualThreadPerTaskExecutor()
+            throws Exception {
+        try {
+            return (ExecutorService) Executors.class.getMethod(
+                    "newVirtualThreadPerTaskExecutor").invoke(null);
+        }
+        catch (NoSuchMethodException beforeJava21) {
+            return null;
+        }
+    }
+
+    public static class Node {
+        public Node getNext() {
+            return new Node();
+        }
+
+        public String getName() {
+            return "node";
+        }
+    }
+}
@@ -0,0 +1,247 @@
+package org.wicketeer.modelfactory.internal;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import junit.framework.TestCase;
+import net.sf.cglib.proxy.Factory;
+
+import org.apache.wicket.ThreadContext;
+import org.wicketeer.modelfactory.ModelRecorder;
+
+public class HiddenClassProxyEngineTest extends TestCase {
+
+    private final HiddenClassProxyEngine engine = new HiddenClassProxyEngine();
+
+    private ProxyEngine previous;
+
+    @Override
+    protected void setUp() throws Exception {
+        assertTrue(HiddenClassProxyEngine.isSupported());
+        previous = ProxyUtil.getEngine();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        ProxyUtil.setEngine(previous);
+    }
+
+    public void testProxyClassIsReused() throws Exception {
+        NoNullConstructor first = engine.createProxy(new Echo("first"),
+                NoNullConstructor.class);
+        NoNullConstructor second = engine.createProxy(new Echo("second"),
+                NoNullConstructor.class);
+
+        assertNotSame(first, second);
+        assertSame(first.getClass(), second.getClass());
+        assertFalse(first instanceof Factory);
+        assertTrue(first.getClass().getName().contains("$$ModelFactoryProxy"));
+        assertEquals("first", first.getName());
+        assertEquals("second", second.getName());
+    }
+
+    public void testArgumentsAndReturnValues() throws Exception {
+        Echo echo = new Echo(null);
+        Bean bean = engine.createProxy(echo, Bean.class);
+
+        assertEquals(42, bean.add(40, 2L, 0.5d));
+        assertEquals("add", echo.method.getName());
+        assertEquals(Arrays.asList(40, 2L, 0.5d), Arrays.asList(echo.args));
+
+        bean.setName("foo");
+        assertEquals("setName", echo.method.getName());
+        assertEquals("foo", echo.args[0]);
+
+        assertEquals("hidden", bean.packagePrivate());
+        assertEquals("hidden", bean.inherited());
+        assertEquals("hidden", bean.fromInterface());
+        assertEquals("final", bean.finalMethod());
+    }
+
+    public void testInterface() throws Exception {
+        Named named = engine.createProxy(new Echo("named"), Named.class);
+        assertEquals("named", named.getName());
+    }
+
+    public void testDefersToDefaultEngine() throws Exception {
+        assertNull(engine.createProxy(new Echo("x"), ArrayList.class));
+        assertNull(engine.createProxy(new Echo("x"), Bean.class, Named.class));
+
+        ProxyUtil.setEngine(engine);
+        assertTrue(ProxyUtil.createProxy(new Echo("x"), ArrayList.class, false) instanceof Factory);
+    }
+
+    public void testEngineFromSystemProperty() throws Exception {
+        assertTrue(ProxyUtil.createEngine("hidden") instanceof HiddenClassProxyEngine);
+        assertTrue(ProxyUtil.createEngine(null) instanceof CglibProxyEngine);
+        assertTrue(ProxyUtil.createEngine(HiddenClassProxyEngine.class
+                .getName()) instanceof HiddenClassProxyEngine);
+        try {
+            ProxyUtil.createEngine("foo");
+            fail();
+        }
+        catch (IllegalArgumentException expected) {
+        }
+    }
+
+    public void testRecording() throws Exception {
+        ThreadContext.detach();
+        ProxyUtil.setEngine(engine);
+
+        ModelRecorder r = new ModelRecorder();
+        NoNullConstructor placeholder = r.fromClass(NoNullConstructor.class);
+        assertTrue(placeholder.getClass().getName()
+                .contains("$$ModelFactoryProxy"));
+        assertEquals("next.next.name",
+                r.path(placeholder.getNext().getNext().getName()));
+    }
+
+    public void testProxyClassIsUnloadedWithItsClassLoader() throws Exception {
+        WeakReference<ClassLoader> loader = proxyInThrowawayLoader();
+        for (int i = 0; (i < 50) && (loader.get() != null); i++) {
+            System.gc();
+            Thread.sleep(20);
+        }
+        assertNull("ClassLoader was not collected", loader.get());
+    }
+
+    private WeakReference<ClassLoader> proxyInThrowawayLoader()
+            throws Exception {
+        ClassLoader loader = new ChildFirstLoader(Unloadable.class.getName());
+        Class<?> c = loader.loadClass(Unloadable.class.getName());
+        assertNotSame(Unloadable.class, c);
+
+        Object proxy = engine.createProxy(new Echo("unloadable"), c);
+        Method getName = c.getMethod("getName");
+        // a different runtime package than ours
+        getName.setAccessible(true);
+        assertEquals("unloadable", getName.invoke(proxy));
+        return new WeakReference<ClassLoader>(loader);
+    }
+
+    static class Echo extends InvocationInterceptor {
+        private final String answer;
+        Method method;
+        Object[] args;
+
+        Echo(final String answer) {
+            this.answer = answer;
+        }
+
+        @Override
+        public Object invoke(final Object proxy, final Method method,
+                final Object[] args) {
+            this.method = method;
+            this.args = args;
+            if ("add".equals(method.getName())) {
+                return 42;
+            }
+            if (method.getReturnType() == String.class) {
+                return answer == null ? "hidden" : answer;
+            }
+            return null;
+        }
+    }
+
+    public interface Named {
+        String getName();
+    }
+
+    public interface WithDefault {
+        String fromInterface();
+    }
+
+    public static class NoNullConstructor implements Named {
+        public NoNullConstructor(final String ignore) {
+        }
+
+        @Override
+        public String getName() {
+            return "foo";
+        }
+
+        public NoNullConstructor getNext() {
+            return null;
+        }
+    }
+
+    public static class Base {
+        protected String inherited() {
+            return "base";
+        }
+    }
+
+    public abstract static class Bean extends Base implements WithDefault {
+        public abstract int add(int a, long b, double c);
+
+        public void setName(final String name) {
+        }
+
+        String packagePrivate() {
+            return "bean";
+        }
+
+        public final String finalMethod() {
+            return "final";
+        }
+    }
+
+    static class ChildFirstLoader extends ClassLoader {
+        private final String name;
+
+        ChildFirstLoader(final String name) {
+            super(ChildFirstLoader.class.getClassLoader());
+            this.name = name;
+        }
+
+        @Override
+        protected Class<?> loadClass(final String className,
+                final boolean resolve) throws ClassNotFoundException {
+            if (!name.equals(className)) {
+                return super.loadClass(className, resolve);
+            }
+            synchronized (getClassLoadingLock(className)) {
+                Class<?> c = findLoadedClass(className);
+                if (c == null) {
+                    byte[] bytes = read(className.replace('.', '/') + ".class");
+                    c = defineClass(className, bytes, 0, bytes.length);
+                }
+                return c;
+            }
+        }
+
+        private byte[] read(final String resource)
+                throws ClassNotFoundException {
+            InputStream in = getParent().getResourceAsStream(resource);
+            try {
+                try {
+                    ByteArrayOutputStream out = new ByteArrayOutputStream();
+                    byte[] buffer = new byte[4096];
+                    for (int n = in.read(buffer); n >= 0; n = in.read(buffer)) {
+                        out.write(buffer, 0, n);
+                    }
+                    return out.toByteArray();
+                }
+                finally {
+                    in.close();
+                }
+            }
+            catch (Exception e) {
+                throw new ClassNotFoundException(resource, e);
+            }
+        }
+    }
+}
+
+/**
+ * top level, so that it can be loaded without its enclosing class.
+ */
+class Unloadable {
+    public String getName() {
+        return "unloadable";
+    }
+}
@@ -0,0 +1,142 @@
+package org.wicketeer.modelfactory.internal;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+
+import junit.framework.TestCase;
+
+public class InvocationAllocationTest extends TestCase {
+
+    // kept short, so that escape analysis does not hide allocations
+    private static final int WARMUP = 20000;
+    private static final int EVALUATIONS = 100000;
+
+    private com.sun.management.ThreadMXBean threads;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        java.lang.management.ThreadMXBean bean = ManagementFactory
+                .getThreadMXBean();
+        if ((bean instanceof com.sun.management.ThreadMXBean)
+                && ((com.sun.management.ThreadMXBean) bean)
+                        .isThreadAllocatedMemorySupported()) {
+            threads = (com.sun.management.ThreadMXBean) bean;
+            threads.setThreadAllocatedMemoryEnabled(true);
+        }
+        // measure reflection, not jitted invokers
+        InvokerJitter.setThreshold(0);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        InvokerJitter.setThreshold(InvokerJitter.DEFAULT_THRESHOLD);
+        super.tearDown();
+    }
+
+    public void testSequenceEvaluationDoesNotAllocate() throws Exception {
+        if (threads == null) {
+            return;
+        }
+        InvocationSequence seq = new InvocationSequence(N.class);
+        Class<?> type = N.class;
+        for (int i = 0; i < 5; i++) {
+            Invocation inv = new Invocation(type, type.getMethod("getNext"),
+                    null);
+            seq = new InvocationSequence(seq, inv);
+        }
+        N root = N.chain(6);
+        Object expected = root.next.next.next.next.next;
+
+        for (int i = 0; i < WARMUP; i++) {
+            seq.evaluate(root);
+        }
+        assertSame(expected, seq.evaluate(root));
+
+        long allocated = allocatedBytes();
+        for (int i = 0; i < EVALUATIONS; i++) {
+            seq.evaluate(root);
+        }
+        allocated = allocatedBytes() - allocated;
+
+        // a single allocation per evaluation would amount to 16 bytes each
+        assertTrue(allocated + " bytes allocated", allocated < EVALUATIONS);
+    }
+
+    public void testAccessorChainDoesNotAllocate() throws Exception {
+        if (threads == null) {
+            return;
+        }
+        AccessorChain chain = AccessorChain.of(Arrays.asList(
+                N.class.getMethod("getNext"), N.class.getMethod("getNext"),
+                N.class.getMethod("getNext"), N.class.getMethod("getNext"),
+                N.class.getMethod("getNext")));
+        N root = N.chain(6);
+
+        for (int i = 0; i < WARMUP; i++) {
+            chain.get(root);
+        }
+        assertSame(root.next.next.next.next.next, chain.get(root));
+
+        long allocated = allocatedBytes();
+        for (int i = 0; i < EVALUATIONS; i++) {
+            chain.get(root);
+        }
+        allocated = allocatedBytes() - allocated;
+
+        assertTrue(allocated + " bytes allocated", allocated < EVALUATIONS);
+    }
+
+    public void testNullSafeEvaluationDoesNotAllocate() throws Exception {
+        if (threads == null) {
+            return;
+        }
+        InvocationSequence seq = new InvocationSequence(N.class);
+        for (int i = 0; i < 5; i++) {
+            seq = new InvocationSequence(seq, new Invocation(N.class,
+                    N.class.getMethod("getNext"), null));
+        }
+        NullSafeEvaluator<N> evaluator = new Argument<N>(seq)
+                .nullSafe(NullDefaults.NONE);
+        N root = N.chain(6);
+        N broken = N.chain(3);
+
+        for (int i = 0; i < WARMUP; i++) {
+            evaluator.evaluate(root);
+            evaluator.evaluate(broken);
+        }
+        assertSame(root.next.next.next.next.next, evaluator.evaluate(root));
+        assertNull(evaluator.evaluate(broken));
+
+        long allocated = allocatedBytes();
+        for (int i = 0; i < EVALUATIONS; i++) {
+            evaluator.evaluate(root);
+            evaluator.evaluate(broken);
+        }
+        allocated = allocatedBytes() - allocated;
+
+        assertTrue(allocated + " bytes allocated", allocated < EVALUATIONS);
+    }
+
+    private long allocatedBytes() {
+        return threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    public static class N {
+        N next;
+
+        static N chain(final int length) {
+            N root = new N();
+            N n = root;
+            for (int i = 1; i < length; i++) {
+                n.next = new N();
+                n = n.next;
+            }
+            return root;
+        }
+
+        public N getNext() {
+            return next;
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package org.wicketeer.modelfactory.internal;
+
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Method;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import junit.framework.TestCase;
+
+import org.wicketeer.modelfactory.ModelRecorder;
+import org.wicketeer.modelfactory.internal.HiddenClassProxyEngineTest.ChildFirstLoader;
+
+public class InvocationSequenceTest extends TestCase {
+
+    private final ModelRecorder r = new ModelRecorder();
+
+    public void testSamePathIsCanonical() throws Exception {
+        Argument<String> first = r.argument(r.fromClass(Outer.class)
+                .getInner().getName());
+        Argument<String> second = r.argument(r.fromClass(Outer.class)
+                .getInner().getName());
+
+        assertEquals(first, second);
+        assertEquals("inner.name", second.getInkvokedPropertyName());
+        assertSame(first.getInkvokedPropertyName(),
+                second.getInkvokedPropertyName());
+        assertSame(first.getAccessorChain(), second.getAccessorChain());
+        assertEquals(String.class, second.getReturnType());
+    }
+
+    public void testDifferentRootsAreDistinct() throws Exception {
+        Argument<String> outer = r.argument(r.fromClass(Outer.class)
+                .getInner().getName());
+        Argument<String> inner = r.argument(r.fromClass(Inner.class)
+                .getName());
+
+        assertFalse(outer.equals(inner));
+        assertEquals("name", inner.getInkvokedPropertyName());
+    }
+
+    public void testArgumentsAreNotCanonical() throws Exception {
+        Argument<Inner> first = r.argument(r.fromClass(Outer.class)
+                .getChild(1));
+        Argument<Inner> second = r.argument(r.fromClass(Outer.class)
+                .getChild(1));
+
+        assertFalse(first.equals(second));
+        assertEquals("child", second.getInkvokedPropertyName());
+
+        Outer outer = new Outer();
+        assertEquals("child1", second.evaluate(outer).getName());
+    }
+
+    public void testConcurrentAppendYieldsOneNode() throws Exception {
+        final Method getInner = Outer.class.getMethod("getInner");
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            Future<?>[] futures = new Future<?>[32];
+            for (int i = 0; i < futures.length; i++) {
+                futures[i] = pool.submit(new Callable<InvocationSequence>() {
+                    @Override
+                    public InvocationSequence call() throws Exception {
+                        return InvocationSequence.root(Outer.class).append(
+                                Outer.class, getInner, null);
+                    }
+                });
+            }
+            for (Future<?> f : futures) {
+                assertSame(futures[0].get(), f.get());
+            }
+            assertTrue(((InvocationSequence) futures[0].get()).isCanonical());
+        }
+        finally {
+            pool.shutdown();
+        }
+    }
+
+    public void testTrieDoesNotKeepClassLoader() throws Exception {
+        WeakReference<ClassLoader> loader = recordInThrowawayLoader();
+        for (int i = 0; (i < 50) && (loader.get() != null); i++) {
+            System.gc();
+            Thread.sleep(20);
+        }
+        assertNull("ClassLoader was not collected", loader.get());
+    }
+
+    private WeakReference<ClassLoader> recordInThrowawayLoader()
+            throws Exception {
+        ClassLoader loader = new ChildFirstLoader(Unloadable.class.getName());
+        Class<?> c = loader.loadClass(Unloadable.class.getName());
+        InvocationSequence name = InvocationSequence.root(c).append(c,
+                c.getMethod("getName"), null);
+        assertSame(name, InvocationSequence.root(c).append(c,
+                c.getMethod("getName"), null));
+        assertEquals("name", name.getInkvokedPropertyName());
+        return new WeakReference<ClassLoader>(loader);
+    }
+
+    public static class Outer {
+        private final Inner inner = new Inner();
+
+        public Inner getInner() {
+            return inner;
+        }
+
+        public Inner getChild(final int index) {
+            Inner child = new Inner();
+            child.setName("child" + index);
+            return child;
+        }
+    }
+
+    public static class Inner {
+        private String name;
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(final String name) {
+            this.name = name;
+        }
+    }
+}
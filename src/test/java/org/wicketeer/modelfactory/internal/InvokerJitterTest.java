@@ -0,0 +1,175 @@
+package org.wicketeer.modelfactory.internal;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.concurrent.Executor;
+
+import junit.framework.TestCase;
+
+public class InvokerJitterTest extends TestCase {
+
+    @Override
+    protected void tearDown() throws Exception {
+        InvokerJitter.setThreshold(InvokerJitter.DEFAULT_THRESHOLD);
+        InvokerJitter.setExecutor(null);
+        InvokerJitter
+                .setMaximumClassCount(InvokerJitter.DEFAULT_MAXIMUM_CLASS_COUNT);
+        super.tearDown();
+    }
+
+    public void testJitInvoker() throws Exception {
+        InvocationSequence seq = sequence(Outer.class, "getInner", "getValue");
+        Invoker invoker = new InvokerJitter(seq).jitInvoker();
+
+        assertNotNull(invoker);
+        assertTrue(invoker.getClass().getName()
+                .contains("InvokerByModelFactory"));
+        assertEquals(Integer.valueOf(42), invoker.invokeOn(new Outer()));
+        assertNull(invoker.invokeOn(null));
+
+        Outer outer = new Outer();
+        outer.inner = null;
+        assertNull(invoker.invokeOn(outer));
+    }
+
+    public void testJitPackagePrivate() throws Exception {
+        InvocationSequence seq = sequence(Outer.class, "getInner", "getHidden",
+                "getName");
+        Invoker invoker = new InvokerJitter(seq).jitInvoker();
+
+        assertNotNull(invoker);
+        assertEquals("hidden", invoker.invokeOn(new Outer()));
+    }
+
+    public void testNoJitForPrivate() throws Exception {
+        InvocationSequence seq = sequence(Outer.class, "getSecret");
+        assertNull(new InvokerJitter(seq).jitInvoker());
+        assertEquals("secret", seq.evaluate(new Outer()));
+    }
+
+    public void testSwapAfterThreshold() throws Exception {
+        InvokerJitter.setThreshold(3);
+        InvokerJitter.setExecutor(new Executor() {
+            @Override
+            public void execute(final Runnable command) {
+                command.run();
+            }
+        });
+
+        InvocationSequence seq = sequence(Outer.class, "getInner", "getValue");
+        Outer outer = new Outer();
+        assertSame(seq, seq.getInvoker());
+        assertEquals(42, seq.evaluate(outer));
+        assertEquals(42, seq.evaluate(outer));
+        assertSame(seq, seq.getInvoker());
+        assertEquals(42, seq.evaluate(outer));
+        assertNotSame(seq, seq.getInvoker());
+        assertEquals(42, seq.evaluate(outer));
+    }
+
+    public void testWrongRootTypeAfterJit() throws Exception {
+        InvokerJitter.setThreshold(1);
+        InvokerJitter.setExecutor(new Executor() {
+            @Override
+            public void execute(final Runnable command) {
+                command.run();
+            }
+        });
+
+        InvocationSequence seq = sequence(Outer.class, "getInner", "getValue");
+        try {
+            seq.evaluate("not an Outer");
+            fail();
+        }
+        catch (IllegalArgumentException expected) {
+        }
+        assertNotSame(seq, seq.getInvoker());
+        try {
+            seq.evaluate("not an Outer");
+            fail();
+        }
+        catch (IllegalArgumentException expected) {
+        }
+        assertEquals(42, seq.evaluate(new Outer()));
+    }
+
+    public void testThrowingGetterAfterJit() throws Exception {
+        InvokerJitter.setThreshold(1);
+        InvokerJitter.setExecutor(new Executor() {
+            @Override
+            public void execute(final Runnable command) {
+                command.run();
+            }
+        });
+
+        int classes = InvokerJitter.getClassCount();
+        InvocationSequence seq = sequence(Outer.class, "getInner", "getFailing");
+        assertFailsInGetter(seq);
+        assertNotSame(seq, seq.getInvoker());
+        assertEquals(classes + 1, InvokerJitter.getClassCount());
+        assertFailsInGetter(seq);
+    }
+
+    private static void assertFailsInGetter(final InvocationSequence seq) {
+        try {
+            seq.evaluate(new Outer());
+            fail();
+        }
+        catch (RuntimeException e) {
+            assertEquals(RuntimeException.class, e.getClass());
+            assertTrue(e.getCause() instanceof InvocationTargetException);
+            assertEquals("failing", e.getCause().getCause().getMessage());
+        }
+    }
+
+    public void testMaximumClassCount() throws Exception {
+        InvokerJitter.setMaximumClassCount(InvokerJitter.getClassCount());
+        InvocationSequence seq = sequence(Outer.class, "getInner", "getValue");
+        assertNull(new InvokerJitter(seq).jitInvoker());
+    }
+
+    private static InvocationSequence sequence(final Class<?> root,
+            final String... getters) throws Exception {
+        InvocationSequence seq = new InvocationSequence(root);
+        Class<?> type = root;
+        for (String getter : getters) {
+            Invocation inv = new Invocation(type,
+                    type.getDeclaredMethod(getter), null);
+            seq = new InvocationSequence(seq, inv);
+            type = inv.getReturnType();
+        }
+        return seq;
+    }
+
+    public static class Outer {
+        Inner inner = new Inner();
+
+        public Inner getInner() {
+            return inner;
+        }
+
+        @SuppressWarnings("unused")
+        private String getSecret() {
+            return "secret";
+        }
+    }
+
+    public static class Inner {
+        public int getValue() {
+            return 42;
+        }
+
+        public String getFailing() {
+            throw new IllegalStateException("failing");
+        }
+
+        Hidden getHidden() {
+            return new Hidden();
+        }
+    }
+
+    static class Hidden {
+        String getName() {
+            return "hidden";
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package org.wicketeer.modelfactory.internal;
+
+import java.io.Serializable;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import junit.framework.TestCase;
+
+import org.apache.wicket.model.IModel;
+import org.apache.wicket.model.Model;
+import org.wicketeer.modelfactory.ModelRecorder;
+
+public class MetricsTest extends TestCase {
+
+    private final ModelRecorder r = new ModelRecorder();
+
+    private final JmxMetrics metrics = new JmxMetrics();
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        Metrics.setMetrics(metrics);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        Metrics.setMetrics(null);
+        metrics.unregister();
+        super.tearDown();
+    }
+
+    public void testDisabledByDefault() throws Exception {
+        Metrics.setMetrics(null);
+        assertFalse(Metrics.isEnabled());
+        r.path(r.fromClass(Person.class).getName());
+        assertEquals(0, metrics.getProxyCount());
+        assertEquals(0, metrics.getRecordingCount());
+    }
+
+    public void testRecording() throws Exception {
+        assertTrue(Metrics.isEnabled());
+        Person p = new Person();
+        IModel<String> m = r.model(r.from(p).getFriend().getName());
+
+        // Person, Person, String
+        assertEquals(2, metrics.getProxyCount());
+        assertEquals(1, metrics.getFinalClassInstanceCount());
+        assertEquals(1, metrics.getRecordingCount());
+        assertTrue(metrics.getRecordingMaxNanos() > 0);
+        assertTrue(metrics.getRecordingMeanNanos() > 0);
+
+        assertEquals("friend", m.getObject());
+        m.getObject();
+        assertEquals(2, metrics.getEvaluationCount());
+        assertTrue(metrics.getEvaluationMaxNanos() >= metrics
+                .getEvaluationMeanNanos());
+
+        metrics.reset();
+        assertEquals(0, metrics.getProxyCount());
+        assertEquals(0, metrics.getEvaluationCount());
+        assertEquals(0, metrics.getEvaluationMaxNanos());
+    }
+
+    public void testProxyClassGenerated() throws Exception {
+        r.path(r.fromClass(FreshlyProxied.class).getName());
+        r.path(r.fromClass(FreshlyProxied.class).getName());
+        assertEquals(1, metrics.getProxyClassCount());
+        assertEquals(2, metrics.getProxyCount());
+    }
+
+    public void testTypeDiscovery() throws Exception {
+        r.path(r.from(new Model<Person>(new Person())).getName());
+        assertEquals(1, metrics.getObjectClassAwareDiscoveryCount()
+                + metrics.getModelObjectDiscoveryCount());
+
+        r.path(r.from(new PersonModel()).getName());
+        assertEquals(1, metrics.getDeclaredTypeDiscoveryCount());
+    }
+
+    public void testCustomMetrics() throws Exception {
+        final List<Class<?>> proxied = new ArrayList<Class<?>>();
+        Metrics.setMetrics(new ModelFactoryMetrics() {
+            @Override
+            public void proxyCreated(final Class<?> type) {
+                proxied.add(type);
+            }
+        });
+        r.path(r.fromClass(Person.class).getFriend().getName());
+        assertEquals(2, proxied.size());
+        assertEquals(Person.class, proxied.get(0));
+    }
+
+    public void testMBean() throws Exception {
+        metrics.register();
+        r.path(r.fromClass(Person.class).getFriend());
+
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName(JmxMetrics.OBJECT_NAME);
+        assertEquals(Long.valueOf(2), server.getAttribute(name, "ProxyCount"));
+        assertEquals(Long.valueOf(1),
+                server.getAttribute(name, "RecordingCount"));
+
+        server.invoke(name, "reset", null, null);
+        assertEquals(Long.valueOf(0), server.getAttribute(name, "ProxyCount"));
+
+        metrics.unregister();
+        assertFalse(server.isRegistered(name));
+    }
+
+    public static class Person implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        public String getName() {
+            return "friend";
+        }
+
+        public Person getFriend() {
+            return new Person();
+        }
+    }
+
+    public static class FreshlyProxied {
+        public String getName() {
+            return null;
+        }
+    }
+
+    static class PersonModel extends Model<Person> {
+        private static final long serialVersionUID = 1L;
+    }
+}
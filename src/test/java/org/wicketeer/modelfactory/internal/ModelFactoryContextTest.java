@@ -0,0 +1,175 @@
+package org.wicketeer.modelfactory.internal;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import junit.framework.TestCase;
+
+import org.apache.wicket.ThreadContext;
+import org.apache.wicket.util.tester.WicketTester;
+import org.wicketeer.modelfactory.ModelFactory;
+
+public class ModelFactoryContextTest extends TestCase {
+
+    @Override
+    protected void tearDown() throws Exception {
+        ModelFactoryContext.setStrategy(null);
+        ModelFactoryContext.bind(null);
+        super.tearDown();
+    }
+
+    public void testOneContextPerRequestCycle() throws Exception {
+        WicketTester tester = new WicketTester();
+        ModelFactoryContext first = ModelFactoryContext.get();
+        assertSame(first, ModelFactoryContext.get());
+
+        first.setRoot("root");
+        tester.destroy();
+
+        new WicketTester();
+        ModelFactoryContext second = ModelFactoryContext.get();
+        assertNotSame(first, second);
+        assertNull(second.getRoot());
+        assertSame(second, ModelFactoryContext.get());
+    }
+
+    public void testContextFollowsRequestCycleToOtherThread() throws Exception {
+        new WicketTester();
+        final ModelFactoryContext context = ModelFactoryContext.get();
+        final ThreadContext threadContext = ThreadContext.get(false);
+        final ModelFactoryContext[] other = new ModelFactoryContext[1];
+
+        Thread t = new Thread() {
+            @Override
+            public void run() {
+                // same request, handed over to another thread
+                ThreadContext.restore(threadContext);
+                other[0] = ModelFactoryContext.get();
+            }
+        };
+        t.start();
+        t.join();
+
+        assertSame(context, other[0]);
+    }
+
+    public void testOutsideOfRequestCycle() throws Exception {
+        new WicketTester();
+        ModelFactoryContext.get();
+        ThreadContext.detach();
+        try {
+            ModelFactoryContext.get();
+            fail();
+        }
+        catch (IllegalStateException expected) {
+        }
+    }
+
+    public void testThreadStrategy() throws Exception {
+        ThreadContext.detach();
+        ModelFactoryContext.setStrategy(new ThreadContextStrategy());
+
+        final ModelFactoryContext context = ModelFactoryContext.get();
+        assertSame(context, ModelFactoryContext.get());
+
+        final ModelFactoryContext[] other = new ModelFactoryContext[1];
+        Thread t = new Thread() {
+            @Override
+            public void run() {
+                other[0] = ModelFactoryContext.get();
+            }
+        };
+        t.start();
+        t.join();
+
+        assertNotNull(other[0]);
+        assertNotSame(context, other[0]);
+    }
+
+    public void testRequestCycleStrategyWithFallback() throws Exception {
+        ThreadContextStrategy threads = new ThreadContextStrategy();
+        ModelFactoryContext.setStrategy(new RequestCycleContextStrategy(
+                threads));
+
+        new WicketTester();
+        ModelFactoryContext inRequest = ModelFactoryContext.get();
+        assertNotSame(threads.getContext(), inRequest);
+
+        ThreadContext.detach();
+        assertSame(threads.getContext(), ModelFactoryContext.get());
+    }
+
+    public void testBoundContextTakesPrecedence() throws Exception {
+        new WicketTester();
+        ModelFactoryContext inRequest = ModelFactoryContext.get();
+        ModelFactoryContext explicit = new ModelFactoryContext();
+
+        assertNull(ModelFactoryContext.bind(explicit));
+        assertSame(explicit, ModelFactoryContext.get());
+        assertSame(explicit, ModelFactoryContext.bind(null));
+        assertSame(inRequest, ModelFactoryContext.get());
+    }
+
+    public void testRunWithRestoresBinding() throws Exception {
+        final ModelFactoryContext outer = new ModelFactoryContext();
+        final ModelFactoryContext inner = new ModelFactoryContext();
+
+        ModelFactoryContext.runWith(inner, new Runnable() {
+            @Override
+            public void run() {
+                assertSame(inner, ModelFactoryContext.get());
+            }
+        });
+        assertNull(ModelFactoryContext.bind(outer));
+
+        assertEquals("name", ModelFactoryContext.callWith(inner,
+                new Callable<String>() {
+                    @Override
+                    public String call() throws Exception {
+                        return ModelFactory.path(ModelFactory.fromClass(
+                                Bean.class).getName());
+                    }
+                }));
+        assertSame(outer, ModelFactoryContext.get());
+    }
+
+    public void testRecordingHandedToChildTask() throws Exception {
+        final ModelFactoryContext context = new ModelFactoryContext();
+        ModelFactoryContext.bind(context);
+        final Bean child = ModelFactory.fromClass(Bean.class).getChild();
+
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        try {
+            Future<String> path = pool.submit(new Callable<String>() {
+                @Override
+                public String call() throws Exception {
+                    return ModelFactoryContext.callWith(context,
+                            new Callable<String>() {
+                                @Override
+                                public String call() throws Exception {
+                                    return ModelFactory.path(child.getName());
+                                }
+                            });
+                }
+            });
+            assertEquals("child.name", path.get());
+        }
+        finally {
+            pool.shutdown();
+        }
+        assertEquals("name",
+                ModelFactory.path(ModelFactory.fromClass(Bean.class).getName()));
+    }
+
+    public static class Bean {
+        public Bean getChild() {
+            return new Bean();
+        }
+
+        public String getName() {
+            return "bean";
+        }
+    }
+}
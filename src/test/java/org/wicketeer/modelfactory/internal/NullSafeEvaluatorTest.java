@@ -0,0 +1,119 @@
+package org.wicketeer.modelfactory.internal;
+
+import junit.framework.TestCase;
+
+import org.wicketeer.modelfactory.ModelRecorder;
+
+public class NullSafeEvaluatorTest extends TestCase {
+
+    private final ModelRecorder r = new ModelRecorder();
+
+    private final Listener listener = new Listener();
+
+    public void testValue() throws Exception {
+        NullSafeEvaluator<String> name = NullSafeEvaluator.of(
+                r.argument(r.fromClass(Node.class).getNext().getName()),
+                NullDefaults.NONE, listener);
+
+        assertEquals("b", name.evaluate(Node.chain("a", "b")));
+        assertEquals(-1, listener.segment);
+    }
+
+    public void testStopsAtFirstNull() throws Exception {
+        NullSafeEvaluator<String> name = NullSafeEvaluator.of(
+                r.argument(r.fromClass(Node.class).getNext().getNext()
+                        .getName()), NullDefaults.NONE.with(String.class,
+                        "-"), listener);
+        Node root = Node.chain("a");
+
+        assertEquals("-", name.evaluate(root));
+        assertEquals(1, listener.segment);
+        assertSame(root, listener.root);
+        assertEquals("next", listener.chain.getPropertyName(1));
+        assertEquals(1, root.invocations);
+
+        assertEquals("-", name.evaluate(null));
+        assertEquals(0, listener.segment);
+
+        // a null value at the end of the chain is no broken chain
+        listener.segment = -1;
+        assertEquals("-", name.evaluate(Node.chain("a", "b", null)));
+        assertEquals(-1, listener.segment);
+    }
+
+    public void testPrimitiveDefaults() throws Exception {
+        Argument<Integer> length = r.argument(r.fromClass(Node.class)
+                .getNext().getLength());
+
+        assertEquals(Integer.valueOf(0),
+                length.nullSafe(NullDefaults.PRIMITIVE_ZEROS).evaluate(
+                        Node.chain("a")));
+        assertNull(length.nullSafe(NullDefaults.NONE).evaluate(
+                Node.chain("a")));
+        assertEquals(Integer.valueOf(42),
+                length.nullSafe(NullDefaults.PRIMITIVE_ZEROS.with(int.class,
+                        42)).evaluate(Node.chain("a")));
+        assertEquals(Integer.valueOf(1),
+                length.nullSafe(NullDefaults.PRIMITIVE_ZEROS).evaluate(
+                        Node.chain("a", "b")));
+    }
+
+    public void testArgumentsAreRejected() throws Exception {
+        try {
+            NullSafeEvaluator.of(r.argument(r.fromClass(Node.class).get(1)),
+                    NullDefaults.NONE);
+            fail();
+        }
+        catch (IllegalArgumentException expected) {
+        }
+    }
+
+    static class Listener implements NullSafeEvaluator.NullListener {
+        AccessorChain chain;
+        int segment = -1;
+        Object root;
+
+        @Override
+        public void nullSegment(final AccessorChain c, final int s,
+                final Object o) {
+            chain = c;
+            segment = s;
+            root = o;
+        }
+    }
+
+    public static class Node {
+        Node next;
+        String name;
+        int invocations;
+
+        static Node chain(final String... names) {
+            Node root = new Node();
+            root.name = names[0];
+            Node n = root;
+            for (int i = 1; i < names.length; i++) {
+                n.next = new Node();
+                n = n.next;
+                n.name = names[i];
+            }
+            return root;
+        }
+
+        public Node getNext() {
+            invocations++;
+            return next;
+        }
+
+        public Node get(final int index) {
+            return next;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public int getLength() {
+            return name == null ? 0 : name.length();
+        }
+    }
+}
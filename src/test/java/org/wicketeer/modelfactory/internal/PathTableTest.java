@@ -0,0 +1,26 @@
+package org.wicketeer.modelfactory.internal;
+
+import junit.framework.TestCase;
+
+public class PathTableTest extends TestCase {
+
+    public void testIntern() throws Exception {
+        String path = new String("a.b.c");
+        assertSame(path, PathTable.intern(path));
+        assertSame(path, PathTable.intern(new String("a.b.c")));
+        assertNull(PathTable.intern(null));
+    }
+
+    public void testCollectedEntriesVanish() throws Exception {
+        int size = PathTable.getSize();
+        PathTable.intern(new String("collected.path"));
+        for (int i = 0; (i < 50) && (PathTable.getSize() > size); i++) {
+            System.gc();
+            Thread.sleep(20);
+        }
+        assertTrue(PathTable.getSize() <= size);
+
+        String path = new String("collected.path");
+        assertSame(path, PathTable.intern(path));
+    }
+}
@@ -0,0 +1,143 @@
+package org.wicketeer.modelfactory.internal;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import junit.framework.TestCase;
+
+import org.wicketeer.modelfactory.ModelRecorder;
+
+public class ProjectionTest extends TestCase {
+
+    private final ModelRecorder r = new ModelRecorder();
+
+    @Override
+    protected void tearDown() throws Exception {
+        Projection.setParallelThreshold(Projection.DEFAULT_PARALLEL_THRESHOLD);
+        Projection.setPool(null);
+        super.tearDown();
+    }
+
+    public void testEvaluateAllShortCircuitsNulls() throws Exception {
+        Argument<String> name = r.argument(r.fromClass(Person.class)
+                .getAddress().getCity());
+
+        Person withCity = new Person("a", "Hamburg");
+        Person withoutAddress = new Person("b", null);
+        withoutAddress.address = null;
+        Object[] values = name.evaluateAll(Arrays.asList(withCity, null,
+                withoutAddress, new Person("c", null)));
+
+        assertEquals(Arrays.asList("Hamburg", null, null, null),
+                Arrays.asList(values));
+    }
+
+    public void testProjection() throws Exception {
+        Projection projection = Projection.of(
+                r.argument(r.fromClass(Person.class).getName()),
+                r.argument(r.fromClass(Person.class).getAddress().getCity()));
+        assertEquals(2, projection.getColumnCount());
+
+        List<Person> rows = new LinkedList<Person>(Arrays.asList(new Person(
+                "a", "Hamburg"), new Person("b", "Kiel")));
+        Object[][] values = projection.evaluate(rows);
+
+        assertEquals(Arrays.asList("a", "b"), Arrays.asList(values[0]));
+        assertEquals(Arrays.asList("Hamburg", "Kiel"), Arrays.asList(values[1]));
+    }
+
+    public void testPreallocated() throws Exception {
+        Argument<String> name = r.argument(r.fromClass(Person.class).getName());
+        Object[] values = new Object[3];
+        name.evaluateAll(Arrays.asList(new Person("a", null)), values);
+        assertEquals("a", values[0]);
+
+        try {
+            name.evaluateAll(Arrays.asList(new Person("a", null)),
+                    new Object[0]);
+            fail();
+        }
+        catch (IllegalArgumentException expected) {
+        }
+        try {
+            Projection.of(name, name).evaluate(
+                    Arrays.asList(new Person("a", null)),
+                    new Object[][] { new Object[1] });
+            fail();
+        }
+        catch (IllegalArgumentException expected) {
+        }
+    }
+
+    public void testParallel() throws Exception {
+        Projection.setParallelThreshold(100);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        Projection.setPool(pool);
+        try {
+            List<Person> rows = new ArrayList<Person>();
+            for (int i = 0; i < 50000; i++) {
+                rows.add(i % 7 == 0 ? null : new Person("p" + i, "c" + i));
+            }
+            Argument<String> city = r.argument(r.fromClass(Person.class)
+                    .getAddress().getCity());
+            Object[] values = city.evaluateAll(rows);
+
+            for (int i = 0; i < rows.size(); i++) {
+                assertEquals(i % 7 == 0 ? null : "c" + i, values[i]);
+            }
+            assertTrue(pool.getPoolSize() > 0);
+        }
+        finally {
+            pool.shutdown();
+        }
+    }
+
+    public void testExceptionsArePropagated() throws Exception {
+        Projection.setParallelThreshold(100);
+        Argument<String> name = r.argument(r.fromClass(Person.class).getName());
+        List<Object> rows = new ArrayList<Object>();
+        for (int i = 0; i < 1000; i++) {
+            rows.add(new Person("p", null));
+        }
+        rows.add("not a person");
+        try {
+            name.evaluateAll(rows);
+            fail();
+        }
+        catch (IllegalArgumentException expected) {
+        }
+    }
+
+    public static class Person {
+        private final String name;
+        Address address = new Address();
+
+        public Person() {
+            this(null, null);
+        }
+
+        Person(final String name, final String city) {
+            this.name = name;
+            this.address.city = city;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public Address getAddress() {
+            return address;
+        }
+    }
+
+    public static class Address {
+        private String city;
+
+        public String getCity() {
+            return city;
+        }
+    }
+}
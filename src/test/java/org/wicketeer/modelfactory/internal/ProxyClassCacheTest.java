@@ -0,0 +1,187 @@
+package org.wicketeer.modelfactory.internal;
+
+import java.io.InputStream;
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Method;
+import java.util.Properties;
+
+import junit.framework.TestCase;
+
+import org.apache.wicket.IInitializer;
+import org.apache.wicket.util.tester.WicketTester;
+import org.wicketeer.modelfactory.ModelFactory;
+import org.wicketeer.modelfactory.ModelFactoryInitializer;
+import org.wicketeer.modelfactory.internal.HiddenClassProxyEngineTest.ChildFirstLoader;
+
+public class ProxyClassCacheTest extends TestCase {
+
+    private ProxyEngine previousEngine;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        previousEngine = ProxyUtil.getEngine();
+        ProxyUtil.setEngine(null);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        ProxyClassCache.setMaximumSize(ProxyClassCache.DEFAULT_MAXIMUM_SIZE);
+        RecordingCache.setMaximumSize(0);
+        ProxyUtil.setEngine(previousEngine);
+        super.tearDown();
+    }
+
+    public void testEvictsLeastRecentlyUsed() throws Exception {
+        ProxyClassCache<String> cache = new ProxyClassCache<String>();
+        Class<?>[] types = { A.class, B.class, C.class, D.class, E.class,
+                F.class, G.class, H.class };
+        ProxyClassCache.setMaximumSize(types.length);
+        for (Class<?> type : types) {
+            cache.put(type, type.getSimpleName());
+        }
+        assertEquals("A", cache.get(A.class));
+        long evictions = ProxyClassCache.getEvictionCount();
+
+        cache.put(I.class, "I");
+
+        assertEquals("A", cache.get(A.class));
+        assertEquals("I", cache.get(I.class));
+        assertNull(cache.get(B.class));
+        assertTrue(ProxyClassCache.getEvictionCount() > evictions);
+    }
+
+    public void testPurge() throws Exception {
+        ProxyClassCache<String> cache = new ProxyClassCache<String>();
+        ClassLoader loader = new ChildFirstLoader(Unloadable.class.getName());
+        Class<?> c = loader.loadClass(Unloadable.class.getName());
+        cache.put(c, "unloadable");
+        cache.put(A.class, "a");
+
+        assertEquals(0, ProxyClassCache.purge(null));
+        assertEquals(1, ProxyClassCache.purge(loader));
+        assertNull(cache.get(c));
+        assertEquals("a", cache.get(A.class));
+    }
+
+    public void testRedeployedLoaderIsCollected() throws Exception {
+        RecordingCache.setMaximumSize(RecordingCache.DEFAULT_MAXIMUM_SIZE);
+        assertRedeployedLoaderIsCollected(new ModelFactoryContext());
+    }
+
+    /**
+     * a container thread, that keeps its context and reused placeholders
+     * after the application is undeployed, and does not record again.
+     */
+    public void testRedeployedLoaderIsCollectedFromThreadContext()
+            throws Exception {
+        // shared recordings would bypass the reused placeholders
+        ArgumentsFactory.setReusingPlaceholders(true);
+        ContextStrategy previous = ModelFactoryContext.getStrategy();
+        ModelFactoryContext.setStrategy(new ThreadContextStrategy());
+        try {
+            assertRedeployedLoaderIsCollected(null);
+        }
+        finally {
+            ModelFactoryContext.setStrategy(previous);
+            ArgumentsFactory.setReusingPlaceholders(false);
+        }
+    }
+
+    /**
+     * @param context
+     *            the context to record in, null for the configured strategy
+     */
+    private void assertRedeployedLoaderIsCollected(
+            final ModelFactoryContext context) throws Exception {
+        for (int deploy = 0; deploy < 5; deploy++) {
+            WeakReference<ClassLoader> loader = deployAndUndeploy(context);
+            for (int i = 0; (i < 50) && (loader.get() != null); i++) {
+                System.gc();
+                Thread.sleep(20);
+            }
+            assertNull("ClassLoader of deploy " + deploy
+                    + " was not collected", loader.get());
+        }
+    }
+
+    private WeakReference<ClassLoader> deployAndUndeploy(
+            final ModelFactoryContext context) throws Exception {
+        ClassLoader loader = new ChildFirstLoader(Unloadable.class.getName());
+        Class<?> c = loader.loadClass(Unloadable.class.getName());
+        Method getName = c.getMethod("getName");
+        // a different runtime package than ours
+        getName.setAccessible(true);
+
+        ModelFactoryContext previous = ModelFactoryContext.bind(context);
+        try {
+            for (int i = 0; i < 2; i++) {
+                Object placeholder = ModelFactory.fromClass(c);
+                assertEquals("name",
+                        ModelFactory.path(getName.invoke(placeholder)));
+            }
+        }
+        finally {
+            ModelFactoryContext.bind(previous);
+        }
+        assertEquals(RecordingCache.isEnabled(), RecordingCache.getSize() > 0);
+
+        ModelFactoryInitializer.purge(loader);
+        assertEquals(0, RecordingCache.getSize());
+        return new WeakReference<ClassLoader>(loader);
+    }
+
+    public void testInitializerIsRegistered() throws Exception {
+        WicketTester tester = new WicketTester();
+        try {
+            boolean found = false;
+            for (IInitializer i : tester.getApplication().getInitializers()) {
+                found |= i instanceof ModelFactoryInitializer;
+            }
+            assertTrue(found);
+        }
+        finally {
+            tester.destroy();
+        }
+    }
+
+    public void testInitializerIsRegisteredForWicket6() throws Exception {
+        Properties properties = new Properties();
+        InputStream in = getClass().getResourceAsStream("/wicket.properties");
+        try {
+            properties.load(in);
+        }
+        finally {
+            in.close();
+        }
+        assertEquals(ModelFactoryInitializer.class.getName(),
+                properties.getProperty("initializer"));
+    }
+
+    static class A {
+    }
+
+    static class B {
+    }
+
+    static class C {
+    }
+
+    static class D {
+    }
+
+    static class E {
+    }
+
+    static class F {
+    }
+
+    static class G {
+    }
+
+    static class H {
+    }
+
+    static class I {
+    }
+}
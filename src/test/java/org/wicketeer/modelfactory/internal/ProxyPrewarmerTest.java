@@ -0,0 +1,137 @@
+package org.wicketeer.modelfactory.internal;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.TestCase;
+
+import org.wicketeer.modelfactory.ModelFactory;
+import org.wicketeer.modelfactory.ModelRecorder;
+
+public class ProxyPrewarmerTest extends TestCase {
+
+    private ProxyEngine previousEngine;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        previousEngine = ProxyUtil.getEngine();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        ProxyUtil.setEngine(previousEngine);
+        super.tearDown();
+    }
+
+    public void testFollowsGetters() throws Exception {
+        ProxyUtil.setEngine(null);
+        ProxyPrewarmer.Report report = ModelFactory.prewarm(Order.class);
+
+        // Order, Customer, Address and List, but neither String nor int
+        assertEquals(4, report.getClassCount());
+        assertEquals(4, report.getGeneratedCount());
+        assertTrue(report.getDuration(TimeUnit.NANOSECONDS) > 0);
+        assertTrue(report.toString().startsWith(
+                "generated 4 proxy classes for 4 classes in "));
+
+        report = ModelFactory.prewarm(Order.class, Customer.class);
+        assertEquals(4, report.getClassCount());
+        assertEquals(0, report.getGeneratedCount());
+    }
+
+    public void testParallel() throws Exception {
+        ProxyUtil.setEngine(null);
+        ProxyPrewarmer.Report report = ProxyPrewarmer.prewarm(
+                ForkJoinPool.commonPool(), Invoice.class, Line.class,
+                Product.class, Invoice.class);
+
+        assertEquals(3, report.getClassCount());
+        assertEquals(3, report.getGeneratedCount());
+    }
+
+    public void testUnproxableClassesAreSkipped() throws Exception {
+        ProxyPrewarmer.Report report = ProxyPrewarmer.prewarm(String.class,
+                int.class, Order[].class, null);
+        assertEquals(0, report.getClassCount());
+    }
+
+    public void testHiddenClassEngine() throws Exception {
+        if (!HiddenClassProxyEngine.isSupported()) {
+            return;
+        }
+        ProxyUtil.setEngine(new HiddenClassProxyEngine());
+        ProxyPrewarmer.Report report = ProxyPrewarmer.prewarm(Shipment.class);
+        assertEquals(1, report.getClassCount());
+        assertEquals(1, report.getGeneratedCount());
+        assertEquals(0, ProxyPrewarmer.prewarm(Shipment.class)
+                .getGeneratedCount());
+
+        ModelRecorder r = new ModelRecorder();
+        assertEquals("number", r.path(r.fromClass(Shipment.class)
+                .getNumber()));
+    }
+
+    public static class Order {
+        public Customer getCustomer() {
+            return null;
+        }
+
+        public String getNumber() {
+            return null;
+        }
+
+        public int getCount() {
+            return 0;
+        }
+
+        public List<Customer> getOthers() {
+            return null;
+        }
+
+        public Order withCustomer(final Customer c) {
+            return this;
+        }
+    }
+
+    public static class Customer {
+        public Address getAddress() {
+            return null;
+        }
+
+        public Order getLastOrder() {
+            return null;
+        }
+    }
+
+    public static class Address {
+        public String getCity() {
+            return null;
+        }
+    }
+
+    public static class Invoice {
+        public Line getFirstLine() {
+            return null;
+        }
+    }
+
+    public static class Line {
+        public Product getProduct() {
+            return null;
+        }
+    }
+
+    public static class Product {
+        public String getName() {
+            return null;
+        }
+    }
+
+    public static class Shipment {
+        public String getNumber() {
+            return null;
+        }
+    }
+}
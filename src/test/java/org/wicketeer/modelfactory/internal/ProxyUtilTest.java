@@ -0,0 +1,60 @@
+package org.wicketeer.modelfactory.internal;
+
+import java.lang.reflect.Method;
+
+import junit.framework.TestCase;
+
+public class ProxyUtilTest extends TestCase {
+
+    public void testProxyClassIsReused() throws Exception {
+        Foo first = ProxyUtil.createProxy(new Answer("first"), Foo.class,
+                false);
+        Foo second = ProxyUtil.createProxy(new Answer("second"), Foo.class,
+                false);
+
+        assertNotSame(first, second);
+        assertSame(first.getClass(), second.getClass());
+        assertEquals("first", first.getName());
+        assertEquals("second", second.getName());
+    }
+
+    public void testProxyWithoutNullConstructor() throws Exception {
+        NoNullConstructor first = ProxyUtil.createProxy(new Answer("first"),
+                NoNullConstructor.class, false);
+        NoNullConstructor second = ProxyUtil.createProxy(
+                new Answer("second"), NoNullConstructor.class, false);
+
+        assertSame(first.getClass(), second.getClass());
+        assertEquals("first", first.getName());
+        assertEquals("second", second.getName());
+    }
+
+    static class Answer extends InvocationInterceptor {
+        private final String answer;
+
+        Answer(final String answer) {
+            this.answer = answer;
+        }
+
+        @Override
+        public Object invoke(final Object proxy, final Method method,
+                final Object[] args) {
+            return "getName".equals(method.getName()) ? answer : null;
+        }
+    }
+
+    public static class Foo {
+        public String getName() {
+            return "foo";
+        }
+    }
+
+    public static class NoNullConstructor {
+        public NoNullConstructor(final String ignore) {
+        }
+
+        public String getName() {
+            return "foo";
+        }
+    }
+}
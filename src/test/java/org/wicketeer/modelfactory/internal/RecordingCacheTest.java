@@ -0,0 +1,135 @@
+package org.wicketeer.modelfactory.internal;
+
+import static org.wicketeer.modelfactory.ModelFactory.from;
+import static org.wicketeer.modelfactory.ModelFactory.fromClass;
+import static org.wicketeer.modelfactory.ModelFactory.model;
+import static org.wicketeer.modelfactory.ModelFactory.path;
+
+import junit.framework.TestCase;
+
+import org.apache.wicket.model.IModel;
+import org.apache.wicket.util.tester.WicketTester;
+
+public class RecordingCacheTest extends TestCase {
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        new WicketTester();
+        RecordingCache.clear();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        RecordingCache.setMaximumSize(0);
+        RecordingCache.clear();
+        super.tearDown();
+    }
+
+    public void testDisabledByDefault() throws Exception {
+        assertFalse(RecordingCache.isEnabled());
+        Outer outer = new Outer();
+        Inner first = from(outer).getInner();
+        path(first);
+        Inner second = from(outer).getInner();
+        path(second);
+
+        assertNotSame(first, second);
+        assertEquals(0, RecordingCache.getSize());
+        assertEquals(0, RecordingCache.getHitCount());
+    }
+
+    public void testRecordingIsReused() throws Exception {
+        RecordingCache.setMaximumSize(RecordingCache.DEFAULT_MAXIMUM_SIZE);
+
+        Inner placeholder = null;
+        Argument<?> argument = null;
+        for (int row = 0; row < 10; row++) {
+            Outer outer = new Outer();
+            outer.getInner().setName("row" + row);
+
+            Inner inner = from(outer).getInner();
+            if (placeholder == null) {
+                placeholder = inner;
+                argument = ArgumentsFactory.getArgumentFor(inner);
+            }
+            assertSame(placeholder, inner);
+            assertSame(argument, ArgumentsFactory.getArgumentFor(inner));
+            path(inner);
+
+            IModel<String> m = model(from(outer).getInner().getName());
+            assertEquals("row" + row, m.getObject());
+            m.setObject("changed");
+            assertEquals("changed", outer.getInner().getName());
+        }
+
+        // root, getInner, getName
+        assertEquals(3, RecordingCache.getSize());
+        assertEquals(3, RecordingCache.getMissCount());
+        assertEquals(47, RecordingCache.getHitCount());
+        assertEquals(0.94, RecordingCache.getHitRate(), 0.001);
+    }
+
+    public void testSameMethodsOnDifferentRootsAreDistinct()
+            throws Exception {
+        RecordingCache.setMaximumSize(RecordingCache.DEFAULT_MAXIMUM_SIZE);
+
+        assertEquals("inner.name", path(fromClass(Outer.class).getInner()
+                .getName()));
+        assertEquals("name", path(fromClass(Inner.class).getName()));
+        assertEquals("inner.name", path(fromClass(Outer.class).getInner()
+                .getName()));
+        assertEquals("name", path(fromClass(Inner.class).getName()));
+    }
+
+    public void testArgumentsAreNotMemoized() throws Exception {
+        RecordingCache.setMaximumSize(RecordingCache.DEFAULT_MAXIMUM_SIZE);
+
+        assertEquals("inner", path(fromClass(Outer.class).getInner()));
+        path(fromClass(Outer.class).getChild(1));
+        path(fromClass(Outer.class).getChild(2));
+
+        assertEquals(2, RecordingCache.getSize());
+    }
+
+    public void testBounded() throws Exception {
+        RecordingCache.setMaximumSize(2);
+
+        path(fromClass(Outer.class).getInner().getName());
+        assertEquals(2, RecordingCache.getSize());
+        assertEquals("inner.name", path(fromClass(Outer.class).getInner()
+                .getName()));
+        assertEquals(2, RecordingCache.getSize());
+
+        RecordingCache.setMaximumSize(1);
+        assertEquals(1, RecordingCache.getSize());
+
+        RecordingCache.setMaximumSize(0);
+        assertEquals(0, RecordingCache.getSize());
+        assertFalse(RecordingCache.isEnabled());
+    }
+
+    public static class Outer {
+        private Inner inner = new Inner();
+
+        public Inner getInner() {
+            return inner;
+        }
+
+        public Inner getChild(final int index) {
+            return inner;
+        }
+    }
+
+    public static class Inner {
+        private String name;
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(final String name) {
+            this.name = name;
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package org.wicketeer.modelfactory.internal;
+
+import junit.framework.TestCase;
+
+import org.apache.wicket.model.IModel;
+import org.wicketeer.modelfactory.ModelRecorder;
+
+public class ReusablePlaceholderTest extends TestCase {
+
+    private final ModelRecorder r = new ModelRecorder();
+
+    private final JmxMetrics metrics = new JmxMetrics();
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        ArgumentsFactory.setReusingPlaceholders(true);
+        Metrics.setMetrics(metrics);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        Metrics.setMetrics(null);
+        ArgumentsFactory.setReusingPlaceholders(false);
+        RecordingCache.setMaximumSize(0);
+        super.tearDown();
+    }
+
+    public void testOnePlaceholderPerClass() throws Exception {
+        for (int i = 0; i < 100; i++) {
+            assertEquals("next.next.next.name", r.path(r.fromClass(Node.class)
+                    .getNext().getNext().getNext().getName()));
+            assertEquals("next.parent.name", r.path(r.fromClass(Node.class)
+                    .getNext().getParent().getName()));
+        }
+        // Node, Parent and one String instance
+        assertEquals(2, metrics.getProxyCount());
+        assertEquals(1, metrics.getFinalClassInstanceCount());
+        Node root = r.fromClass(Node.class);
+        assertSame(root, root.getNext());
+        assertEquals("next", r.path(root));
+    }
+
+    public void testModels() throws Exception {
+        Node a = new Node("a");
+        Node b = new Node("b");
+        IModel<String> fromA = r.model(r.from(a).getNext().getName());
+        IModel<String> fromB = r.model(r.from(b).getParent().getName());
+
+        assertEquals("a.next", fromA.getObject());
+        assertEquals("b.parent", fromB.getObject());
+    }
+
+    public void testDisabled() throws Exception {
+        ArgumentsFactory.setReusingPlaceholders(false);
+        Node root = r.fromClass(Node.class);
+        Node next = root.getNext();
+        assertNotSame(root, next);
+        assertEquals("next.next", r.path(next.getNext()));
+    }
+
+    public void testRelease() throws Exception {
+        r.path(r.fromClass(Node.class).getNext());
+        ArgumentsFactory.releasePlaceholders();
+        r.path(r.fromClass(Node.class).getNext());
+        assertEquals(2, metrics.getProxyCount());
+    }
+
+    public void testConstructorCallsAreNotKept() throws Exception {
+        assertEquals("next.name",
+                r.path(r.fromClass(Eager.class).getNext().getName()));
+        assertEquals("next.next.name", r.path(r.fromClass(Eager.class)
+                .getNext().getNext().getName()));
+    }
+
+    public void testWithRecordingCache() throws Exception {
+        RecordingCache.setMaximumSize(RecordingCache.DEFAULT_MAXIMUM_SIZE);
+        for (int i = 0; i < 3; i++) {
+            assertEquals("next.parent.name", r.path(r.fromClass(Node.class)
+                    .getNext().getParent().getName()));
+            assertEquals("parent.name", r.path(r.fromClass(Node.class)
+                    .getParent().getName()));
+        }
+    }
+
+    public static class Parent {
+        private final String name;
+
+        public Parent() {
+            this("parent");
+        }
+
+        Parent(final String name) {
+            this.name = name;
+        }
+
+        public String getName() {
+            return name;
+        }
+    }
+
+    public static class Node extends Parent {
+        public Node() {
+            this("node");
+        }
+
+        Node(final String name) {
+            super(name);
+        }
+
+        public Node getNext() {
+            return new Node(getName() + ".next");
+        }
+
+        public Parent getParent() {
+            return new Parent(getName() + ".parent");
+        }
+    }
+
+    public static class Eager {
+        private final Eager next;
+
+        public Eager() {
+            next = null;
+            getName();
+        }
+
+        public Eager getNext() {
+            return next;
+        }
+
+        public String getName() {
+            return "eager";
+        }
+    }
+}